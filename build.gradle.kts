@@ -53,12 +53,32 @@ repositories {
     google()
 }
 
+val functionalTest: SourceSet by sourceSets.creating
+
+configurations[functionalTest.implementationConfigurationName].extendsFrom(configurations.testImplementation.get())
+configurations[functionalTest.runtimeOnlyConfigurationName].extendsFrom(configurations.testRuntimeOnly.get())
+
+val benchmark: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[benchmark.implementationConfigurationName].extendsFrom(configurations[functionalTest.implementationConfigurationName])
+configurations[benchmark.runtimeOnlyConfigurationName].extendsFrom(configurations[functionalTest.runtimeOnlyConfigurationName])
+
 dependencies {
     implementation(gradleApi())
     implementation(libs.annotations)
+    testImplementation(platform(libs.junit.bom))
+    testImplementation(libs.junit.jupiter)
+    testRuntimeOnly(libs.junit.launcher)
+    "functionalTestImplementation"(gradleTestKit())
+    "benchmarkImplementation"(libs.jmh.core)
+    "benchmarkAnnotationProcessor"(libs.jmh.generator)
 }
 
 gradlePlugin {
+    testSourceSets(functionalTest, benchmark)
     plugins {
         val cmakePlugin by creating {
             id = "${project.group}.${base.archivesName.get()}"
@@ -70,6 +90,59 @@ gradlePlugin {
 tasks {
     val classes by getting
 
+    withType<Test>().configureEach {
+        useJUnitPlatform()
+    }
+
+    val functionalTestTask = register<Test>("functionalTest") {
+        description = "Runs the plugin against real Gradle builds with TestKit."
+        group = "verification"
+        testClassesDirs = functionalTest.output.classesDirs
+        classpath = functionalTest.runtimeClasspath
+        // The Gradle version under test may require a newer JVM than the plugin targets
+        javaLauncher = project.javaToolchains.launcherFor {
+            languageVersion = JavaLanguageVersion.of(17)
+        }
+        shouldRunAfter(named("test"))
+    }
+
+    named("check") {
+        dependsOn(functionalTestTask)
+    }
+
+    // Not part of check, timings depend on the machine and should be compared between runs on the same one
+    register<Test>("benchmark") {
+        description = "Measures the plugin against a scripted stand-in for CMake."
+        group = "verification"
+        testClassesDirs = benchmark.output.classesDirs
+        classpath = benchmark.runtimeClasspath
+        javaLauncher = project.javaToolchains.launcherFor {
+            languageVersion = JavaLanguageVersion.of(17)
+        }
+        outputs.upToDateWhen { false }
+        testLogging {
+            showStandardStreams = true
+        }
+    }
+
+    // The microbenchmarks of the benchmark source set, extra JMH options may be passed with --args
+    register<JavaExec>("jmh") {
+        description = "Runs the JMH microbenchmarks of the command line and output parsing hot paths."
+        group = "verification"
+        classpath = benchmark.runtimeClasspath
+        mainClass = "org.openjdk.jmh.Main"
+        javaLauncher = project.javaToolchains.launcherFor {
+            languageVersion = JavaLanguageVersion.of(17)
+        }
+        val results = layout.buildDirectory.file("reports/jmh/results.json")
+        // A provider rather than args, which --args would replace
+        argumentProviders.add(CommandLineArgumentProvider { listOf("-rf", "json", "-rff", results.get().asFile.absolutePath) })
+        outputs.upToDateWhen { false }
+        doFirst {
+            results.get().asFile.parentFile.mkdirs()
+        }
+    }
+
     val sourcesJar = create<Jar>("sourcesJar") {
         from(sourceSets.main.get().allSource)
         dependsOn(classes)
@@ -0,0 +1,96 @@
+package io.karma.gradlecm;
+
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures assembling the command lines of the configure and build tasks and the configure
+ * fingerprint, which happen for every execution of these tasks, including the skipped ones.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "--add-opens=java.base/java.lang=ALL-UNNAMED") // Required by ProjectBuilder
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CommandLineMicrobenchmark {
+    @Param({"10", "200"})
+    public int definitions;
+
+    private File projectFolder;
+    private CMakeConfigureTask configure;
+    private CMakeBuildTask build;
+    private ArrayList<String> configureCmdLine;
+    private ArrayList<String> configureDefinitions;
+    private Map<String, String> processEnv;
+
+    @Setup
+    public void createProject() throws IOException {
+        projectFolder = Files.createTempDirectory("gradlecm-jmh").toFile();
+        final Project project = ProjectBuilder.builder().withProjectDir(projectFolder).build();
+        project.getPluginManager().apply(CMakePlugin.class);
+
+        final CMakePluginExtension ext = project.getExtensions().getByType(CMakePluginExtension.class);
+        ext.getGenerator().set("Ninja");
+        ext.getBuildConfig().set("Release");
+        ext.getBuildTarget().set("app");
+
+        for (int i = 0; i < definitions; i++) {
+            ext.getDefs().put(String.format("OPTION_%d", i), String.format("value %d", i));
+        }
+
+        for (int i = 0; i < 3; i++) {
+            ext.getPrefixPath().from(new File(projectFolder, String.format("prefix%d", i)));
+        }
+
+        configure = (CMakeConfigureTask) project.getTasks().getByName("cmakeConfigure");
+        build = (CMakeBuildTask) project.getTasks().getByName("cmakeBuild");
+        configureCmdLine = configure.buildCmdLine();
+        configureDefinitions = new ArrayList<>();
+        configure.gatherDefinitions(configureDefinitions);
+        processEnv = configure.getProcessEnv();
+    }
+
+    @TearDown
+    public void deleteProject() throws IOException {
+        Utils.deleteDirectory(projectFolder);
+    }
+
+    @Benchmark
+    public List<String> configureCommandLine() {
+        return configure.buildCmdLine();
+    }
+
+    @Benchmark
+    public List<String> buildCommandLine() {
+        return build.buildCmdLine();
+    }
+
+    @Benchmark
+    public ConfigureFingerprint configureFingerprint() {
+        return ConfigureFingerprint.compute(configureCmdLine, configureDefinitions, processEnv, "Ninja", "cmake version 3.28.0");
+    }
+}
@@ -0,0 +1,115 @@
+package io.karma.gradlecm;
+
+import org.gradle.api.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures how fast {@link CMakeExecutor} forwards the output of a process and how
+ * long a line takes from the pipe to the logger.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+@EnabledOnOs(OS.LINUX)
+class ExecutorBenchmark {
+    // Generous bounds, they catch a pathological regression and not the noise of a busy machine
+    private static final int THROUGHPUT_LINES = 200000;
+    private static final double MIN_LINES_PER_SECOND = 20000.0;
+    private static final int LATENCY_LINES = 40;
+    private static final long MAX_MEDIAN_LATENCY_MILLIS = 50;
+    private static final long MAX_LATENCY_MILLIS = 500;
+
+    @TempDir
+    File tempFolder;
+
+    /**
+     * A logger which passes every message to the given consumer, the executor only logs plain strings.
+     */
+    private static @NotNull Logger logger(final @NotNull Consumer<String> consumer) {
+        return (Logger) Proxy.newProxyInstance(Logger.class.getClassLoader(), new Class<?>[]{Logger.class}, (proxy, method, args) -> {
+            if (method.getReturnType() == boolean.class) {
+                return true;
+            }
+
+            if (args != null && args.length == 1 && args[0] instanceof String) {
+                consumer.accept((String) args[0]);
+            }
+
+            return null;
+        });
+    }
+
+    private double measureThroughput(final int maxBufferedLines, final boolean collectDiagnostics) throws IOException {
+        final FakeCMake fake = new FakeCMake().lines(THROUGHPUT_LINES).warningInterval(50);
+        final File cmake = fake.write(new File(tempFolder, "bin"));
+        final long[] messages = new long[1];
+
+        try (final DiagnosticCollector diagnostics = collectDiagnostics ? new DiagnosticCollector(new File(tempFolder, "output.log"), false, 100) : null) {
+            final CMakeExecutor executor = new CMakeExecutor(logger(message -> messages[0]++), "benchmark", maxBufferedLines, diagnostics);
+            executor.exec(Collections.singletonList(cmake.getAbsolutePath()), tempFolder);
+
+            assertEquals(THROUGHPUT_LINES + fake.getWarnings(), executor.getForwardedLines());
+
+            if (diagnostics != null) {
+                assertEquals(fake.getWarnings(), diagnostics.getWarnings());
+            }
+
+            final double linesPerSecond = executor.getForwardedLines() * 1000.0 / Math.max(executor.getWallMillis(), 1);
+            System.out.printf("Throughput (buffer %d, diagnostics %s): %d lines in %dms, %.0f lines/s, %d logger calls%n", maxBufferedLines,
+                collectDiagnostics, executor.getForwardedLines(), executor.getWallMillis(), linesPerSecond, messages[0]);
+            return linesPerSecond;
+        }
+    }
+
+    @Test
+    void forwardsOutputQuickly() throws IOException {
+        assertTrue(measureThroughput(0, false) >= MIN_LINES_PER_SECOND);
+        assertTrue(measureThroughput(1024, false) >= MIN_LINES_PER_SECOND);
+        assertTrue(measureThroughput(1024, true) >= MIN_LINES_PER_SECOND);
+    }
+
+    @Test
+    void forwardsLinesWithoutDelay() throws IOException {
+        final File cmake = new FakeCMake().lines(LATENCY_LINES).sleepSeconds(0.05).timestamps(true).write(new File(tempFolder, "bin"));
+        final ArrayList<Long> latencies = new ArrayList<>();
+
+        // Both clocks are the wall clock of the same machine, the script stamps lines with date +%s%N
+        final CMakeExecutor executor = new CMakeExecutor(logger(message -> {
+            final long receivedNanos = System.currentTimeMillis() * 1000000L;
+
+            for (final String line : message.split(System.lineSeparator())) {
+                if (line.isEmpty() || !Character.isDigit(line.charAt(0))) {
+                    continue; // The command line the executor logs itself
+                }
+
+                latencies.add((receivedNanos - Long.parseLong(line.substring(0, line.indexOf(' ')))) / 1000000L);
+            }
+        }), "benchmark", 1024);
+        executor.exec(Collections.singletonList(cmake.getAbsolutePath()), tempFolder);
+
+        assertEquals(LATENCY_LINES, latencies.size());
+        final List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        final long median = sorted.get(sorted.size() / 2);
+        final long max = sorted.get(sorted.size() - 1);
+        System.out.printf("Latency over %d lines: median %dms, max %dms%n", sorted.size(), median, max);
+
+        assertTrue(median <= MAX_MEDIAN_LATENCY_MILLIS, String.format("Median latency of %dms", median));
+        assertTrue(max <= MAX_LATENCY_MILLIS, String.format("Maximum latency of %dms", max));
+    }
+}
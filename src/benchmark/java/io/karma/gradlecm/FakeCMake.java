@@ -0,0 +1,135 @@
+package io.karma.gradlecm;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Writes a shell script which stands in for {@code cmake}. It answers the capability
+ * probe like CMake 3.28 and otherwise writes the given build system files, emits a configurable
+ * amount of build output on stdout and stderr, sleeps for a configurable time and exits with a chosen code.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+final class FakeCMake {
+    private static final String CAPABILITIES = "{\"version\":{\"string\":\"3.28.0\",\"major\":3,\"minor\":28,\"patch\":0},"
+                                               + "\"generators\":[],\"fileApi\":{\"requests\":[]},\"serverMode\":false}";
+
+    // @formatter:off
+    private int lines           = 0;
+    private int warningInterval = 0;
+    private double sleepSeconds = 0.0;
+    private int exitCode        = 0;
+    private boolean timestamps  = false;
+    // @formatter:on
+    private final ArrayList<String> generatedFiles = new ArrayList<>();
+
+    /**
+     * The number of progress lines written to stdout.
+     */
+    @NotNull FakeCMake lines(final int lines) {
+        this.lines = lines;
+        return this;
+    }
+
+    /**
+     * Every n-th progress line is followed by a compiler warning on stderr, 0 for none.
+     */
+    @NotNull FakeCMake warningInterval(final int warningInterval) {
+        this.warningInterval = warningInterval;
+        return this;
+    }
+
+    /**
+     * The time to sleep after every line, which makes the output trickle in like in a real build.
+     */
+    @NotNull FakeCMake sleepSeconds(final double sleepSeconds) {
+        this.sleepSeconds = sleepSeconds;
+        return this;
+    }
+
+    /**
+     * The files to write into the working folder on every run, like the build system files of a configure.
+     */
+    @NotNull FakeCMake generates(final @NotNull String... files) {
+        generatedFiles.addAll(Arrays.asList(files));
+        return this;
+    }
+
+    @NotNull FakeCMake exitCode(final int exitCode) {
+        this.exitCode = exitCode;
+        return this;
+    }
+
+    /**
+     * Whether every line starts with the wall clock time in nanoseconds it was written at, to measure latency.
+     */
+    @NotNull FakeCMake timestamps(final boolean timestamps) {
+        this.timestamps = timestamps;
+        return this;
+    }
+
+    @NotNull File write(final @NotNull File folder) throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("#!/bin/sh\n");
+        sb.append("if [ \"$1\" = \"-E\" ]; then\n");
+        sb.append("    [ \"$2\" = \"capabilities\" ] && echo '").append(CAPABILITIES).append("'\n");
+        sb.append("    exit 0\n");
+        sb.append("fi\n");
+        sb.append("if [ \"$1\" = \"--version\" ]; then\n");
+        sb.append("    echo 'cmake version 3.28.0'\n");
+        sb.append("    exit 0\n");
+        sb.append("fi\n");
+
+        for (final String file : generatedFiles) {
+            sb.append("echo '# Generated by the fake cmake' > '").append(file).append("'\n");
+        }
+
+        if (timestamps || sleepSeconds > 0.0) {
+            // Slow output, one process per line is fine here and gives us the real time of every line
+            sb.append("i=0\n");
+            sb.append("while [ $i -lt ").append(lines).append(" ]; do\n");
+            sb.append(timestamps ? "    echo \"$(date +%s%N) [$i/" + lines + "] Building CXX object file$i.cpp.o\"\n"
+                : "    echo \"[$i/" + lines + "] Building CXX object file$i.cpp.o\"\n");
+            sb.append("    sleep ").append(sleepSeconds).append("\n");
+            sb.append("    i=$((i + 1))\n");
+            sb.append("done\n");
+        }
+        else {
+            // Fast output, a single awk process writes as quickly as the pipe takes it
+            sb.append("awk -v lines=").append(lines).append(" -v interval=").append(warningInterval).append(" 'BEGIN {\n");
+            sb.append("    for (i = 0; i < lines; i++) {\n");
+            sb.append("        printf \"[%d/%d] Building CXX object CMakeFiles/app.dir/src/file%d.cpp.o\\n\", i, lines, i\n");
+            sb.append("        if (interval > 0 && i % interval == 0) {\n");
+            sb.append("            printf \"/src/include/shared%d.h:%d:5: warning: unused variable '\\''x'\\'' [-Wunused-variable]\\n\", i % 7, i % 97 > \"/dev/stderr\"\n");
+            sb.append("        }\n");
+            sb.append("    }\n");
+            sb.append("}'\n");
+        }
+
+        sb.append("exit ").append(exitCode).append("\n");
+
+        final File script = new File(folder, "cmake");
+        Files.createDirectories(folder.toPath());
+        Files.write(script.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+
+        if (!script.setExecutable(true)) {
+            throw new IOException(String.format("Could not make %s executable", script));
+        }
+
+        return script;
+    }
+
+    /**
+     * @return the number of warnings the script writes to stderr.
+     */
+    int getWarnings() {
+        return warningInterval <= 0 || timestamps || sleepSeconds > 0.0 ? 0 : (lines + warningInterval - 1) / warningInterval;
+    }
+}
@@ -0,0 +1,95 @@
+package io.karma.gradlecm;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time {@link DiagnosticCollector} spends on a single line of output,
+ * which it sees for every line a build writes.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class OutputParsingMicrobenchmark {
+    private static final int LINES = 1000;
+
+    @Param({"false", "true"})
+    public boolean logToFile;
+
+    private final String[] lines = new String[LINES];
+    private File logFile;
+    private DiagnosticCollector collector;
+
+    @Setup(Level.Trial)
+    public void createLines() throws IOException {
+        // Mostly progress lines, like a real build, with the odd diagnostic of either compiler family
+        for (int i = 0; i < LINES; i++) {
+            if (i % 50 == 0) {
+                lines[i] = String.format("/src/include/shared%d.h:%d:5: warning: unused variable 'x' [-Wunused-variable]", i % 7, i % 97);
+            }
+            else if (i % 125 == 0) {
+                lines[i] = String.format("C:\\src\\module%d.cpp(%d,12): warning C4244: 'argument': conversion from 'double' to 'int'", i % 5, i);
+            }
+            else if (i % 333 == 0) {
+                lines[i] = String.format("/src/module%d.cpp:%d: error: expected ';' before '}' token", i % 3, i);
+            }
+            else if (i % 100 == 0) {
+                lines[i] = "/usr/bin/c++ -O2 -g -DNDEBUG -Wl,--as-needed CMakeFiles/app.dir/src/main.cpp.o -o app lib/libcore.a lib/libutil.a -lpthread -ldl";
+            }
+            else {
+                lines[i] = String.format("[%d/%d] Building CXX object CMakeFiles/app.dir/src/file%d.cpp.o", i, LINES, i);
+            }
+        }
+
+        logFile = File.createTempFile("gradlecm-output", ".log");
+    }
+
+    @Setup(Level.Iteration)
+    public void openCollector() throws IOException {
+        collector = new DiagnosticCollector(logToFile ? logFile : null, false, 100);
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeCollector() {
+        collector.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteLog() {
+        if (!logFile.delete()) {
+            logFile.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public int acceptLine() {
+        for (final String line : lines) {
+            collector.accept(line);
+        }
+
+        return collector.getWarnings();
+    }
+}
@@ -0,0 +1,168 @@
+package io.karma.gradlecm;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs real builds with TestKit against the scripted stand-in for CMake, which
+ * covers the whole path from the task through the worker to the executor.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+@EnabledOnOs(OS.LINUX)
+class PluginBenchmark {
+    private static final int BUILD_LINES = 100000;
+    private static final double MIN_LINES_PER_SECOND = 10000.0;
+    private static final long MAX_CONFIGURATION_MILLIS = 5000;
+    private static final int WORKING_FOLDER_FILES = 50000;
+    private static final long MAX_UP_TO_DATE_OVERHEAD_MILLIS = 1000;
+
+    @TempDir
+    File projectFolder;
+
+    private void writeBuild(final @NotNull File cmake) throws IOException {
+        write("settings.gradle", "rootProject.name = 'benchmark'\n");
+        write("build.gradle", String.join("\n",
+            "plugins {",
+            "    id 'io.karma.gradlecm.gradle-cmake'",
+            "}",
+            "",
+            "cmake {",
+            "    executable = '" + cmake.getAbsolutePath() + "'",
+            "    sourceFolder = file('src')",
+            "    diagnostics = true",
+            "}",
+            ""));
+        write("src/CMakeLists.txt", "cmake_minimum_required(VERSION 3.15)\nproject(benchmark CXX)\n");
+        Files.createDirectories(new File(projectFolder, "build/cmake").toPath());
+    }
+
+    private void write(final @NotNull String path, final @NotNull String content) throws IOException {
+        final File file = new File(projectFolder, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private @NotNull GradleRunner runner(final @NotNull String... arguments) {
+        final ArrayList<String> allArguments = new ArrayList<>(Arrays.asList(arguments));
+        allArguments.add("--stacktrace");
+        return GradleRunner.create().withProjectDir(projectFolder).withPluginClasspath().withArguments(allArguments);
+    }
+
+    private @NotNull BuildResult run(final @NotNull String... arguments) {
+        return runner(arguments).build();
+    }
+
+    private long countLogLines(final @NotNull String taskName) throws IOException {
+        try (final Stream<String> lines = Files.lines(new File(projectFolder, "build/reports/cmake/" + taskName + "/output.log").toPath())) {
+            return lines.count();
+        }
+    }
+
+    private long timeUpToDateConfigure() {
+        final BuildResult[] result = new BuildResult[1];
+        final long millis = time(() -> result[0] = run("cmakeConfigure"));
+        assertEquals(TaskOutcome.UP_TO_DATE, result[0].task(":cmakeConfigure").getOutcome(), result[0].getOutput());
+        return millis;
+    }
+
+    private static long time(final @NotNull Runnable action) {
+        final long start = System.nanoTime();
+        action.run();
+        return (System.nanoTime() - start) / 1000000L;
+    }
+
+    @Test
+    void configuresQuickly() throws IOException {
+        writeBuild(new FakeCMake().write(new File(projectFolder, "bin")));
+        run("help"); // Warms up the daemon
+
+        final long millis = time(() -> run("tasks", "--all"));
+        System.out.printf("Configuration and task listing: %dms%n", millis);
+        assertTrue(millis <= MAX_CONFIGURATION_MILLIS, String.format("Configuration took %dms", millis));
+    }
+
+    @Test
+    void buildsWithLargeOutput() throws IOException {
+        final FakeCMake fake = new FakeCMake().lines(BUILD_LINES).warningInterval(100);
+        writeBuild(fake.write(new File(projectFolder, "bin")));
+        run("help");
+
+        final BuildResult[] result = new BuildResult[1];
+        final long millis = time(() -> result[0] = run("cmakeBuild", "-x", "cmakeConfigure"));
+        assertEquals(TaskOutcome.SUCCESS, result[0].task(":cmakeBuild").getOutcome());
+
+        final long lines = countLogLines("cmakeBuild");
+        assertEquals(BUILD_LINES + fake.getWarnings(), lines);
+
+        final double linesPerSecond = lines * 1000.0 / Math.max(millis, 1);
+        System.out.printf("Build with %d lines: %dms including Gradle, %.0f lines/s%n", lines, millis, linesPerSecond);
+        assertTrue(linesPerSecond >= MIN_LINES_PER_SECOND, String.format("Only %.0f lines/s", linesPerSecond));
+        assertTrue(result[0].getOutput().contains(String.format("%d warnings", fake.getWarnings())), result[0].getOutput());
+    }
+
+    @Test
+    void failsWithLargeOutput() throws IOException {
+        final FakeCMake fake = new FakeCMake().lines(BUILD_LINES).warningInterval(100).exitCode(2);
+        writeBuild(fake.write(new File(projectFolder, "bin")));
+        run("help");
+
+        final BuildResult[] result = new BuildResult[1];
+        final long millis = time(() -> result[0] = runner("cmakeBuild", "-x", "cmakeConfigure").buildAndFail());
+        assertEquals(TaskOutcome.FAILED, result[0].task(":cmakeBuild").getOutcome());
+
+        // A failed build keeps its complete output and reports the end of it as context
+        final long lines = countLogLines("cmakeBuild");
+        assertEquals(BUILD_LINES + fake.getWarnings(), lines);
+        final String output = result[0].getOutput();
+        assertTrue(output.contains("abnormal exit code: 2"), output);
+        assertTrue(output.contains("Last 100 lines of output"), output);
+
+        final double linesPerSecond = lines * 1000.0 / Math.max(millis, 1);
+        System.out.printf("Failed build with %d lines: %dms including Gradle, %.0f lines/s%n", lines, millis, linesPerSecond);
+        assertTrue(linesPerSecond >= MIN_LINES_PER_SECOND, String.format("Only %.0f lines/s", linesPerSecond));
+    }
+
+    @Test
+    void checksUpToDateQuicklyInLargeWorkingFolders() throws IOException {
+        writeBuild(new FakeCMake().generates("CMakeCache.txt", "cmake_install.cmake", "Makefile").write(new File(projectFolder, "bin")));
+        assertEquals(TaskOutcome.SUCCESS, run("cmakeConfigure").task(":cmakeConfigure").getOutcome());
+        final long small = timeUpToDateConfigure();
+
+        // Object files as a build leaves them behind, none of which the check may fingerprint
+        final File objects = new File(projectFolder, "build/cmake/CMakeFiles/app.dir");
+
+        for (int i = 0; i < WORKING_FOLDER_FILES; i++) {
+            final File file = new File(objects, String.format("src%d/file%d.cpp.o", i % 100, i));
+
+            if (i < 100) {
+                Files.createDirectories(file.getParentFile().toPath());
+            }
+
+            Files.write(file.toPath(), new byte[]{0});
+        }
+
+        final long large = timeUpToDateConfigure();
+        System.out.printf("Up-to-date configure: %dms, with %d more files in the working folder: %dms%n", small, WORKING_FOLDER_FILES, large);
+        assertTrue(large - small <= MAX_UP_TO_DATE_OVERHEAD_MILLIS, String.format("%d files made the check %dms slower", WORKING_FOLDER_FILES,
+            large - small));
+    }
+}
@@ -0,0 +1,84 @@
+package io.karma.gradlecm;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the plugin twice with the configuration cache, the second run has to reuse the stored entry.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+class ConfigurationCacheTest {
+    @TempDir
+    File projectFolder;
+
+    private void writeBuild() throws IOException {
+        write("settings.gradle", "rootProject.name = 'cc-test'\n");
+        write("build.gradle", String.join("\n",
+            "plugins {",
+            "    id 'io.karma.gradlecm.gradle-cmake'",
+            "}",
+            "",
+            "cmake {",
+            "    sourceFolder = file('src')",
+            "    diagnostics = true",
+            "    variants {",
+            "        x64 {",
+            "            defs.USE_AVX2 = 'ON'",
+            "        }",
+            "    }",
+            "}",
+            ""));
+        write("src/CMakeLists.txt", "cmake_minimum_required(VERSION 3.15)\nproject(cc_test C)\n");
+    }
+
+    private void write(final @NotNull String path, final @NotNull String content) throws IOException {
+        final File file = new File(projectFolder, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private @NotNull BuildResult run(final @NotNull String... arguments) {
+        final ArrayList<String> allArguments = new ArrayList<>(Arrays.asList(arguments));
+        allArguments.add("--configuration-cache");
+        allArguments.add("--stacktrace");
+        return GradleRunner.create().withProjectDir(projectFolder).withPluginClasspath().withArguments(allArguments).build();
+    }
+
+    @Test
+    void reusesConfigurationCache() throws IOException {
+        writeBuild();
+
+        final BuildResult first = run("cmakeClean");
+        assertTrue(first.getOutput().contains("Configuration cache entry stored"), first.getOutput());
+
+        final BuildResult second = run("cmakeClean");
+        assertTrue(second.getOutput().contains("Reusing configuration cache"), second.getOutput());
+    }
+
+    @Test
+    void storesGraphOfAllTaskTypes() throws IOException {
+        writeBuild();
+
+        // A dry run serializes the configure, build, install and test tasks without needing CMake on the host
+        final String[] tasks = {"cmakeTest", "cmakeTestX64", "cmakeInstall", "cmakeBuildX64", "cmakeGenerators", "--dry-run"};
+        final BuildResult first = run(tasks);
+        assertTrue(first.getOutput().contains("Configuration cache entry stored"), first.getOutput());
+
+        final BuildResult second = run(tasks);
+        assertTrue(second.getOutput().contains("Reusing configuration cache"), second.getOutput());
+    }
+}
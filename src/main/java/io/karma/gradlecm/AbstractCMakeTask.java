@@ -2,20 +2,33 @@ package io.karma.gradlecm;
 
 import org.gradle.api.DefaultTask;
 import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.ProjectLayout;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.provider.MapProperty;
 import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
-import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import javax.inject.Inject;
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Map.Entry;
-import java.util.Set;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Base class that makes sure the CMake build is always invoked
@@ -26,25 +39,65 @@ import java.util.Set;
  * @since 17/05/2022
  */
 public abstract class AbstractCMakeTask extends DefaultTask {
+    private static final String LOG_FILE_NAME = "output.log";
+    private static final int DEFAULT_FAILURE_CONTEXT_LINES = 100;
+
     public final Property<String> executable;
     public final DirectoryProperty sourceFolder;
     public final Property<String> generator; // for example: "Visual Studio 16 2019"
     public final DirectoryProperty workingFolder;
     public final MapProperty<String, String> env;
+    public final RegularFileProperty envScript; // for example the setvars.sh of a toolchain
+    public final MapProperty<String, String> shellEnv; // passed to the env script
+    public final Property<Integer> outputBufferLines; // 0 or absent means unbounded
+    public final Property<String> compilerLauncher; // for example the path to ccache
+    public final DirectoryProperty compilerCacheFolder;
+    public final Property<String> compilerCacheSize;
+    public final DirectoryProperty reportsFolder;
+    public final Property<Boolean> diagnostics;
+    public final Property<Integer> failureContextLines;
+    public final Property<CMakeCapabilityService> capabilityService;
+    public final Property<CMakeEnvironmentService> environmentService;
+    public final Property<CMakeMetricsService> metricsService;
+    private int execCount; // the log file is replaced by the first command a task runs and appended to by the others
 
     protected AbstractCMakeTask() {
-        final ObjectFactory factory = getProject().getObjects();
+        final ObjectFactory factory = getObjectFactory();
+        final ProjectLayout layout = getProjectLayout();
 
         // @formatter:off
-        workingFolder   = factory.directoryProperty();
-        generator       = factory.property(String.class);
-        executable      = factory.property(String.class);
-        sourceFolder    = factory.directoryProperty();
-        env             = factory.mapProperty(String.class, String.class);
+        workingFolder       = factory.directoryProperty();
+        generator           = factory.property(String.class);
+        executable          = factory.property(String.class);
+        sourceFolder        = factory.directoryProperty();
+        env                 = factory.mapProperty(String.class, String.class);
+        envScript           = factory.fileProperty();
+        shellEnv            = factory.mapProperty(String.class, String.class);
+        outputBufferLines   = factory.property(Integer.class);
+        compilerLauncher    = factory.property(String.class);
+        compilerCacheFolder = factory.directoryProperty();
+        compilerCacheSize   = factory.property(String.class);
+        reportsFolder       = factory.directoryProperty();
+        diagnostics         = factory.property(Boolean.class);
+        failureContextLines = factory.property(Integer.class);
+        capabilityService   = factory.property(CMakeCapabilityService.class);
+        environmentService  = factory.property(CMakeEnvironmentService.class);
+        metricsService      = factory.property(CMakeMetricsService.class);
         // @formatter:on
 
-        workingFolder.set(new File(getProject().getBuildDir(), "cmake"));
-        sourceFolder.set(new File(getProject().getBuildDir(), "src" + File.separator + "main" + File.separator + "cpp"));
+        workingFolder.set(layout.getBuildDirectory().dir("cmake"));
+        sourceFolder.set(layout.getProjectDirectory().dir("src/main/cpp"));
+        reportsFolder.set(layout.getBuildDirectory().dir("reports/cmake/" + getName()));
+    }
+
+    @Inject
+    protected @NotNull ObjectFactory getObjectFactory() {
+        throw new UnsupportedOperationException(); // Injected by Gradle
+    }
+
+    @Inject
+    protected @NotNull ProjectLayout getProjectLayout() {
+        throw new UnsupportedOperationException(); // Injected by Gradle
     }
 
     protected abstract void gatherParameters(final @NotNull ArrayList<String> params);
@@ -53,35 +106,68 @@ public abstract class AbstractCMakeTask extends DefaultTask {
 
     protected abstract void copyConfiguration(final @NotNull CMakePluginExtension ext);
 
+    /**
+     * Copies the settings of the {@code cmake} extension into this task.
+     * Must be called while the task is configured; the values are wired lazily,
+     * so the task never needs to access the project once it runs.
+     */
     public void configureFromProject() {
-        final CMakePluginExtension ext = (CMakePluginExtension) getProject().getExtensions().getByName("cmake");
+        final CMakePluginExtension ext = getProject().getExtensions().getByType(CMakePluginExtension.class);
         workingFolder.set(ext.getWorkingFolder());
         generator.set(ext.getGenerator());
         executable.set(ext.getExecutable());
         sourceFolder.set(ext.getSourceFolder());
         env.set(ext.getEnv());
+        envScript.set(ext.getEnvScript());
+        shellEnv.set(ext.getShellEnv());
+        outputBufferLines.set(ext.getOutputBufferLines());
+        diagnostics.set(ext.getDiagnostics());
+        failureContextLines.set(ext.getFailureContextLines());
         copyConfiguration(ext);
     }
 
-    private @NotNull ArrayList<String> buildCmdLine() {
-        final ArrayList<String> params = new ArrayList<>();
-        final String executable = this.executable.getOrElse("cmake");
+    /**
+     * @return the capabilities of the configured CMake executable, or null if they are unknown.
+     */
+    @Internal
+    protected @Nullable CMakeCapabilities getCapabilities() {
+        final CMakeCapabilityService service = capabilityService.getOrNull();
+        return service == null ? null : service.get(executable.getOrElse("cmake"));
+    }
 
-        if (env.isPresent()) {
-            final Set<Entry<String, String>> envEntries = env.get().entrySet();
+    /**
+     * @return the environment variables to apply to the CMake process on top of the inherited ones.
+     * The variables captured from the env script come first, so {@link #env} can override them.
+     */
+    @Internal
+    protected @NotNull Map<String, String> getProcessEnv() {
+        final LinkedHashMap<String, String> processEnv = new LinkedHashMap<>();
 
-            if (!envEntries.isEmpty()) {
-                params.add(executable);
-                params.add("-E");
-                params.add("env");
+        if (envScript.isPresent()) {
+            processEnv.putAll(environmentService.get().get(envScript.getAsFile().get(), shellEnv.getOrElse(Collections.emptyMap())));
+        }
 
-                for (final Entry<String, String> entry : envEntries) {
-                    params.add(String.format("%s=%s", entry.getKey(), entry.getValue()));
-                }
-            }
+        processEnv.putAll(env.getOrElse(Collections.emptyMap()));
+
+        if (compilerLauncher.isPresent()) {
+            CompilerCache.gatherEnv(compilerLauncher.get(), compilerCacheFolder.getAsFile().getOrNull(), compilerCacheSize.getOrNull(), processEnv);
         }
 
-        params.add(executable);
+        return processEnv;
+    }
+
+    /**
+     * Creates a new command line which starts with the CMake executable.
+     * The environment of {@link #getProcessEnv()} is applied to the process directly by {@link #exec(List)}.
+     */
+    protected @NotNull ArrayList<String> newCmdLine() {
+        final ArrayList<String> params = new ArrayList<>();
+        params.add(executable.getOrElse("cmake"));
+        return params;
+    }
+
+    protected @NotNull ArrayList<String> buildCmdLine() {
+        final ArrayList<String> params = newCmdLine();
         gatherParameters(params);
 
         final ArrayList<String> buildParams = new ArrayList<>();
@@ -95,6 +181,51 @@ public abstract class AbstractCMakeTask extends DefaultTask {
         return params;
     }
 
+    @Inject
+    protected @NotNull WorkerExecutor getWorkerExecutor() {
+        throw new UnsupportedOperationException(); // Injected by Gradle
+    }
+
+    /**
+     * Runs the given command line in the working folder through the Worker API and waits for it.
+     * Waiting keeps the project lock, since the task still has work to do with the results, so CMake
+     * tasks of the same project never run at the same time; only those of different projects do.
+     */
+    protected void exec(final @NotNull List<String> cmdLine) {
+        final WorkQueue queue = getWorkerExecutor().noIsolation();
+        final boolean isFirstExec = execCount++ == 0;
+        final Map<String, String> processEnv = getProcessEnv();
+        final String metricsKey = isFirstExec ? getPath() : String.format("%s#%d", getPath(), execCount);
+
+        queue.submit(CMakeExecAction.class, params -> {
+            params.getTaskName().set(getName());
+            params.getCommandLine().set(cmdLine);
+            params.getEnvironment().set(processEnv);
+            params.getWorkingFolder().set(workingFolder);
+            params.getOutputBufferLines().set(outputBufferLines);
+            params.getDiagnostics().set(diagnostics.getOrElse(true));
+            params.getLogFile().set(reportsFolder.file(LOG_FILE_NAME));
+            params.getAppendLog().set(!isFirstExec);
+            params.getFailureContextLines().set(failureContextLines.getOrElse(DEFAULT_FAILURE_CONTEXT_LINES));
+            params.getMetricsService().set(metricsService);
+            params.getMetricsKey().set(metricsKey);
+
+            // Only the first command of a task compiles anything worth reporting, e.g. not the install step of a build
+            if (isFirstExec) {
+                params.getDiagnosticsReport().set(getDiagnosticsReport());
+            }
+
+            configureExec(params, cmdLine);
+        });
+
+        queue.await();
+    }
+
+    /**
+     * Allows subclasses to pass additional parameters to the work action running CMake.
+     */
+    protected void configureExec(final @NotNull CMakeExecAction.Params params, final @NotNull List<String> cmdLine) {}
+
     @Input
     @Optional
     public @NotNull Property<String> getGenerator() {
@@ -112,7 +243,12 @@ public abstract class AbstractCMakeTask extends DefaultTask {
         return sourceFolder;
     }
 
-    @OutputDirectory
+    /**
+     * The CMake binary tree. It is deliberately not declared as an output as a whole,
+     * since fingerprinting tens of thousands of object files is expensive; subclasses
+     * declare the precise files they produce based on the CMake File API instead.
+     */
+    @Internal
     public @NotNull DirectoryProperty getWorkingFolder() {
         return workingFolder;
     }
@@ -123,9 +259,120 @@ public abstract class AbstractCMakeTask extends DefaultTask {
         return env;
     }
 
+    /**
+     * A script setting up the environment of a toolchain, which is sourced once and whose
+     * environment is then applied to CMake. The captured environment is cached by the content of the script.
+     */
+    @InputFile
+    @Optional
+    @PathSensitive(PathSensitivity.NONE)
+    public @NotNull RegularFileProperty getEnvScript() {
+        return envScript;
+    }
+
+    /**
+     * The environment variables to source the {@link #getEnvScript() env script} with.
+     */
+    @Input
+    @Optional
+    public @NotNull MapProperty<String, String> getShellEnv() {
+        return shellEnv;
+    }
+
+    /**
+     * The maximum number of output lines buffered between the child process
+     * and the Gradle logger. Once the buffer is full, the child is throttled
+     * until the logger caught up; 0 or absent disables the limit.
+     */
+    @Internal
+    public @NotNull Property<Integer> getOutputBufferLines() {
+        return outputBufferLines;
+    }
+
+    /**
+     * The compiler launcher (usually ccache or sccache) used to cache compilation results.
+     */
+    @Internal
+    public @NotNull Property<String> getCompilerLauncher() {
+        return compilerLauncher;
+    }
+
+    /**
+     * The folder the compiler launcher keeps its cache in.
+     */
+    @Internal
+    public @NotNull DirectoryProperty getCompilerCacheFolder() {
+        return compilerCacheFolder;
+    }
+
+    /**
+     * The maximum size of the compiler cache, for example "5G".
+     */
+    @Internal
+    public @NotNull Property<String> getCompilerCacheSize() {
+        return compilerCacheSize;
+    }
+
+    /**
+     * The service probing the capabilities of the CMake executable.
+     */
+    @Internal
+    public @NotNull Property<CMakeCapabilityService> getCapabilityService() {
+        return capabilityService;
+    }
+
+    /**
+     * The service capturing and caching the environment of the env script.
+     */
+    @Internal
+    public @NotNull Property<CMakeEnvironmentService> getEnvironmentService() {
+        return environmentService;
+    }
+
+    /**
+     * The service recording the metrics of every CMake invocation, if metrics are enabled.
+     */
+    @Internal
+    public @NotNull Property<CMakeMetricsService> getMetricsService() {
+        return metricsService;
+    }
+
+    /**
+     * The folder diagnostic reports of this task are written to.
+     */
+    @Internal
+    public @NotNull DirectoryProperty getReportsFolder() {
+        return reportsFolder;
+    }
+
+    /**
+     * Whether to extract compiler diagnostics from the output of CMake. If enabled (the default),
+     * the raw output is only logged on info level and written to a log file in the reports folder,
+     * while the deduplicated diagnostics are summarized and written to {@link #getDiagnosticsReport()}.
+     */
+    @Internal
+    public @NotNull Property<Boolean> getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * The number of output lines logged as context if CMake fails, 100 by default.
+     */
+    @Internal
+    public @NotNull Property<Integer> getFailureContextLines() {
+        return failureContextLines;
+    }
+
+    /**
+     * The diagnostics extracted from the output as a SARIF 2.1.0 log.
+     */
+    @Internal
+    public @NotNull Provider<RegularFile> getDiagnosticsReport() {
+        return reportsFolder.file("diagnostics.sarif");
+    }
+
     @TaskAction
     public void performAction() {
-        final CMakeExecutor executor = new CMakeExecutor(getLogger(), getName());
-        executor.exec(buildCmdLine(), workingFolder.getAsFile().get());
+        exec(buildCmdLine());
     }
 }
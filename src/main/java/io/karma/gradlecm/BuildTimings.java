@@ -0,0 +1,504 @@
+package io.karma.gradlecm;
+
+import groovy.json.JsonOutput;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Timing analysis of a single Ninja build, based on the edges Ninja appended
+ * to its {@code .ninja_log} while the build ran. Every edge is attributed to
+ * the CMake target owning it, which gives per-translation-unit and per-target
+ * durations, an estimate of the critical path through the target graph and,
+ * with the dependency log, the headers that account for most compile time.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+final class BuildTimings {
+    static final String NINJA_LOG = ".ninja_log";
+
+    private static final Pattern OBJECT_FOLDER = Pattern.compile("CMakeFiles/([^/]+)\\.dir/");
+    private static final String[] SOURCE_EXTENSIONS = {".c", ".cc", ".cpp", ".cxx", ".c++", ".m", ".mm", ".cu"};
+
+    private final List<Edge> edges;
+    private final LinkedHashMap<String, TargetTiming> targets = new LinkedHashMap<>();
+    private final ArrayList<TargetTiming> criticalPath = new ArrayList<>();
+    private final LinkedHashMap<String, long[]> headers = new LinkedHashMap<>(); // header -> {accumulated ms, TU count}
+    private final boolean isWholeLog;
+    private long criticalPathMillis;
+
+    private BuildTimings(final @NotNull List<Edge> edges, final boolean isWholeLog) {
+        this.edges = edges;
+        this.isWholeLog = isWholeLog;
+    }
+
+    /**
+     * Reads the edges Ninja logged after the given position. If Ninja recompacted its log in the meantime,
+     * the position is meaningless and the whole log is read, see {@link #isWholeLog()}.
+     *
+     * @return the analysis, or null if Ninja did not log anything (e.g. because nothing was out of date).
+     */
+    static @Nullable BuildTimings read(final @NotNull File buildFolder, final @NotNull LogPosition position) throws IOException {
+        final File log = new File(buildFolder, NINJA_LOG);
+
+        if (!log.isFile()) {
+            return null;
+        }
+
+        final ArrayList<Edge> edges = new ArrayList<>();
+        final HashSet<String> keys = new HashSet<>();
+        final boolean isWholeLog;
+
+        try (final RandomAccessFile file = new RandomAccessFile(log, "r")) {
+            isWholeLog = !position.isValidFor(file);
+            file.seek(isWholeLog ? 0 : position.offset);
+
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(file.getChannel()), StandardCharsets.UTF_8));
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("#")) {
+                    continue;
+                }
+
+                final String[] parts = line.split("\t");
+
+                if (parts.length < 5) {
+                    continue;
+                }
+
+                try {
+                    final long start = Long.parseLong(parts[0]);
+                    final long end = Long.parseLong(parts[1]);
+
+                    // Edges with several outputs are logged once per output
+                    final String key = parts[0] + ':' + parts[1] + ':' + parts[4];
+
+                    if (keys.add(key)) {
+                        edges.add(new Edge(parts[3], start, end));
+                    }
+                }
+                catch (NumberFormatException ignored) {
+                    // Not an edge
+                }
+            }
+        }
+
+        if (edges.isEmpty()) {
+            return null;
+        }
+
+        edges.sort(Comparator.comparingLong(edge -> edge.start));
+        return new BuildTimings(edges, isWholeLog);
+    }
+
+    /**
+     * @return whether the log was recompacted during the build, so the analysis covers every edge in it,
+     * including the ones of earlier builds.
+     */
+    boolean isWholeLog() {
+        return isWholeLog;
+    }
+
+    /**
+     * Attributes the edges to the targets of the code model and estimates the critical path.
+     * A target can link once its own objects are compiled and all targets it depends on are
+     * linked, so its earliest finish is max(longest compile, latest dependency finish) + link time.
+     */
+    void analyze(final @Nullable CMakeFileApi.Reply reply, final @Nullable String configName) {
+        final HashMap<String, String> artifactOwners = new HashMap<>();
+        final HashMap<String, CMakeFileApi.Target> byId = new HashMap<>();
+        final HashMap<String, CMakeFileApi.Target> byName = new HashMap<>();
+
+        if (reply != null) {
+            final String buildPath = reply.getBuildFolder().getAbsolutePath() + File.separator;
+
+            for (final CMakeFileApi.Target target : reply.getTargets(configName)) {
+                byId.put(target.getId(), target);
+                byName.put(target.getName(), target);
+
+                for (final File artifact : target.getArtifacts()) {
+                    final String path = artifact.getAbsolutePath();
+                    artifactOwners.put((path.startsWith(buildPath) ? path.substring(buildPath.length()) : path).replace(File.separatorChar, '/'), target.getName());
+                }
+            }
+        }
+
+        for (final Edge edge : edges) {
+            final String output = edge.output.replace('\\', '/');
+            final Matcher matcher = OBJECT_FOLDER.matcher(output);
+            String owner = artifactOwners.get(output);
+
+            if (owner != null) {
+                edge.isLink = true;
+            }
+            else if (matcher.find()) {
+                owner = matcher.group(1);
+            }
+
+            edge.target = owner == null ? "<other>" : owner;
+            final TargetTiming timing = targets.computeIfAbsent(edge.target, TargetTiming::new);
+            timing.add(edge);
+        }
+
+        final HashMap<String, Long> finish = new HashMap<>();
+        final HashMap<String, String> predecessor = new HashMap<>();
+        String last = null;
+
+        for (final String name : targets.keySet()) {
+            final long value = finish(name, byId, byName, finish, predecessor, new HashMap<>());
+
+            if (last == null || value > finish.get(last)) {
+                last = name;
+            }
+        }
+
+        criticalPathMillis = last == null ? 0 : finish.get(last);
+
+        for (String name = last; name != null; name = predecessor.get(name)) {
+            final TargetTiming timing = targets.get(name);
+
+            if (timing != null) {
+                criticalPath.add(0, timing);
+            }
+        }
+    }
+
+    private long finish(final @NotNull String name, final @NotNull Map<String, CMakeFileApi.Target> byId,
+                        final @NotNull Map<String, CMakeFileApi.Target> byName, final @NotNull Map<String, Long> finish,
+                        final @NotNull Map<String, String> predecessor, final @NotNull Map<String, Boolean> visiting) {
+        final Long known = finish.get(name);
+
+        if (known != null) {
+            return known;
+        }
+
+        if (visiting.put(name, Boolean.TRUE) != null) {
+            return 0; // Cycles cannot happen in a valid code model, but better safe than sorry
+        }
+
+        final TargetTiming timing = targets.get(name);
+        final CMakeFileApi.Target target = byName.get(name);
+        long ready = timing == null ? 0 : timing.longestCompile;
+
+        if (target != null) {
+            for (final String id : target.getDependencies()) {
+                final CMakeFileApi.Target dependency = byId.get(id);
+
+                if (dependency == null) {
+                    continue;
+                }
+
+                final long value = finish(dependency.getName(), byId, byName, finish, predecessor, visiting);
+
+                if (value > ready) {
+                    ready = value;
+                    predecessor.put(name, dependency.getName());
+                }
+            }
+        }
+
+        final long value = ready + (timing == null ? 0 : timing.link);
+        finish.put(name, value);
+        return value;
+    }
+
+    /**
+     * Accumulates the compile time of every translation unit on the headers it includes,
+     * as recorded in Ninja's dependency log. A header included by many slow TUs is
+     * a good candidate for a precompiled header or for slimming down.
+     */
+    void analyzeHeaders(final @NotNull String ninja, final @NotNull File buildFolder) throws IOException, InterruptedException {
+        final HashMap<String, Long> durations = new HashMap<>();
+
+        for (final Edge edge : edges) {
+            if (!edge.isLink) {
+                durations.put(edge.output, edge.getDuration());
+            }
+        }
+
+        final Process process = new ProcessBuilder(ninja, "-t", "deps").directory(buildFolder).redirectErrorStream(true).start();
+        final HashMap<String, long[]> accumulated = new HashMap<>();
+
+        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            Long duration = null;
+
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+
+                if (!Character.isWhitespace(line.charAt(0))) {
+                    final int colon = line.indexOf(": #deps");
+                    duration = colon < 0 ? null : durations.get(line.substring(0, colon));
+                    continue;
+                }
+
+                final String header = line.trim();
+
+                if (duration != null && !isSource(header)) {
+                    final long[] value = accumulated.computeIfAbsent(header, key -> new long[2]);
+                    value[0] += duration;
+                    value[1]++;
+                }
+            }
+        }
+
+        if (process.waitFor() != 0) {
+            throw new IOException("ninja -t deps returned with exit code " + process.exitValue());
+        }
+
+        accumulated.entrySet().stream()
+            .sorted((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]))
+            .limit(100)
+            .forEach(entry -> headers.put(entry.getKey(), entry.getValue()));
+    }
+
+    private static boolean isSource(final @NotNull String path) {
+        final String lower = path.toLowerCase();
+
+        for (final String extension : SOURCE_EXTENSIONS) {
+            if (lower.endsWith(extension)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the time from the start of the first edge to the end of the last one to finish,
+     * which is not necessarily the last one to start.
+     */
+    long getWallMillis() {
+        long start = Long.MAX_VALUE;
+        long end = Long.MIN_VALUE;
+
+        for (final Edge edge : edges) {
+            start = Math.min(start, edge.start);
+            end = Math.max(end, edge.end);
+        }
+
+        return end - start;
+    }
+
+    @NotNull List<Edge> getSlowestEdges(final int limit) {
+        final ArrayList<Edge> sorted = new ArrayList<>(edges);
+        sorted.sort((a, b) -> Long.compare(b.getDuration(), a.getDuration()));
+        return sorted.subList(0, Math.min(limit, sorted.size()));
+    }
+
+    @NotNull List<TargetTiming> getSlowestTargets(final int limit) {
+        final ArrayList<TargetTiming> sorted = new ArrayList<>(targets.values());
+        sorted.sort((a, b) -> Long.compare(b.total, a.total));
+        return sorted.subList(0, Math.min(limit, sorted.size()));
+    }
+
+    @NotNull List<TargetTiming> getCriticalPath() {
+        return Collections.unmodifiableList(criticalPath);
+    }
+
+    long getCriticalPathMillis() {
+        return criticalPathMillis;
+    }
+
+    @NotNull List<Entry<String, long[]>> getCostliestHeaders(final int limit) {
+        final ArrayList<Entry<String, long[]>> entries = new ArrayList<>(headers.entrySet());
+        return entries.subList(0, Math.min(limit, entries.size()));
+    }
+
+    void writeReport(final @NotNull File file) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+
+        try (final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+            writer.printf("Wall time: %s, %d edges%n", formatMillis(getWallMillis()), edges.size());
+            writer.printf("%nEstimated critical path (%s):%n", formatMillis(criticalPathMillis));
+
+            for (final TargetTiming target : criticalPath) {
+                writer.printf("  %-40s compile %10s  link %10s%n", target.name, formatMillis(target.longestCompile), formatMillis(target.link));
+            }
+
+            writer.printf("%nTargets by accumulated time:%n");
+
+            for (final TargetTiming target : getSlowestTargets(Integer.MAX_VALUE)) {
+                writer.printf("  %-40s %10s total %10s span %6d edges%n", target.name, formatMillis(target.total), formatMillis(target.getSpan()), target.count);
+            }
+
+            if (!headers.isEmpty()) {
+                writer.printf("%nHeaders by accumulated compile time of the TUs including them:%n");
+
+                for (final Entry<String, long[]> header : headers.entrySet()) {
+                    writer.printf("  %10s %6d TUs  %s%n", formatMillis(header.getValue()[0]), header.getValue()[1], header.getKey());
+                }
+            }
+
+            writer.printf("%nEdges by duration:%n");
+
+            for (final Edge edge : getSlowestEdges(Integer.MAX_VALUE)) {
+                writer.printf("  %10s  %-30s %s%n", formatMillis(edge.getDuration()), edge.target, edge.output);
+            }
+        }
+    }
+
+    /**
+     * Writes the edges in the Chrome trace event format, which can be opened in
+     * chrome://tracing or ui.perfetto.dev. Edges are laid out on as few lanes as possible,
+     * which roughly corresponds to the jobs Ninja ran them on.
+     */
+    void writeTrace(final @NotNull File file) throws IOException {
+        final ArrayList<Long> lanes = new ArrayList<>();
+        final ArrayList<Map<String, Object>> events = new ArrayList<>();
+
+        for (final Edge edge : edges) {
+            int lane = 0;
+
+            while (lane < lanes.size() && lanes.get(lane) > edge.start) {
+                lane++;
+            }
+
+            if (lane == lanes.size()) {
+                lanes.add(edge.end);
+            }
+            else {
+                lanes.set(lane, edge.end);
+            }
+
+            final LinkedHashMap<String, Object> event = new LinkedHashMap<>();
+            event.put("name", edge.output);
+            event.put("cat", edge.target);
+            event.put("ph", "X");
+            event.put("ts", edge.start * 1000);
+            event.put("dur", edge.getDuration() * 1000);
+            event.put("pid", 0);
+            event.put("tid", lane);
+            events.add(event);
+        }
+
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), JsonOutput.toJson(events).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static @NotNull String formatMillis(final long millis) {
+        return millis < 1000 ? millis + "ms" : String.format("%.1fs", millis / 1000.0);
+    }
+
+    /**
+     * The point in the Ninja log where the edges of the next build will start: its current size,
+     * and the bytes in front of it, which tell whether Ninja rewrote the log since.
+     */
+    static final class LogPosition {
+        private static final int TAIL_LENGTH = 512;
+
+        final long offset;
+        private final byte[] tail;
+
+        private LogPosition(final long offset, final byte @NotNull [] tail) {
+            this.offset = offset;
+            this.tail = tail;
+        }
+
+        static @NotNull LogPosition of(final @NotNull File buildFolder) {
+            final File log = new File(buildFolder, NINJA_LOG);
+
+            if (!log.isFile()) {
+                return new LogPosition(0, new byte[0]);
+            }
+
+            try (final RandomAccessFile file = new RandomAccessFile(log, "r")) {
+                final long offset = file.length();
+                return new LogPosition(offset, readTail(file, offset));
+            }
+            catch (IOException error) {
+                return new LogPosition(0, new byte[0]); // Reading everything is the safe fallback
+            }
+        }
+
+        /**
+         * @return whether the log still starts with the same bytes up to the offset. Recompacting
+         * rewrites the whole file, and the result is possibly longer than the old offset.
+         */
+        boolean isValidFor(final @NotNull RandomAccessFile file) throws IOException {
+            return offset <= file.length() && Arrays.equals(tail, readTail(file, offset));
+        }
+
+        private static byte @NotNull [] readTail(final @NotNull RandomAccessFile file, final long offset) throws IOException {
+            final byte[] tail = new byte[(int) Math.min(TAIL_LENGTH, offset)];
+            file.seek(offset - tail.length);
+            file.readFully(tail);
+            return tail;
+        }
+    }
+
+    static final class Edge {
+        final String output;
+        final long start;
+        final long end;
+        String target;
+        boolean isLink;
+
+        Edge(final @NotNull String output, final long start, final long end) {
+            this.output = output;
+            this.start = start;
+            this.end = end;
+        }
+
+        long getDuration() {
+            return end - start;
+        }
+    }
+
+    static final class TargetTiming {
+        final String name;
+        long total;
+        long longestCompile;
+        long link;
+        long start = Long.MAX_VALUE;
+        long end;
+        int count;
+
+        TargetTiming(final @NotNull String name) {
+            this.name = name;
+        }
+
+        void add(final @NotNull Edge edge) {
+            total += edge.getDuration();
+            start = Math.min(start, edge.start);
+            end = Math.max(end, edge.end);
+            count++;
+
+            if (edge.isLink) {
+                link += edge.getDuration();
+            }
+            else {
+                longestCompile = Math.max(longestCompile, edge.getDuration());
+            }
+        }
+
+        long getSpan() {
+            return end - start;
+        }
+    }
+}
@@ -1,57 +1,132 @@
 package io.karma.gradlecm;
 
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.IgnoreEmptyDirectories;
 import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.OutputFiles;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
+ * Builds a configured CMake binary tree. If an install folder is set,
+ * the build is installed into it afterwards and the task becomes
+ * cacheable in the Gradle build cache, with the installed artifact set
+ * and the target artifacts as its relocatable outputs.
+ *
  * @author Marco 'freudi74' Freudenberger
  * @author Alexander 'KitsuneAlex' Hinze
  * @since 28/05/2019
  */
+@CacheableTask
 public class CMakeBuildTask extends AbstractCMakeTask {
     private static final int numHostThreads = Runtime.getRuntime().availableProcessors();
-    /**
-     * Find the optimal number of threads to use for the build;
-     * We usually aim for n-2 threads, where n is the number of logical host threads,
-     * but since some systems (especially VMs for CI/CDs etc.) might have 2 or less threads,
-     * we define the optimal number of threads as max(min(n, 2), n - 2), which gives us
-     * the results we are looking for.
-     * TODO: maybe make this configurable at some point..
-     */
-    private static final int numUsableThreads = Math.max(Math.min(numHostThreads, 2), numHostThreads - 2);
+    private static final int SUMMARY_LIMIT = 5;
+    private static final Pattern VERSION_PATTERN = Pattern.compile("(\\d+)\\.(\\d+)");
 
-    private final Property<String> executable;
     private final Property<String> buildConfig;
     private final Property<String> buildTarget;
     private final Property<Boolean> buildClean;
+    private final Property<Integer> parallelJobs;
+    private final Property<Integer> parallelPercent;
+    private final Property<Double> maxLoad;
+    private final Property<CMakeJobService> jobService;
+    private final Property<Boolean> compilerCacheStats;
+    private final DirectoryProperty installFolder;
+    private final Property<Boolean> timingReport;
+    private final ConfigurableFileCollection prefixPath;
+    private final Property<String> rootPath;
+    private final Property<String> gradleUserHomePath;
+    private String jobServerAuth; // set while the task runs if the job service acts as a jobserver
 
     public CMakeBuildTask() {
         super(); // Make sure our shared properties are initialized
 
-        final ObjectFactory factory = getProject().getObjects();
+        final ObjectFactory factory = getObjectFactory();
 
         setGroup("cmake");
         setDescription("Build a configured Build with CMake");
 
         // @formatter:off
-        executable  = factory.property(String.class);
-        buildConfig = factory.property(String.class);
-        buildTarget = factory.property(String.class);
-        buildClean  = factory.property(Boolean.class);
+        buildConfig        = factory.property(String.class);
+        buildTarget        = factory.property(String.class);
+        buildClean         = factory.property(Boolean.class);
+        parallelJobs       = factory.property(Integer.class);
+        parallelPercent    = factory.property(Integer.class);
+        maxLoad            = factory.property(Double.class);
+        jobService         = factory.property(CMakeJobService.class);
+        compilerCacheStats = factory.property(Boolean.class);
+        installFolder      = factory.directoryProperty();
+        timingReport       = factory.property(Boolean.class);
+        prefixPath         = factory.fileCollection();
+        rootPath           = factory.property(String.class);
+        gradleUserHomePath = factory.property(String.class);
         // @formatter:on
+
+        // Without an install folder the only outputs are loose files inside a binary tree,
+        // which would be pointless to restore without the rest of that tree
+        getOutputs().cacheIf("an install folder is set", task -> ((CMakeBuildTask) task).getInstallFolder().isPresent());
     }
 
     @Override
     protected void copyConfiguration(final @NotNull CMakePluginExtension ext) {
-        executable.set(ext.getExecutable());
         buildConfig.set(ext.getBuildConfig());
         buildTarget.set(ext.getBuildTarget());
         buildClean.set(ext.getBuildClean());
+        parallelJobs.set(ext.getParallelJobs());
+        parallelPercent.set(ext.getParallelPercent());
+        maxLoad.set(ext.getMaxLoad());
+        installFolder.set(ext.getBuildInstallFolder());
+        timingReport.set(ext.getBuildTimingReport());
+        rootPath.set(getProject().getRootDir().getAbsolutePath());
+        gradleUserHomePath.set(getProject().getGradle().getGradleUserHomeDir().getAbsolutePath());
+    }
+
+    /**
+     * Find the number of jobs to use for the build. An explicit job count always wins,
+     * otherwise a percentage of the logical host threads may be given. If neither is set,
+     * we aim for n-2 threads, where n is the number of logical host threads,
+     * but since some systems (especially VMs for CI/CDs etc.) might have 2 or less threads,
+     * we define the default number of threads as max(min(n, 2), n - 2).
+     */
+    @Internal
+    int getNumJobs() {
+        final int jobs = parallelJobs.getOrElse(0);
+
+        if (jobs > 0) {
+            return jobs;
+        }
+
+        final int percent = parallelPercent.getOrElse(0);
+
+        if (percent > 0) {
+            return Math.max(1, numHostThreads * percent / 100);
+        }
+
+        return Math.max(Math.min(numHostThreads, 2), numHostThreads - 2);
     }
 
     @Override
@@ -72,24 +147,119 @@ public class CMakeBuildTask extends AbstractCMakeTask {
         if (buildClean.getOrElse(false)) {
             params.add("--clean-first");
         }
+
+        // With a jobserver, make and ninja must not be given an explicit job count,
+        // otherwise they would create their own pool instead of joining the shared one
+        if (jobServerAuth == null && supportsParallel()) {
+            // Supported since CMake 3.12 and translated to the native flag of every generator
+            params.add("--parallel");
+            params.add(Integer.toString(getNumJobs()));
+        }
+    }
+
+    @Internal
+    @Override
+    protected @NotNull Map<String, String> getProcessEnv() {
+        final Map<String, String> env = super.getProcessEnv();
+
+        if (jobServerAuth != null) {
+            env.put("MAKEFLAGS", String.format("-j%d --jobserver-auth=%s", jobService.get().getMaxJobs(), jobServerAuth));
+        }
+
+        return env;
+    }
+
+    private boolean supportsParallel() {
+        final CMakeCapabilities capabilities = getCapabilities();
+        return capabilities == null || capabilities.isAtLeast(3, 12);
+    }
+
+    /**
+     * Whether the build tool of the configured tree joins a named pipe jobserver. Only GNU make 4.4
+     * and Ninja 1.13 or newer do; everything else would ignore it and, without a job count of its own,
+     * build with its default parallelism, so the leased {@code --parallel} level is used instead.
+     */
+    private boolean supportsJobServer(final @NotNull File folder) {
+        final CMakeFileApi.Reply reply = CMakeFileApi.readReply(folder);
+        final String gen = reply == null ? generator.getOrNull() : reply.getGenerator();
+        final String program = reply == null ? null : reply.getCacheEntries(true).get("CMAKE_MAKE_PROGRAM");
+        final int major;
+        final int minor;
+
+        if (gen != null && gen.startsWith("Ninja")) {
+            major = 1;
+            minor = 13;
+        }
+        else if ("Unix Makefiles".equals(gen) || "MinGW Makefiles".equals(gen) || "MSYS Makefiles".equals(gen)) {
+            major = 4;
+            minor = 4;
+        }
+        else {
+            getLogger().info("The generator {} does not support a jobserver, leasing jobs instead", gen == null ? "<default>" : gen);
+            return false;
+        }
+
+        if (program == null) {
+            getLogger().info("The build tool of {} is unknown until CMake configured the tree, leasing jobs instead", gen);
+            return false;
+        }
+
+        try {
+            final Matcher matcher = VERSION_PATTERN.matcher(Utils.capture(getProcessEnv(), program, "--version"));
+
+            if (matcher.find()) {
+                final int actualMajor = Integer.parseInt(matcher.group(1));
+                final int actualMinor = Integer.parseInt(matcher.group(2));
+
+                if (actualMajor > major || (actualMajor == major && actualMinor >= minor)) {
+                    return true;
+                }
+            }
+
+            getLogger().info("{} is older than {}.{} and does not support a named pipe jobserver, leasing jobs instead", program, major, minor);
+        }
+        catch (IOException | NumberFormatException error) {
+            getLogger().info("Could not determine the version of {}, leasing jobs instead: {}", program, error.toString());
+        }
+        catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+        }
+
+        return false;
+    }
+
+    private static boolean isMakeOrNinja(final @Nullable String gen) {
+        return gen != null && (gen.endsWith("Makefiles") || gen.startsWith("Ninja"));
     }
 
     @Override
     protected void gatherBuildParameters(final @NotNull ArrayList<String> params) {
         final String gen = generator.getOrNull();
 
-        if (gen != null) {
-            if (gen.equals("Unix Makefiles") || gen.equals("MinGW Makefiles")) {
+        // Older CMake versions cannot pass a job count on their own, but make and ninja both understand -j
+        if (jobServerAuth == null && !supportsParallel()) {
+            if (isMakeOrNinja(gen)) {
                 params.add("-j");
-                params.add(Integer.toString(numUsableThreads));
+                params.add(Integer.toString(getNumJobs()));
+            }
+            else {
+                getLogger().warn("CMake {} does not support --parallel, building with the default parallelism of {}",
+                    getCapabilities().getVersion(), gen == null ? "<default>" : gen);
             }
         }
-    }
 
-    @Input
-    @Optional
-    public @NotNull Property<String> getExecutable() {
-        return executable;
+        if (!maxLoad.isPresent() || maxLoad.get() <= 0.0) {
+            return;
+        }
+
+        // There is no generator-agnostic way to pass a load limit, but both make and ninja understand -l
+        if (isMakeOrNinja(gen)) {
+            params.add("-l");
+            params.add(maxLoad.get().toString());
+        }
+        else {
+            getLogger().warn("The generator {} does not support a load limit, ignoring maxLoad", gen == null ? "<default>" : gen);
+        }
     }
 
     @Input
@@ -109,4 +279,326 @@ public class CMakeBuildTask extends AbstractCMakeTask {
     public @NotNull Property<Boolean> getBuildClean() {
         return buildClean;
     }
+
+    /**
+     * The sources are fingerprinted relative to the source folder, so the
+     * build cache key does not depend on where the project is checked out.
+     */
+    @InputDirectory
+    @PathSensitive(PathSensitivity.RELATIVE)
+    @IgnoreEmptyDirectories
+    @Override
+    public @NotNull DirectoryProperty getSourceFolder() {
+        return sourceFolder;
+    }
+
+    /**
+     * A hash of the user-visible cache entries of the configured tree, so a changed
+     * configuration invalidates the build. Paths into the source and working folder, the root
+     * project and the Gradle user home (toolchain files, component prefixes, cached dependency
+     * sources, the compiler launcher, ...) are normalized, so the hash is the same wherever
+     * the project is checked out and on every machine.
+     */
+    @Input
+    public @NotNull String getConfigurationHash() {
+        final File folder = workingFolder.getAsFile().get();
+        final CMakeFileApi.Reply reply = CMakeFileApi.readReply(folder);
+
+        if (reply == null) {
+            return "";
+        }
+
+        final LinkedHashMap<String, String> placeholders = new LinkedHashMap<>();
+        placeholders.put(folder.getAbsolutePath(), "${BUILD}");
+        placeholders.put(sourceFolder.getAsFile().get().getAbsolutePath(), "${SOURCE}");
+
+        if (gradleUserHomePath.isPresent()) {
+            placeholders.put(gradleUserHomePath.get(), "${GRADLE_USER_HOME}");
+        }
+
+        if (rootPath.isPresent()) {
+            placeholders.put(rootPath.get(), "${ROOT}");
+        }
+
+        // CMake writes paths with forward slashes on Windows as well
+        for (final Entry<String, String> entry : new ArrayList<>(placeholders.entrySet())) {
+            placeholders.putIfAbsent(entry.getKey().replace('\\', '/'), entry.getValue());
+        }
+
+        // The most specific path goes first, the working and source folder are usually inside the root project
+        final ArrayList<Entry<String, String>> replacements = new ArrayList<>(placeholders.entrySet());
+        replacements.sort((a, b) -> Integer.compare(b.getKey().length(), a.getKey().length()));
+        final StringBuilder sb = new StringBuilder();
+
+        for (final Entry<String, String> entry : reply.getCacheEntries(false).entrySet()) {
+            String value = entry.getValue();
+
+            for (final Entry<String, String> replacement : replacements) {
+                value = value.replace(replacement.getKey(), replacement.getValue());
+            }
+
+            sb.append(entry.getKey()).append('=').append(value).append('\n');
+        }
+
+        return Utils.hash(sb.toString());
+    }
+
+    /**
+     * The absolute path of the root project, replaced by a placeholder in {@link #getConfigurationHash()}.
+     */
+    @Internal
+    public @NotNull Property<String> getRootPath() {
+        return rootPath;
+    }
+
+    /**
+     * The absolute path of the Gradle user home, replaced by a placeholder in {@link #getConfigurationHash()}.
+     */
+    @Internal
+    public @NotNull Property<String> getGradleUserHomePath() {
+        return gradleUserHomePath;
+    }
+
+    /**
+     * The folder to install the build into, as with {@code cmake --install . --prefix <folder>}.
+     * Setting it makes the task cacheable in the Gradle build cache.
+     */
+    @OutputDirectory
+    @Optional
+    public @NotNull DirectoryProperty getInstallFolder() {
+        return installFolder;
+    }
+
+    /**
+     * The install prefixes the configuration found packages in. Targets link against
+     * the libraries in there, so a rebuilt component has to rebuild its consumers.
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public @NotNull ConfigurableFileCollection getPrefixPath() {
+        return prefixPath;
+    }
+
+    /**
+     * Whether to analyze which translation units, targets and headers took how long after
+     * the build, and to write a report and a Chrome trace into the reports folder.
+     * Requires a Ninja generator.
+     */
+    @Internal
+    public @NotNull Property<Boolean> getTimingReport() {
+        return timingReport;
+    }
+
+    /**
+     * The artifacts produced by building the selected target and everything it depends on,
+     * as reported by the CMake File API codemodel of the last configure run.
+     */
+    @OutputFiles
+    public @NotNull Map<String, File> getArtifacts() {
+        final File folder = workingFolder.getAsFile().get();
+        final CMakeFileApi.Reply reply = CMakeFileApi.readReply(folder);
+
+        if (reply == null) {
+            return Collections.emptyMap();
+        }
+
+        return Utils.toRelativeFileMap(folder, reply.getArtifacts(buildConfig.getOrNull(), buildTarget.getOrNull()));
+    }
+
+    /**
+     * The build-wide job budget this build draws its jobs from. If absent, the build
+     * runs with its own job count regardless of other builds running at the same time.
+     */
+    @Internal
+    public @NotNull Property<CMakeJobService> getJobService() {
+        return jobService;
+    }
+
+    @Override
+    public void performAction() {
+        final File folder = workingFolder.getAsFile().get();
+        final CMakeJobService service = jobService.getOrNull();
+        final String auth = service == null ? null : service.getJobServerAuth();
+        jobServerAuth = auth != null && supportsJobServer(folder) ? auth : null;
+
+        final String launcher = compilerLauncher.getOrNull();
+        final boolean showStats = launcher != null && compilerCacheStats.getOrElse(true);
+        final CompilerCache.Stats before = showStats ? CompilerCache.readStats(launcher, getProcessEnv()) : null;
+        final BuildTimings.LogPosition ninjaLogPosition = BuildTimings.LogPosition.of(folder);
+
+        try {
+            super.performAction();
+        }
+        finally {
+            jobServerAuth = null;
+        }
+
+        if (timingReport.getOrElse(false)) {
+            reportTimings(folder, ninjaLogPosition);
+        }
+
+        if (installFolder.isPresent()) {
+            install(installFolder.getAsFile().get());
+        }
+
+        if (before != null) {
+            final CompilerCache.Stats after = CompilerCache.readStats(launcher, getProcessEnv());
+
+            // The counters are global to the cache, so builds running at the same time blur these numbers
+            if (after != null) {
+                getLogger().lifecycle("Compiler cache ({}): {}", new File(launcher).getName(), after.since(before));
+            }
+        }
+    }
+
+    private void reportTimings(final @NotNull File folder, final @NotNull BuildTimings.LogPosition ninjaLogPosition) {
+        final CMakeFileApi.Reply reply = CMakeFileApi.readReply(folder);
+        final String gen = reply == null ? generator.getOrNull() : reply.getGenerator();
+
+        // Make does not record when it ran which rule, so we need Ninja's log
+        if (gen == null || !gen.startsWith("Ninja")) {
+            getLogger().warn("Timing reports require a Ninja generator, but {} is used", gen == null ? "<default>" : gen);
+            return;
+        }
+
+        try {
+            final BuildTimings timings = BuildTimings.read(folder, ninjaLogPosition);
+
+            if (timings == null) {
+                getLogger().lifecycle("Nothing was built, no timing report written");
+                return;
+            }
+
+            if (timings.isWholeLog()) {
+                getLogger().warn("Ninja recompacted its log during the build, the timing report includes edges of earlier builds");
+            }
+
+            timings.analyze(reply, buildConfig.getOrNull());
+            final String ninja = reply == null ? null : reply.getCacheEntries(true).get("CMAKE_MAKE_PROGRAM");
+
+            if (ninja != null) {
+                try {
+                    timings.analyzeHeaders(ninja, folder);
+                }
+                catch (IOException error) {
+                    getLogger().info("Could not read the Ninja dependency log: {}", error.toString());
+                }
+            }
+
+            final File reports = reportsFolder.getAsFile().get();
+            final File report = new File(reports, "timing.txt");
+            final File trace = new File(reports, "trace.json");
+            timings.writeReport(report);
+            timings.writeTrace(trace);
+            logTimings(timings);
+            getLogger().lifecycle("Timing report written to {}, trace to {}", report, trace);
+        }
+        catch (IOException error) {
+            getLogger().warn("Could not write timing report: {}", error.toString());
+        }
+        catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void logTimings(final @NotNull BuildTimings timings) {
+        getLogger().lifecycle("Build took {}, estimated critical path {}", BuildTimings.formatMillis(timings.getWallMillis()),
+            BuildTimings.formatMillis(timings.getCriticalPathMillis()));
+        getLogger().lifecycle("  Critical path: {}", timings.getCriticalPath().stream().map(target -> target.name).collect(Collectors.joining(" -> ")));
+        getLogger().lifecycle("  Slowest targets:");
+
+        for (final BuildTimings.TargetTiming target : timings.getSlowestTargets(SUMMARY_LIMIT)) {
+            getLogger().lifecycle("    {} {}", String.format("%10s", BuildTimings.formatMillis(target.total)), target.name);
+        }
+
+        getLogger().lifecycle("  Slowest edges:");
+
+        for (final BuildTimings.Edge edge : timings.getSlowestEdges(SUMMARY_LIMIT)) {
+            getLogger().lifecycle("    {} {}", String.format("%10s", BuildTimings.formatMillis(edge.getDuration())), edge.output);
+        }
+
+        final List<Entry<String, long[]>> headers = timings.getCostliestHeaders(SUMMARY_LIMIT);
+
+        if (!headers.isEmpty()) {
+            getLogger().lifecycle("  Costliest headers:");
+
+            for (final Entry<String, long[]> header : headers) {
+                getLogger().lifecycle("    {} {} ({} TUs)", String.format("%10s", BuildTimings.formatMillis(header.getValue()[0])), header.getKey(),
+                    header.getValue()[1]);
+            }
+        }
+    }
+
+    private void install(final @NotNull File folder) {
+        final CMakeCapabilities capabilities = getCapabilities();
+
+        if (capabilities != null && !capabilities.isAtLeast(3, 15)) {
+            throw new GradleException(String.format("Installing the build requires CMake 3.15 or newer, but %s is used", capabilities.getVersion()));
+        }
+
+        // The folder is cleared first, so its content is exactly the installed artifact set
+        try {
+            Utils.deleteDirectory(folder);
+        }
+        catch (IOException error) {
+            throw new GradleException("Could not clear install folder " + folder, error);
+        }
+
+        final ArrayList<String> cmdLine = newCmdLine();
+        cmdLine.add("--install");
+        cmdLine.add(".");
+        cmdLine.add("--prefix");
+        cmdLine.add(folder.getAbsolutePath());
+
+        if (buildConfig.isPresent()) {
+            cmdLine.add("--config");
+            cmdLine.add(buildConfig.get());
+        }
+
+        exec(cmdLine);
+    }
+
+    /**
+     * Whether to print the hit and miss statistics of the compiler cache after the build. Enabled by default.
+     */
+    @Internal
+    public @NotNull Property<Boolean> getCompilerCacheStats() {
+        return compilerCacheStats;
+    }
+
+    @Override
+    protected void configureExec(final @NotNull CMakeExecAction.Params params, final @NotNull List<String> cmdLine) {
+        final int parallelIndex = cmdLine.indexOf("--parallel");
+
+        // The requested job count is replaced with the share actually leased once the work runs
+        if (jobServerAuth == null && jobService.isPresent() && parallelIndex >= 0) {
+            params.getJobService().set(jobService);
+            params.getJobsArgumentIndex().set(parallelIndex + 1);
+        }
+    }
+
+    /**
+     * The exact number of parallel jobs to build with. Takes precedence over {@link #getParallelPercent()}.
+     */
+    @Internal
+    public @NotNull Property<Integer> getParallelJobs() {
+        return parallelJobs;
+    }
+
+    /**
+     * The number of parallel jobs as a percentage of the logical host threads, e.g. 75.
+     */
+    @Internal
+    public @NotNull Property<Integer> getParallelPercent() {
+        return parallelPercent;
+    }
+
+    /**
+     * Don't start new jobs while the system load average is above this value.
+     * Only supported by the Makefile and Ninja generators.
+     */
+    @Internal
+    public @NotNull Property<Double> getMaxLoad() {
+        return maxLoad;
+    }
 }
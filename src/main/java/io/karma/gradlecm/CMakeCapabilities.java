@@ -0,0 +1,94 @@
+package io.karma.gradlecm;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The capabilities of a CMake installation, as reported by {@code cmake -E capabilities} (CMake 3.7 or newer).
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+final class CMakeCapabilities {
+    private final String version;
+    private final int major;
+    private final int minor;
+    private final List<Generator> generators;
+    private final boolean hasFileApi;
+
+    CMakeCapabilities(final @NotNull Map<String, Object> json) {
+        final Map<String, Object> versionJson = CMakeFileApi.asMap(json.get("version"));
+        final String version = CMakeFileApi.asString(versionJson.get("string"));
+
+        this.version = version == null ? "unknown" : version;
+        major = asInt(versionJson.get("major"));
+        minor = asInt(versionJson.get("minor"));
+        hasFileApi = json.containsKey("fileApi");
+
+        final ArrayList<Generator> generators = new ArrayList<>();
+
+        for (final Object generator : CMakeFileApi.asList(json.get("generators"))) {
+            final Map<String, Object> map = CMakeFileApi.asMap(generator);
+            final String name = CMakeFileApi.asString(map.get("name"));
+
+            if (name == null) {
+                continue;
+            }
+
+            final ArrayList<String> extraGenerators = new ArrayList<>();
+
+            for (final Object extraGenerator : CMakeFileApi.asList(map.get("extraGenerators"))) {
+                if (extraGenerator instanceof String) {
+                    extraGenerators.add((String) extraGenerator);
+                }
+            }
+
+            generators.add(new Generator(name, Boolean.TRUE.equals(map.get("platformSupport")), Boolean.TRUE.equals(map.get("toolsetSupport")),
+                extraGenerators));
+        }
+
+        this.generators = Collections.unmodifiableList(generators);
+    }
+
+    private static int asInt(final @Nullable Object value) {
+        return value instanceof Number ? ((Number) value).intValue() : 0;
+    }
+
+    @NotNull String getVersion() {
+        return version;
+    }
+
+    boolean isAtLeast(final int major, final int minor) {
+        return this.major > major || (this.major == major && this.minor >= minor);
+    }
+
+    @NotNull List<Generator> getGenerators() {
+        return generators;
+    }
+
+    /**
+     * @return whether this installation supports the File API (CMake 3.14 or newer).
+     */
+    boolean hasFileApi() {
+        return hasFileApi;
+    }
+
+    static final class Generator {
+        final String name;
+        final boolean platformSupport; // whether -A is supported
+        final boolean toolsetSupport; // whether -T is supported
+        final List<String> extraGenerators;
+
+        Generator(final @NotNull String name, final boolean platformSupport, final boolean toolsetSupport, final @NotNull List<String> extraGenerators) {
+            this.name = name;
+            this.platformSupport = platformSupport;
+            this.toolsetSupport = toolsetSupport;
+            this.extraGenerators = Collections.unmodifiableList(extraGenerators);
+        }
+    }
+}
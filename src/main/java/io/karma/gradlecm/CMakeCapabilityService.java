@@ -0,0 +1,112 @@
+package io.karma.gradlecm;
+
+import groovy.json.JsonSlurper;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Optional;
+
+/**
+ * Probes CMake installations with {@code cmake -E capabilities} and caches the
+ * result on disk, keyed by the path, size and modification time of the executable.
+ * Warm builds therefore learn the version and generators of CMake without starting
+ * a single process, and every installation is probed at most once per build.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+public abstract class CMakeCapabilityService implements BuildService<CMakeCapabilityService.Params> {
+    static final String NAME = "cmakeCapabilities";
+
+    private static final Logger LOGGER = Logging.getLogger(CMakeCapabilityService.class);
+
+    private final HashMap<String, Optional<CMakeCapabilities>> capabilities = new HashMap<>();
+
+    /**
+     * @param executable the CMake executable, as configured for a task.
+     * @return the capabilities, or null if they could not be determined (e.g. with CMake older than 3.7).
+     */
+    synchronized @Nullable CMakeCapabilities get(final @NotNull String executable) {
+        final File file = Utils.findExecutable(executable);
+
+        if (file == null) {
+            return null;
+        }
+
+        final String key = String.format("%s:%d:%d", file.getAbsolutePath(), file.length(), file.lastModified());
+        return capabilities.computeIfAbsent(key, k -> Optional.ofNullable(load(file, Utils.hash(k)))).orElse(null);
+    }
+
+    private @Nullable CMakeCapabilities load(final @NotNull File executable, final @NotNull String hash) {
+        final File cacheFile = new File(getParameters().getCacheFolder().getAsFile().get(), hash + ".json");
+
+        try {
+            if (cacheFile.isFile()) {
+                return parse(new String(Files.readAllBytes(cacheFile.toPath()), StandardCharsets.UTF_8));
+            }
+        }
+        catch (IOException | RuntimeException error) {
+            LOGGER.debug("Ignoring unreadable capability cache {}", cacheFile, error);
+        }
+
+        final String json;
+
+        try {
+            json = Utils.capture(Collections.emptyMap(), executable.getAbsolutePath(), "-E", "capabilities");
+        }
+        catch (IOException error) {
+            LOGGER.info("Could not probe the capabilities of {}: {}", executable, error.toString());
+            return null;
+        }
+        catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+
+        final CMakeCapabilities result;
+
+        try {
+            result = parse(json);
+        }
+        catch (RuntimeException error) {
+            LOGGER.info("Could not parse the capabilities of {}: {}", executable, error.toString());
+            return null;
+        }
+
+        try {
+            // Written through a temporary file, so concurrent builds never read half a file
+            Files.createDirectories(cacheFile.getParentFile().toPath());
+            final File tempFile = File.createTempFile(hash, ".tmp", cacheFile.getParentFile());
+            Files.write(tempFile.toPath(), json.getBytes(StandardCharsets.UTF_8));
+            Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException error) {
+            LOGGER.debug("Could not cache the capabilities of {}", executable, error);
+        }
+
+        return result;
+    }
+
+    private static @NotNull CMakeCapabilities parse(final @NotNull String json) {
+        return new CMakeCapabilities(CMakeFileApi.asMap(new JsonSlurper().parseText(json)));
+    }
+
+    public interface Params extends BuildServiceParameters {
+        /**
+         * The folder the probed capabilities are cached in.
+         */
+        DirectoryProperty getCacheFolder();
+    }
+}
@@ -0,0 +1,122 @@
+package io.karma.gradlecm;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Destroys;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+import org.jetbrains.annotations.NotNull;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Deletes a CMake binary tree, or in stale mode only the outputs
+ * the current build graph does not produce anymore.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+public class CMakeCleanTask extends DefaultTask {
+    private final DirectoryProperty workingFolder;
+    private final Property<Boolean> stale;
+
+    public CMakeCleanTask() {
+        setGroup("cmake");
+        setDescription("Clean CMake configuration");
+
+        final ObjectFactory factory = getObjectFactory();
+
+        // @formatter:off
+        workingFolder = factory.directoryProperty();
+        stale         = factory.property(Boolean.class);
+        // @formatter:on
+    }
+
+    @Inject
+    protected @NotNull ObjectFactory getObjectFactory() {
+        throw new UnsupportedOperationException(); // Injected by Gradle
+    }
+
+    @Destroys
+    public @NotNull DirectoryProperty getWorkingFolder() {
+        return workingFolder;
+    }
+
+    /**
+     * Whether to only remove the outputs of targets which no longer exist, instead of the whole tree.
+     * The tree must have been configured with the current project, so this should run after cmakeConfigure.
+     */
+    @Internal
+    @Option(option = "stale", description = "Only removes outputs which are no longer produced by the build.")
+    public @NotNull Property<Boolean> getStale() {
+        return stale;
+    }
+
+    @TaskAction
+    public void performAction() {
+        final File folder = workingFolder.getAsFile().get().getAbsoluteFile();
+
+        if (!folder.exists()) {
+            return;
+        }
+
+        if (stale.getOrElse(false)) {
+            cleanStale(folder);
+            return;
+        }
+
+        getLogger().info("Deleting folder {}", folder);
+
+        try {
+            Utils.deleteDirectory(folder);
+        }
+        catch (IOException error) {
+            throw new GradleException("Could not delete working folder " + folder, error);
+        }
+    }
+
+    private void cleanStale(final @NotNull File folder) {
+        final CMakeFileApi.Reply reply = CMakeFileApi.readReply(folder);
+
+        if (reply == null) {
+            getLogger().warn("{} has no CMake File API reply, run cmakeConfigure first. Nothing was removed.", folder);
+            return;
+        }
+
+        final String generator = reply.getGenerator();
+
+        // Ninja knows every file it ever produced from its log, which also covers artifacts and custom commands
+        if (generator != null && generator.startsWith("Ninja")) {
+            final String ninja = reply.getCacheEntries(true).getOrDefault("CMAKE_MAKE_PROGRAM", "ninja");
+            new CMakeExecutor(getLogger(), getName()).exec(Arrays.asList(ninja, "-t", "cleandead"), folder);
+            return;
+        }
+
+        final List<File> staleFolders = reply.getStaleObjectFolders();
+        final ArrayList<Path> paths = new ArrayList<>();
+
+        for (final File staleFolder : staleFolders) {
+            getLogger().info("Deleting stale object folder {}", staleFolder);
+            paths.add(staleFolder.toPath());
+        }
+
+        try {
+            ParallelDelete.delete(paths);
+        }
+        catch (IOException error) {
+            throw new GradleException("Could not delete stale object folders in " + folder, error);
+        }
+
+        getLogger().lifecycle("Removed {} stale object folders", staleFolders.size());
+    }
+}
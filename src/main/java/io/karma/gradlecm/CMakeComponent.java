@@ -0,0 +1,34 @@
+package io.karma.gradlecm;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A single entry of the {@code components} container: a CMake project of its own,
+ * like a common native dependency, which is configured, built and installed once by
+ * the project declaring it. Other projects put its install prefix on their
+ * {@code CMAKE_PREFIX_PATH} with {@link CMakePluginExtension#useComponent(String, String)},
+ * so their {@code find_package} calls pick it up.
+ * <p>
+ * Like a variant, everything left unset is taken from the main {@code cmake} configuration
+ * of the declaring project, while {@code defs} and {@code env} are merged on top of it.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+public class CMakeComponent extends CMakeVariant {
+    private final DirectoryProperty sourceFolder;
+
+    public CMakeComponent(final @NotNull String name, final @NotNull ObjectFactory factory) {
+        super(name, factory);
+        sourceFolder = factory.directoryProperty();
+    }
+
+    /**
+     * The folder containing the CMakeLists.txt of the component.
+     */
+    public @NotNull DirectoryProperty getSourceFolder() {
+        return sourceFolder;
+    }
+}
@@ -1,15 +1,37 @@
 package io.karma.gradlecm;
 
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.provider.MapProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFiles;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.options.Option;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * This task delegates functionality to configure the current
@@ -21,6 +43,9 @@ import java.util.Set;
  * @since 28/05/2019
  */
 public class CMakeConfigureTask extends AbstractCMakeTask {
+    private static final int SUMMARY_LIMIT = 5;
+    private static final String FULLY_DISCONNECTED = "FETCHCONTENT_FULLY_DISCONNECTED";
+
     private final Property<String> configurationTypes;
     private final Property<String> installPrefix;
     private final Property<String> platform; // for example "x64" or "Win32" or "ARM" or "ARM64", supported on vs > 8.0
@@ -28,11 +53,22 @@ public class CMakeConfigureTask extends AbstractCMakeTask {
     private final Property<Boolean> buildSharedLibs;
     private final Property<Boolean> buildStaticLibs;
     private final MapProperty<String, String> defs;
+    private final Property<Boolean> reuseConfiguration;
+    private final Property<Boolean> profile;
+    private final Property<Integer> compileJobPool;
+    private final Property<Integer> linkJobPool;
+    private final DirectoryProperty dependencyCacheFolder;
+    private final Property<Boolean> dependencyCacheDisconnected;
+    private final MapProperty<String, File> dependencySeeds;
+    private final ConfigurableFileCollection prefixPath;
+    private final DirectoryProperty probeCacheFolder;
+    private Map<String, String> dependencyDefinitions = Collections.emptyMap(); // resolved from the cache while the task runs
+    private List<String> dependencyResets = Collections.emptyList(); // stale entries of an earlier run, not part of the fingerprint
 
     public CMakeConfigureTask() {
         super(); // Make sure our shared properties are initialized
 
-        final ObjectFactory factory = getProject().getObjects();
+        final ObjectFactory factory = getObjectFactory();
 
         setGroup("cmake");
         setDescription("Configure a Build with CMake");
@@ -45,6 +81,15 @@ public class CMakeConfigureTask extends AbstractCMakeTask {
         buildSharedLibs     = factory.property(Boolean.class);
         buildStaticLibs     = factory.property(Boolean.class);
         defs                = factory.mapProperty(String.class, String.class);
+        reuseConfiguration  = factory.property(Boolean.class);
+        profile             = factory.property(Boolean.class);
+        compileJobPool      = factory.property(Integer.class);
+        linkJobPool         = factory.property(Integer.class);
+        dependencyCacheFolder       = factory.directoryProperty();
+        dependencyCacheDisconnected = factory.property(Boolean.class);
+        dependencySeeds             = factory.mapProperty(String.class, File.class);
+        prefixPath                  = factory.fileCollection();
+        probeCacheFolder            = factory.directoryProperty();
         // @formatter:on
     }
 
@@ -82,15 +127,74 @@ public class CMakeConfigureTask extends AbstractCMakeTask {
             params.add("-DBUILD_STATIC_LIBS=" + (buildStaticLibs.get() ? "ON" : "OFF"));
         }
 
+        if (compilerLauncher.isPresent()) {
+            final LinkedHashMap<String, String> launcherDefs = new LinkedHashMap<>();
+            CompilerCache.gatherDefinitions(compilerLauncher.get(), launcherDefs);
+
+            for (final Entry<String, String> entry : launcherDefs.entrySet()) {
+                params.add(String.format("-D%s=%s", entry.getKey(), entry.getValue()));
+            }
+        }
+
+        // Job pools are only honored by the Ninja generators, the others simply ignore these
+        if (compileJobPool.isPresent() || linkJobPool.isPresent()) {
+            final ArrayList<String> pools = new ArrayList<>();
+
+            if (compileJobPool.isPresent()) {
+                pools.add("compile=" + compileJobPool.get());
+                params.add("-DCMAKE_JOB_POOL_COMPILE=compile");
+            }
+
+            if (linkJobPool.isPresent()) {
+                pools.add("link=" + linkJobPool.get());
+                params.add("-DCMAKE_JOB_POOL_LINK=link");
+            }
+
+            params.add("-DCMAKE_JOB_POOLS=" + String.join(";", pools));
+            getLogger().info("Using Ninja job pools {}", String.join(", ", pools));
+        }
+
+        for (final Entry<String, String> entry : dependencyDefinitions.entrySet()) {
+            params.add(String.format("-D%s=%s", entry.getKey(), entry.getValue()));
+        }
+
+        gatherDefinitions(params);
+        params.add(sourceFolder.getAsFile().get().getAbsolutePath());
+    }
+
+    /**
+     * Adds the cache entries from {@code defs} and the prefix path, which are the only parameters
+     * that may be applied to an existing configuration without reconfiguring from scratch.
+     */
+    protected void gatherDefinitions(final @NotNull ArrayList<String> params) {
+        final Set<File> prefixes = prefixPath.getFiles();
+
         if (defs.isPresent()) {
             final Set<Entry<String, String>> defEntries = defs.get().entrySet();
 
             for (final Entry<String, String> entry : defEntries) {
+                if (!prefixes.isEmpty() && entry.getKey().equals("CMAKE_PREFIX_PATH")) {
+                    continue; // Merged with the shared prefixes below
+                }
                 params.add(String.format("-D%s=%s", entry.getKey(), entry.getValue()));
             }
         }
 
-        params.add(sourceFolder.getAsFile().get().getAbsolutePath());
+        if (!prefixes.isEmpty()) {
+            final ArrayList<String> paths = new ArrayList<>();
+
+            for (final File prefix : prefixes) {
+                paths.add(prefix.getAbsolutePath().replace(File.separatorChar, '/'));
+            }
+
+            final String userPrefixPath = defs.getOrElse(Collections.emptyMap()).get("CMAKE_PREFIX_PATH");
+
+            if (userPrefixPath != null && !userPrefixPath.isEmpty()) {
+                paths.add(userPrefixPath);
+            }
+
+            params.add("-DCMAKE_PREFIX_PATH=" + String.join(";", paths));
+        }
     }
 
     @Override
@@ -105,6 +209,7 @@ public class CMakeConfigureTask extends AbstractCMakeTask {
         buildSharedLibs.set(ext.getBuildSharedLibs());
         buildStaticLibs.set(ext.getBuildStaticLibs());
         defs.set(ext.getDefs());
+        reuseConfiguration.set(ext.getReuseConfiguration());
     }
 
     @Input
@@ -148,4 +253,557 @@ public class CMakeConfigureTask extends AbstractCMakeTask {
     public @NotNull MapProperty<String, String> getDefs() {
         return defs;
     }
+
+    /**
+     * Whether to skip running CMake if the resolved command line, environment, CMake installation
+     * and configure inputs are identical to the last successful run and CMakeCache.txt was not
+     * modified since. If only {@code defs} changed, the existing configuration is refreshed
+     * in place instead of configuring from scratch. Enabled by default.
+     */
+    @Internal
+    public @NotNull Property<Boolean> getReuseConfiguration() {
+        return reuseConfiguration;
+    }
+
+    /**
+     * The size of the Ninja job pool all compile jobs run in, if any.
+     */
+    @Input
+    @Optional
+    public @NotNull Property<Integer> getCompileJobPool() {
+        return compileJobPool;
+    }
+
+    /**
+     * The size of the Ninja job pool all link jobs run in, if any.
+     */
+    @Input
+    @Optional
+    public @NotNull Property<Integer> getLinkJobPool() {
+        return linkJobPool;
+    }
+
+    /**
+     * The folder the sources of FetchContent dependencies are shared in, if the dependency cache is enabled.
+     */
+    @Internal
+    public @NotNull DirectoryProperty getDependencyCacheFolder() {
+        return dependencyCacheFolder;
+    }
+
+    @Input
+    @Optional
+    public @NotNull Property<Boolean> getDependencyCacheDisconnected() {
+        return dependencyCacheDisconnected;
+    }
+
+    /**
+     * The folder toolchain probes are cached in, if the probe cache is enabled.
+     */
+    @Internal
+    public @NotNull DirectoryProperty getProbeCacheFolder() {
+        return probeCacheFolder;
+    }
+
+    /**
+     * Archives to take the sources of dependencies from instead of downloading them, by dependency name.
+     */
+    @Input
+    @Optional
+    public @NotNull MapProperty<String, File> getDependencySeeds() {
+        return dependencySeeds;
+    }
+
+    /**
+     * The install prefixes of shared components and other packages to search with {@code find_package},
+     * passed as {@code CMAKE_PREFIX_PATH} in front of the one from {@code defs}. Their contents are inputs,
+     * so a rebuilt component reconfigures its consumers.
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.ABSOLUTE)
+    public @NotNull ConfigurableFileCollection getPrefixPath() {
+        return prefixPath;
+    }
+
+    /**
+     * Whether to run CMake with its profiler (CMake 3.18 or newer) and report where configure
+     * time goes. Forces CMake to run, even if the configuration could be reused.
+     */
+    @Input
+    @Optional
+    @Option(option = "cmake-profile", description = "Profiles the CMake configure step and reports its slowest commands, calls and files.")
+    public @NotNull Property<Boolean> getProfile() {
+        return profile;
+    }
+
+    @Input
+    @Optional
+    @Override
+    public @NotNull Property<String> getCompilerLauncher() {
+        return compilerLauncher;
+    }
+
+    /**
+     * The source folder is only passed to CMake; configuring does not depend on
+     * the C/C++ sources in it, see {@link #getConfigureInputs()} for the files it does depend on.
+     */
+    @Internal
+    @Override
+    public @NotNull DirectoryProperty getSourceFolder() {
+        return sourceFolder;
+    }
+
+    /**
+     * The files CMake reads while configuring. Once CMake answered our File API query,
+     * this is its own list of regeneration dependencies (CMakeLists.txt files, included modules,
+     * configure_file inputs, toolchain files, ...) without CMake's own modules. Before that,
+     * all CMakeLists.txt, *.cmake and *.in files in the source folder are used.
+     * Either way, editing a C/C++ source never triggers a reconfigure.
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public @NotNull Set<File> getConfigureInputs() {
+        final CMakeFileApi.Reply reply = CMakeFileApi.readReply(workingFolder.getAsFile().get());
+
+        if (reply == null) {
+            return findConfigureInputs(sourceFolder.getAsFile().get());
+        }
+
+        final TreeSet<File> files = new TreeSet<>();
+
+        for (final CMakeFileApi.Input input : reply.getInputs()) {
+            if (!input.isCMake && !input.isGenerated) {
+                files.add(input.file);
+            }
+        }
+
+        return files;
+    }
+
+    private static @NotNull Set<File> findConfigureInputs(final @NotNull File folder) {
+        if (!folder.isDirectory()) {
+            return Collections.emptySet();
+        }
+
+        try (final Stream<Path> paths = Files.walk(folder.toPath())) {
+            return paths.filter(path -> {
+                final String name = path.getFileName().toString();
+                return name.equals("CMakeLists.txt") || name.endsWith(".cmake") || name.endsWith(".in");
+            }).map(Path::toFile).collect(Collectors.toCollection(TreeSet::new));
+        }
+        catch (IOException error) {
+            throw new GradleException("Could not list configure inputs in " + folder, error);
+        }
+    }
+
+    /**
+     * The build system files in the top of the working folder: CMakeCache.txt, cmake_install.cmake
+     * and the main file of the generator (build.ninja or Makefile). They are derived from the
+     * configured generator rather than the File API reply, so the first run declares the same
+     * outputs as every later one and a second configure is up-to-date.
+     */
+    @OutputFiles
+    public @NotNull Map<String, File> getGeneratedFiles() {
+        final File folder = workingFolder.getAsFile().get();
+        final LinkedHashMap<String, File> files = new LinkedHashMap<>();
+        files.put("CMakeCache.txt", new File(folder, "CMakeCache.txt"));
+        files.put("cmake_install.cmake", new File(folder, "cmake_install.cmake"));
+
+        final String mainFile = getMainBuildFile();
+
+        if (mainFile != null) {
+            files.put(mainFile, new File(folder, mainFile));
+        }
+
+        return files;
+    }
+
+    /**
+     * The build system files of the last configure run, as reported by the CMake File API,
+     * which no longer exist. Those of subdirectories are only known once CMake answered our
+     * query, so they are tracked here instead of as outputs; deleting any of them reruns cmake.
+     */
+    @Input
+    public @NotNull List<String> getMissingGeneratedFiles() {
+        final File folder = workingFolder.getAsFile().get();
+        final CMakeFileApi.Reply reply = CMakeFileApi.readReply(folder);
+
+        if (reply == null) {
+            return Collections.emptyList();
+        }
+
+        final ArrayList<String> missing = new ArrayList<>();
+
+        for (final Entry<String, File> entry : Utils.toRelativeFileMap(folder, reply.getBuildSystemFiles()).entrySet()) {
+            if (!entry.getValue().exists()) {
+                missing.add(entry.getKey());
+            }
+        }
+
+        return missing;
+    }
+
+    /**
+     * @return the name of the file the generator writes to the top of the working folder for the
+     * build tool to read, or null if it is named after the project (Visual Studio and Xcode).
+     */
+    private @Nullable String getMainBuildFile() {
+        String generator = this.generator.getOrNull();
+
+        if (generator == null || generator.isEmpty()) {
+            generator = env.getOrElse(Collections.emptyMap()).getOrDefault("CMAKE_GENERATOR", System.getenv("CMAKE_GENERATOR"));
+        }
+
+        // Without a generator, CMake picks Visual Studio on Windows and Unix Makefiles everywhere else
+        if (generator == null || generator.isEmpty()) {
+            return File.separatorChar == '\\' ? null : "Makefile";
+        }
+
+        if (generator.startsWith("Ninja")) {
+            return "build.ninja";
+        }
+
+        return generator.contains("Makefiles") ? "Makefile" : null;
+    }
+
+    private boolean hasGeneratedFiles() {
+        for (final File file : getGeneratedFiles().values()) {
+            if (!file.exists()) {
+                getLogger().info("{} is missing, running cmake again", file);
+                return false;
+            }
+        }
+
+        final List<String> missing = getMissingGeneratedFiles();
+
+        if (!missing.isEmpty()) {
+            getLogger().info("{} is missing, running cmake again", missing.get(0));
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public void performAction() {
+        final File folder = workingFolder.getAsFile().get();
+
+        try {
+            CMakeFileApi.writeQuery(folder);
+        }
+        catch (IOException error) {
+            throw new GradleException("Could not write CMake File API query", error);
+        }
+
+        final CMakeCapabilities capabilities = getCapabilities();
+        checkCapabilities(capabilities);
+
+        final String declarations = hashDeclarations(folder);
+        final String coldDeclarations = resolveDependencies(folder, declarations);
+        ArrayList<String> cmdLine = buildCmdLine();
+        boolean profile = this.profile.getOrElse(false);
+
+        if (profile && capabilities != null && !capabilities.isAtLeast(3, 18)) {
+            getLogger().warn("Profiling requires CMake 3.18 or newer, but {} is used", capabilities.getVersion());
+            profile = false;
+        }
+
+        if (!reuseConfiguration.getOrElse(true)) {
+            ConfigureFingerprint.delete(folder);
+            execConfigure(profile ? withProfiling(cmdLine) : cmdLine, folder, declarations);
+            recordDependencies(coldDeclarations, folder);
+
+            if (profile) {
+                reportProfile();
+            }
+            return;
+        }
+
+        final ArrayList<String> definitions = new ArrayList<>();
+        gatherDefinitions(definitions);
+
+        final ConfigureFingerprint fingerprint = ConfigureFingerprint.compute(cmdLine, definitions, getProcessEnv(),
+            generator.getOrNull(), identifyCMake() + "\n" + identifyInputs());
+        final ConfigureFingerprint previous = ConfigureFingerprint.load(folder);
+
+        // Profiling is about what cmake does, so it must never be skipped
+        // A deleted build.ninja or Makefile reruns the task through its outputs, so it must also rerun cmake
+        if (!profile && previous != null && previous.isCacheConsistent(folder) && CMakeFileApi.readReply(folder) != null && hasGeneratedFiles()) {
+            if (previous.matches(fingerprint)) {
+                getLogger().lifecycle("CMake configuration in {} is unchanged, skipping cmake", folder);
+                return;
+            }
+
+            if (previous.matchesIgnoringDefinitions(fingerprint)) {
+                getLogger().info("Only cache definitions changed, refreshing the existing configuration");
+                cmdLine = newCmdLine();
+                cmdLine.addAll(definitions);
+                cmdLine.add(".");
+            }
+        }
+
+        // A failed or interrupted run must never be mistaken for a consistent configuration
+        ConfigureFingerprint.delete(folder);
+        execConfigure(profile ? withProfiling(cmdLine) : cmdLine, folder, declarations);
+        recordDependencies(coldDeclarations, folder);
+
+        try {
+            fingerprint.store(folder);
+        }
+        catch (IOException error) {
+            getLogger().warn("Could not store configure fingerprint: {}", error.toString());
+        }
+
+        if (profile) {
+            reportProfile();
+        }
+    }
+
+    /**
+     * Hashes the CMake files of the project, which key both the dependency and the probe cache.
+     * Walking the source tree is expensive, so this happens once per run.
+     *
+     * @return the hash of the dependency declarations, or null if neither cache is enabled.
+     */
+    private @Nullable String hashDeclarations(final @NotNull File folder) {
+        if (!dependencyCacheFolder.isPresent() && !probeCacheFolder.isPresent()) {
+            return null;
+        }
+
+        try {
+            return DependencyCache.hashDeclarations(sourceFolder.getAsFile().get(), folder);
+        }
+        catch (IOException error) {
+            throw new GradleException("Could not hash the CMake files of the project", error);
+        }
+    }
+
+    /**
+     * Runs CMake. A fresh tree is seeded with the cached toolchain probes first,
+     * and the probes of the configured tree are cached afterwards.
+     */
+    private void execConfigure(final @NotNull ArrayList<String> configureCmdLine, final @NotNull File folder, final @Nullable String declarations) {
+        final ArrayList<String> cmdLine = new ArrayList<>(configureCmdLine);
+        cmdLine.addAll(dependencyResets);
+
+        if (!probeCacheFolder.isPresent() || declarations == null) {
+            exec(cmdLine);
+            return;
+        }
+
+        final ProbeCache cache = new ProbeCache(probeCacheFolder.getAsFile().get());
+        final String key = ProbeCache.computeKey(identifyCMake(), generator.getOrNull(), platform.getOrNull(), toolset.getOrNull(),
+            sourceFolder.getAsFile().get(), defs.getOrElse(Collections.emptyMap()), getProcessEnv());
+        final ArrayList<String> seededCmdLine = new ArrayList<>(cmdLine);
+
+        try {
+            final File initialCache = cache.seed(key, declarations, folder, getLogger());
+
+            // Like the profiling options, -C is accepted after the source path
+            if (initialCache != null) {
+                seededCmdLine.add("-C");
+                seededCmdLine.add(initialCache.getAbsolutePath());
+            }
+        }
+        catch (IOException error) {
+            getLogger().warn("Could not seed toolchain probes: {}", error.toString());
+        }
+
+        exec(seededCmdLine);
+
+        try {
+            cache.record(key, declarations, folder, getLogger());
+        }
+        catch (IOException error) {
+            getLogger().warn("Could not cache toolchain probes: {}", error.toString());
+        }
+    }
+
+    /**
+     * Points FetchContent at the cached sources of all dependencies the current CMake files fetched before,
+     * and at the extracted seed archives.
+     *
+     * @param declarations the hash of the dependency declarations, null if the dependency cache is disabled.
+     * @return the given hash if the cache is cold and should be filled after configuring, otherwise null.
+     */
+    private @Nullable String resolveDependencies(final @NotNull File folder, final @Nullable String declarations) {
+        dependencyDefinitions = Collections.emptyMap();
+        dependencyResets = Collections.emptyList();
+
+        if (!dependencyCacheFolder.isPresent() || declarations == null) {
+            return null;
+        }
+
+        final DependencyCache cache = new DependencyCache(dependencyCacheFolder.getAsFile().get());
+        final TreeMap<String, String> definitions = new TreeMap<>();
+
+        try {
+            for (final Entry<String, File> seed : dependencySeeds.getOrElse(Collections.emptyMap()).entrySet()) {
+                final File source = cache.extractSeed(seed.getValue(), executable.getOrElse("cmake"));
+                definitions.put(DependencyCache.toVariableName(seed.getKey()), source.getAbsolutePath());
+            }
+        }
+        catch (IOException error) {
+            throw new GradleException("Could not prepare the dependency cache", error);
+        }
+        catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while extracting dependency seeds", error);
+        }
+
+        final Map<String, File> cached = cache.resolve(declarations);
+
+        for (final Entry<String, File> entry : cached.entrySet()) {
+            definitions.putIfAbsent(DependencyCache.toVariableName(entry.getKey()), entry.getValue().getAbsolutePath());
+        }
+
+        final Map<String, String> userDefinitions = defs.getOrElse(Collections.emptyMap());
+
+        // Both persist in CMakeCache.txt, so a cold run has to undo what an earlier warm run injected
+        if (!cached.isEmpty() && dependencyCacheDisconnected.getOrElse(true)) {
+            definitions.put(FULLY_DISCONNECTED, "ON");
+        }
+        else if (!userDefinitions.containsKey(FULLY_DISCONNECTED)) {
+            definitions.put(FULLY_DISCONNECTED, "OFF");
+        }
+
+        final CMakeFileApi.Reply reply = CMakeFileApi.readReply(folder);
+
+        if (reply != null) {
+            final ArrayList<String> resets = new ArrayList<>();
+
+            for (final String name : cache.findInjectedSources(reply.getCacheEntries(true))) {
+                if (!definitions.containsKey(name) && !userDefinitions.containsKey(name)) {
+                    resets.add("-U" + name);
+                }
+            }
+
+            dependencyResets = resets;
+        }
+
+        dependencyDefinitions = definitions;
+        getLogger().info("{} of the project's dependencies are available from the cache", cached.size());
+        return cached.isEmpty() ? declarations : null;
+    }
+
+    /**
+     * Stores the dependencies a configure with a cold cache fetched.
+     */
+    private void recordDependencies(final @Nullable String declarations, final @NotNull File folder) {
+        if (declarations == null) {
+            return;
+        }
+
+        try {
+            new DependencyCache(dependencyCacheFolder.getAsFile().get()).record(declarations, folder, getLogger());
+        }
+        catch (IOException error) {
+            getLogger().warn("Could not store dependencies in the cache: {}", error.toString());
+        }
+    }
+
+    private void checkCapabilities(final @Nullable CMakeCapabilities capabilities) {
+        if (capabilities == null) {
+            return;
+        }
+
+        if (!capabilities.hasFileApi()) {
+            getLogger().info("CMake {} has no File API, outputs are tracked less precisely", capabilities.getVersion());
+        }
+
+        final String generator = this.generator.getOrNull();
+
+        if (generator == null || generator.isEmpty()) {
+            return;
+        }
+
+        final ArrayList<String> names = new ArrayList<>();
+
+        for (final CMakeCapabilities.Generator available : capabilities.getGenerators()) {
+            names.add(available.name);
+
+            // Extra generators like CodeBlocks are combined with their main generator
+            for (final String extraGenerator : available.extraGenerators) {
+                names.add(String.format("%s - %s", extraGenerator, available.name));
+            }
+        }
+
+        // Generator names are matched as a prefix, since e.g. Visual Studio generators accept a trailing platform
+        if (!names.isEmpty() && names.stream().noneMatch(generator::startsWith)) {
+            throw new GradleException(String.format("CMake %s does not support the generator '%s', available generators are: %s",
+                capabilities.getVersion(), generator, String.join(", ", names)));
+        }
+    }
+
+    private @NotNull File getProfileTrace() {
+        return new File(reportsFolder.getAsFile().get(), "configure-trace.json");
+    }
+
+    private @NotNull ArrayList<String> withProfiling(final @NotNull ArrayList<String> cmdLine) {
+        final File trace = getProfileTrace();
+
+        if (!trace.getParentFile().isDirectory() && !trace.getParentFile().mkdirs()) {
+            throw new GradleException("Could not create reports folder " + trace.getParentFile());
+        }
+
+        // Options are accepted after the source path as well, so they can simply be appended
+        final ArrayList<String> profiled = new ArrayList<>(cmdLine);
+        profiled.add("--profiling-format=google-trace");
+        profiled.add("--profiling-output=" + trace.getAbsolutePath());
+        return profiled;
+    }
+
+    private void reportProfile() {
+        final File trace = getProfileTrace();
+
+        if (!trace.isFile()) {
+            getLogger().warn("CMake did not write a profiling trace, profiling requires CMake 3.18 or newer");
+            return;
+        }
+
+        final ConfigureProfile profile = ConfigureProfile.read(trace);
+        final File report = new File(trace.getParentFile(), "configure-profile.txt");
+
+        try {
+            profile.writeReport(report);
+        }
+        catch (IOException error) {
+            getLogger().warn("Could not write configure profile: {}", error.toString());
+        }
+
+        getLogger().lifecycle("Configure took {} in traced commands", ConfigureProfile.formatMicros(profile.getTotalMicros()));
+        logProfileRows(profile, "Slowest commands (self time):", profile.getCommands(SUMMARY_LIMIT));
+        logProfileRows(profile, "Slowest calls (inclusive time):", profile.getCalls(SUMMARY_LIMIT));
+        logProfileRows(profile, "Slowest files (self time):", profile.getFiles(SUMMARY_LIMIT));
+        getLogger().lifecycle("Configure profile written to {}, trace to {}", report, trace);
+    }
+
+    private void logProfileRows(final @NotNull ConfigureProfile profile, final @NotNull String title, final @NotNull List<ConfigureProfile.Row> rows) {
+        getLogger().lifecycle("  {}", title);
+
+        for (final ConfigureProfile.Row row : rows) {
+            getLogger().lifecycle("    {} {}", String.format("%10s %5.1f%%", ConfigureProfile.formatMicros(row.micros), profile.getPercentage(row)), row.name);
+        }
+    }
+
+    private @NotNull String identifyCMake() {
+        final String executable = this.executable.getOrElse("cmake");
+        final File file = Utils.findExecutable(executable);
+
+        if (file == null) {
+            return executable;
+        }
+
+        return String.format("%s:%d:%d", file.getAbsolutePath(), file.length(), file.lastModified());
+    }
+
+    private @NotNull String identifyInputs() {
+        final StringBuilder sb = new StringBuilder();
+
+        for (final File input : getConfigureInputs()) {
+            sb.append(input.getAbsolutePath()).append(':').append(input.length()).append(':').append(input.lastModified()).append('\n');
+        }
+
+        return sb.toString();
+    }
 }
@@ -0,0 +1,253 @@
+package io.karma.gradlecm;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Captures the environment a toolchain setup script (for example {@code setvars.sh}
+ * of Intel oneAPI or the {@code environment-setup-*} script of a cross SDK) leaves behind.
+ * Such scripts often take seconds to run, so the variables they set or change are cached
+ * on disk, keyed by the content of the script, the variables it is sourced with and the
+ * inherited values of the variables it changed, since scripts usually prepend to those.
+ * The captured variables are applied to the CMake process directly, without a wrapper process.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+public abstract class CMakeEnvironmentService implements BuildService<CMakeEnvironmentService.Params> {
+    static final String NAME = "cmakeEnvironment";
+
+    private static final Logger LOGGER = Logging.getLogger(CMakeEnvironmentService.class);
+    private static final String MARKER = "--- gradle-cmake environment ---";
+    private static final boolean IS_WINDOWS = File.separatorChar == '\\';
+    // Maintained by the shell itself, they say nothing about the toolchain
+    private static final HashSet<String> IGNORED_VARIABLES = new HashSet<>(Arrays.asList("_", "PWD", "OLDPWD", "SHLVL", "PROMPT", "CMDCMDLINE"));
+
+    private final HashMap<String, Map<String, String>> environments = new HashMap<>();
+
+    /**
+     * @param script    the script to source.
+     * @param variables the variables to set for the script, on top of the inherited ones.
+     * @return the variables the script set or changed.
+     */
+    synchronized @NotNull Map<String, String> get(final @NotNull File script, final @NotNull Map<String, String> variables) {
+        final String key;
+
+        try {
+            key = hashKey(script, variables);
+        }
+        catch (IOException error) {
+            throw new GradleException("Could not read environment script " + script, error);
+        }
+
+        return environments.computeIfAbsent(key, k -> load(script, variables, k));
+    }
+
+    private static @NotNull String hashKey(final @NotNull File script, final @NotNull Map<String, String> variables) throws IOException {
+        final MessageDigest digest = Utils.newDigest();
+        digest.update(script.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(Files.readAllBytes(script.toPath()));
+
+        for (final Entry<String, String> entry : new TreeMap<>(variables).entrySet()) {
+            digest.update((byte) 0);
+            digest.update(String.format("%s=%s", entry.getKey(), entry.getValue()).getBytes(StandardCharsets.UTF_8));
+        }
+
+        return Utils.toHex(digest.digest());
+    }
+
+    /**
+     * Hashes the values the variables with the given names have before the script runs.
+     * A script which prepends to {@code PATH} yields a different result for a different inherited {@code PATH}.
+     */
+    private static @NotNull String hashInherited(final @NotNull Collection<String> names, final @NotNull Map<String, String> variables) {
+        final Map<String, String> baseline = getBaseline(variables);
+        final StringBuilder sb = new StringBuilder();
+
+        for (final String name : new TreeSet<>(names)) {
+            sb.append(name).append('=').append(baseline.get(name)).append('\u0000');
+        }
+
+        return Utils.hash(sb.toString());
+    }
+
+    private static @NotNull Map<String, String> getBaseline(final @NotNull Map<String, String> variables) {
+        final HashMap<String, String> baseline = new HashMap<>(System.getenv());
+        baseline.putAll(variables);
+        return baseline;
+    }
+
+    private @NotNull Map<String, String> load(final @NotNull File script, final @NotNull Map<String, String> variables, final @NotNull String hash) {
+        final File cacheFolder = getParameters().getCacheFolder().getAsFile().get();
+        // The names of the variables the script changed, which select the entry together with their inherited values
+        final File namesFile = new File(cacheFolder, hash + ".names");
+
+        if (namesFile.isFile()) {
+            try {
+                final List<String> names = Files.readAllLines(namesFile.toPath(), StandardCharsets.UTF_8);
+                final File cacheFile = new File(cacheFolder, String.format("%s-%s.properties", hash, hashInherited(names, variables)));
+
+                if (cacheFile.isFile()) {
+                    final Properties properties = new Properties();
+
+                    try (final InputStream stream = Files.newInputStream(cacheFile.toPath())) {
+                        properties.load(stream);
+                    }
+
+                    final TreeMap<String, String> environment = new TreeMap<>();
+
+                    for (final String name : properties.stringPropertyNames()) {
+                        environment.put(name, properties.getProperty(name));
+                    }
+
+                    return Collections.unmodifiableMap(environment);
+                }
+            }
+            catch (IOException | IllegalArgumentException error) {
+                LOGGER.debug("Ignoring unreadable environment cache of {}", script, error);
+            }
+        }
+
+        LOGGER.lifecycle("Capturing the environment of {}", script);
+        final Map<String, String> environment = capture(script, variables);
+
+        try {
+            final Properties properties = new Properties();
+            properties.putAll(environment);
+            final File cacheFile = new File(cacheFolder, String.format("%s-%s.properties", hash, hashInherited(environment.keySet(), variables)));
+
+            // Written through temporary files, so concurrent builds never read half a file
+            Files.createDirectories(cacheFolder.toPath());
+            final File tempFile = File.createTempFile(hash, ".tmp", cacheFolder);
+
+            try (final OutputStream stream = Files.newOutputStream(tempFile.toPath())) {
+                properties.store(stream, script.getAbsolutePath());
+            }
+
+            Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            final File tempNamesFile = File.createTempFile(hash, ".tmp", cacheFolder);
+            Files.write(tempNamesFile.toPath(), environment.keySet(), StandardCharsets.UTF_8);
+            Files.move(tempNamesFile.toPath(), namesFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException error) {
+            LOGGER.debug("Could not cache the environment of {}", script, error);
+        }
+
+        return environment;
+    }
+
+    private static @NotNull Map<String, String> capture(final @NotNull File script, final @NotNull Map<String, String> variables) {
+        final String output;
+
+        try {
+            output = Utils.capture(variables, getCaptureCommand(script));
+        }
+        catch (IOException error) {
+            throw new GradleException(String.format("Could not capture the environment of %s: %s", script, error.getMessage()), error);
+        }
+        catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while capturing the environment of " + script, error);
+        }
+
+        final int markerIndex = output.lastIndexOf(MARKER);
+
+        if (markerIndex < 0) {
+            throw new GradleException(String.format("Environment script %s did not complete", script));
+        }
+
+        // Only keep what the script changed, everything else is inherited by the CMake process anyway
+        final Map<String, String> baseline = getBaseline(variables);
+        final TreeMap<String, String> environment = new TreeMap<>();
+
+        for (final Entry<String, String> entry : parse(output.substring(markerIndex + MARKER.length())).entrySet()) {
+            if (!IGNORED_VARIABLES.contains(entry.getKey()) && !entry.getValue().equals(baseline.get(entry.getKey()))) {
+                environment.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        return Collections.unmodifiableMap(environment);
+    }
+
+    private static @NotNull String @NotNull [] getCaptureCommand(final @NotNull File script) {
+        if (IS_WINDOWS) {
+            return new String[]{"cmd.exe", "/d", "/c", "call", script.getAbsolutePath(), "&&", "echo", MARKER, "&&", "set"};
+        }
+
+        // env -0 keeps values containing line breaks intact, but not every env implementation supports it
+        final String shell = new File("/bin/bash").canExecute() ? "/bin/bash" : "/bin/sh";
+        return new String[]{shell, "-c", String.format(". \"$0\" </dev/null && printf '\\n%%s\\n' '%s' && { env -0 2>/dev/null || env; }", MARKER),
+            script.getAbsolutePath()};
+    }
+
+    private static @NotNull Map<String, String> parse(final @NotNull String output) {
+        final HashMap<String, String> environment = new HashMap<>();
+        final boolean isNullSeparated = output.indexOf('\0') >= 0;
+        String lastName = null;
+
+        for (final String entry : output.split(isNullSeparated ? "\0" : "\r?\n")) {
+            if (entry.isEmpty()) {
+                continue;
+            }
+
+            final int separator = entry.indexOf('=');
+
+            // Windows keeps per-drive folders in variables like "=C:", which cannot be set
+            if (separator > 0 && isVariableName(entry.substring(0, separator))) {
+                lastName = entry.substring(0, separator);
+                environment.put(lastName, entry.substring(separator + 1));
+            }
+            else if (!isNullSeparated && lastName != null && separator != 0) {
+                environment.put(lastName, environment.get(lastName) + "\n" + entry); // continuation of a multi-line value
+            }
+        }
+
+        return environment;
+    }
+
+    private static boolean isVariableName(final @NotNull String name) {
+        for (int i = 0; i < name.length(); i++) {
+            final char c = name.charAt(i);
+
+            if (!Character.isLetterOrDigit(c) && c != '_' && !(IS_WINDOWS && "()".indexOf(c) >= 0)) {
+                return false;
+            }
+        }
+
+        return !name.isEmpty() && !Character.isDigit(name.charAt(0));
+    }
+
+    public interface Params extends BuildServiceParameters {
+        /**
+         * The folder the captured environments are cached in.
+         */
+        DirectoryProperty getCacheFolder();
+    }
+}
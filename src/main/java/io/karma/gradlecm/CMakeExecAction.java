@@ -0,0 +1,173 @@
+package io.karma.gradlecm;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * Runs a single CMake invocation through the Gradle Worker API.
+ * The submitting task waits for it and keeps its project lock meanwhile,
+ * so only CMake tasks of different projects run at the same time, for
+ * example the builds of several native subprojects with {@code --parallel}.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+public abstract class CMakeExecAction implements WorkAction<CMakeExecAction.Params> {
+    @Override
+    public void execute() {
+        final Params params = getParameters();
+        final ArrayList<String> cmdLine = new ArrayList<>(params.getCommandLine().get());
+        final CMakeJobService jobService = params.getJobService().getOrNull();
+        final int jobsIndex = params.getJobsArgumentIndex().getOrElse(-1);
+
+        if (jobService == null || jobsIndex < 0 || jobsIndex >= cmdLine.size()) {
+            exec(cmdLine);
+            return;
+        }
+
+        // Job slots are leased here rather than in the task, so the lease
+        // is held only for as long as the process runs
+        try (final CMakeJobService.Lease lease = jobService.acquire(Integer.parseInt(cmdLine.get(jobsIndex)))) {
+            Logging.getLogger(CMakeExecAction.class).info("Leased {} of {} build-wide jobs", lease.getJobs(), jobService.getMaxJobs());
+            cmdLine.set(jobsIndex, Integer.toString(lease.getJobs()));
+            exec(cmdLine);
+        }
+        catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while waiting for free build jobs", error);
+        }
+    }
+
+    private void exec(final ArrayList<String> cmdLine) {
+        final Params params = getParameters();
+        final Logger logger = Logging.getLogger(CMakeExecAction.class);
+
+        if (!params.getDiagnostics().getOrElse(false)) {
+            exec(cmdLine, null, logger);
+            return;
+        }
+
+        final File report = params.getDiagnosticsReport().getAsFile().getOrNull();
+
+        try (final DiagnosticCollector diagnostics = new DiagnosticCollector(params.getLogFile().getAsFile().getOrNull(),
+            params.getAppendLog().getOrElse(false), params.getFailureContextLines().getOrElse(0))) {
+            try {
+                exec(cmdLine, diagnostics, logger);
+            }
+            finally {
+                if (report != null) {
+                    writeReport(diagnostics, report, logger);
+                }
+            }
+        }
+        catch (IOException error) {
+            throw new GradleException("Could not open CMake log file", error);
+        }
+    }
+
+    private void exec(final ArrayList<String> cmdLine, final DiagnosticCollector diagnostics, final Logger logger) {
+        final Params params = getParameters();
+        final CMakeMetricsService metrics = params.getMetricsService().getOrNull();
+        final CMakeExecutor executor = new CMakeExecutor(logger, params.getTaskName().get(), params.getOutputBufferLines().getOrElse(0), diagnostics,
+            metrics != null);
+        String regression = null;
+
+        try {
+            executor.exec(cmdLine, params.getWorkingFolder().getAsFile().get(), params.getEnvironment().getOrElse(Collections.emptyMap()));
+        }
+        finally {
+            if (metrics != null) {
+                regression = metrics.record(new CMakeMetricsService.Execution(params.getMetricsKey().getOrElse(params.getTaskName().get()),
+                    executor.getWallMillis(), executor.getCpuMillis(), executor.getPeakRss(), executor.getForwardedLines(), executor.getForwardedChars(),
+                    executor.getExitCode()));
+            }
+        }
+
+        if (regression != null) {
+            throw new GradleException(regression);
+        }
+    }
+
+    private static void writeReport(final DiagnosticCollector diagnostics, final File report, final Logger logger) {
+        try {
+            diagnostics.writeSarif(report);
+        }
+        catch (IOException error) {
+            logger.warn("Could not write diagnostics report: {}", error.toString());
+        }
+    }
+
+    public interface Params extends WorkParameters {
+        Property<String> getTaskName();
+
+        ListProperty<String> getCommandLine();
+
+        /**
+         * The environment variables to set on top of the inherited ones.
+         */
+        MapProperty<String, String> getEnvironment();
+
+        DirectoryProperty getWorkingFolder();
+
+        Property<Integer> getOutputBufferLines();
+
+        /**
+         * The build-wide job budget to lease jobs from, if any.
+         */
+        Property<CMakeJobService> getJobService();
+
+        /**
+         * The index of the requested job count in the command line, which is
+         * replaced by the number of jobs actually leased from the job service.
+         */
+        Property<Integer> getJobsArgumentIndex();
+
+        /**
+         * Whether to extract compiler diagnostics from the output and report them in a summary.
+         */
+        Property<Boolean> getDiagnostics();
+
+        /**
+         * The file to write the full output to, if any.
+         */
+        RegularFileProperty getLogFile();
+
+        /**
+         * Whether to append to the log file instead of replacing it.
+         */
+        Property<Boolean> getAppendLog();
+
+        /**
+         * The file to write the extracted diagnostics to as SARIF, if any.
+         */
+        RegularFileProperty getDiagnosticsReport();
+
+        /**
+         * The number of output lines logged as context if the command fails.
+         */
+        Property<Integer> getFailureContextLines();
+
+        /**
+         * The service recording the metrics of the command, if enabled.
+         */
+        Property<CMakeMetricsService> getMetricsService();
+
+        /**
+         * The key the metrics of the command are recorded and compared under.
+         */
+        Property<String> getMetricsKey();
+    }
+}
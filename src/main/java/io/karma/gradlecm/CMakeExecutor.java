@@ -3,11 +3,17 @@ package io.karma.gradlecm;
 import org.gradle.api.GradleException;
 import org.gradle.api.logging.Logger;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.InputStreamReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * @author Marco 'freudi74' Freudenberger
@@ -15,61 +21,257 @@ import java.util.List;
  * @since 28/05/2019
  */
 public final class CMakeExecutor {
+    private static final int MAX_BATCH_SIZE = 256;
+
     private final Logger logger;
     private final String taskName;
+    private final int maxBufferedLines; // 0 means unbounded
+    private final DiagnosticCollector diagnostics;
+    private final boolean sampleProcessTree;
+    private long forwardedLines;
+    private long forwardedChars;
+    private long wallNanos;
+    private long cpuMillis = -1;
+    private long peakRss = -1;
+    private int exitCode = -1;
 
     CMakeExecutor(final @NotNull Logger logger, final @NotNull String taskName) {
+        this(logger, taskName, 0);
+    }
+
+    CMakeExecutor(final @NotNull Logger logger, final @NotNull String taskName, final int maxBufferedLines) {
+        this(logger, taskName, maxBufferedLines, null);
+    }
+
+    /**
+     * @param diagnostics if not null, all output is passed to it and forwarded to the logger on info
+     *                    level only; the collector then reports the diagnostics once the process exited.
+     */
+    CMakeExecutor(final @NotNull Logger logger, final @NotNull String taskName, final int maxBufferedLines,
+                  final @Nullable DiagnosticCollector diagnostics) {
+        this(logger, taskName, maxBufferedLines, diagnostics, false);
+    }
+
+    /**
+     * @param sampleProcessTree whether to sample the CPU time and memory of the process tree while it runs,
+     *                          see {@link #getCpuMillis()} and {@link #getPeakRss()}.
+     */
+    CMakeExecutor(final @NotNull Logger logger, final @NotNull String taskName, final int maxBufferedLines,
+                  final @Nullable DiagnosticCollector diagnostics, final boolean sampleProcessTree) {
         this.logger = logger;
         this.taskName = taskName;
+        this.maxBufferedLines = Math.max(maxBufferedLines, 0);
+        this.diagnostics = diagnostics;
+        this.sampleProcessTree = sampleProcessTree;
     }
 
     void exec(final @NotNull List<String> cmdLine, final @NotNull File workingFolder) {
+        exec(cmdLine, workingFolder, Collections.emptyMap());
+    }
+
+    /**
+     * @param env environment variables to set on top of the inherited ones.
+     */
+    void exec(final @NotNull List<String> cmdLine, final @NotNull File workingFolder, final @NotNull Map<String, String> env) {
+        final StringBuilder sb = new StringBuilder("  CMakePlugin.task " + taskName + " - exec: ");
+
+        for (final String s : cmdLine) {
+            sb.append(s).append(" ");
+        }
+
+        logger.info(sb.toString());
+
+        final ProcessBuilder processBuilder = new ProcessBuilder(cmdLine);
+        processBuilder.directory(workingFolder);
+        processBuilder.environment().putAll(env);
+
+        if (!workingFolder.exists() && workingFolder.mkdirs()) {
+            logger.info("Created working directory {}", workingFolder);
+        }
+
+        final long startNanos = System.nanoTime();
+
         try {
-            final StringBuilder sb = new StringBuilder("  CMakePlugin.task " + taskName + " - exec: ");
+            final Process process = processBuilder.start();
+            final ProcessTreeSampler sampler = sampleProcessTree ? ProcessTreeSampler.start(process, String.format("CMakePlugin %s sampler", taskName)) : null;
 
-            for (final String s : cmdLine) {
-                sb.append(s).append(" ");
+            // Both pipes are drained at the same time, so a child writing a lot to
+            // stderr can never block on a full pipe while we are still reading stdout.
+            // In bounded mode the pumps block once the queue is full, which in turn
+            // stalls the child instead of growing the daemon heap.
+            final BlockingQueue<OutputPump.Line> queue = maxBufferedLines > 0 ? new ArrayBlockingQueue<>(maxBufferedLines) : new LinkedBlockingQueue<>();
+            final OutputPump outPump = new OutputPump(process.getInputStream(), false, queue);
+            final OutputPump errPump = new OutputPump(process.getErrorStream(), true, queue);
+            final Thread outThread = startPump(outPump, "stdout");
+            final Thread errThread = startPump(errPump, "stderr");
+
+            boolean drained = false;
+
+            try {
+                drain(queue);
+                drained = true;
+                outThread.join();
+                errThread.join();
+                exitCode = process.waitFor();
             }
+            finally {
+                // Without a consumer, the pumps would block on a full queue forever and keep the pipes of the child open
+                if (!drained) {
+                    outPump.stop();
+                    errPump.stop();
+                }
 
-            logger.info(sb.toString());
+                if (process.isAlive()) {
+                    process.destroy();
+                }
 
-            final ProcessBuilder processBuilder = new ProcessBuilder(cmdLine);
-            processBuilder.directory(workingFolder);
+                if (!drained) {
+                    queue.clear();
+                }
 
-            if (workingFolder.mkdirs()) {
-                logger.info("Working directory already exists, skipping creation");
+                wallNanos = System.nanoTime() - startNanos;
+
+                if (sampler != null) {
+                    sampler.stop();
+                    cpuMillis = sampler.getCpuMillis();
+                    peakRss = sampler.getPeakRss();
+                }
             }
 
-            final Process process = processBuilder.start();
+            rethrow(outPump.getError());
+            rethrow(errPump.getError());
+
+            if (diagnostics != null) {
+                diagnostics.summarize(logger, exitCode != 0);
+            }
+        }
+        catch (IOException error) {
+            throw new GradleException(String.format("Could not execute command: %s", error), error);
+        }
+        catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while waiting for CMake", error);
+        }
+
+        if (exitCode != 0) {
+            throw new GradleException(String.format("CMake returned with abnormal exit code: %d", exitCode));
+        }
+    }
+
+    long getWallMillis() {
+        return wallNanos / 1000000;
+    }
+
+    /**
+     * @return the CPU time of the process tree of the last command in milliseconds, or -1 if it was not sampled.
+     */
+    long getCpuMillis() {
+        return cpuMillis;
+    }
+
+    /**
+     * @return the peak resident memory of the process tree of the last command in bytes, or -1 if it was not sampled.
+     */
+    long getPeakRss() {
+        return peakRss;
+    }
+
+    long getForwardedLines() {
+        return forwardedLines;
+    }
+
+    long getForwardedChars() {
+        return forwardedChars;
+    }
 
-            String line;
-
-            try (final BufferedReader oReader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                try (final BufferedReader eReader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
-                    while ((line = oReader.readLine()) != null) {
-                        logger.info(line);
-                    }
-                    if ((line = eReader.readLine()) != null) {
-                        logger.error("  CMakePlugin.cmakeConfigure - ERRORS: ");
-
-                        do
-                        {
-                            logger.error(line);
-                        }
-                        while ((line = eReader.readLine()) != null);
-                    }
+    /**
+     * @return the exit code of the last command, or -1 if it could not be started.
+     */
+    int getExitCode() {
+        return exitCode;
+    }
+
+    private @NotNull Thread startPump(final @NotNull OutputPump pump, final @NotNull String streamName) {
+        final Thread thread = new Thread(pump, String.format("CMakePlugin %s %s", taskName, streamName));
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private void drain(final @NotNull BlockingQueue<OutputPump.Line> queue) throws InterruptedException {
+        final ArrayList<OutputPump.Line> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        int openStreams = 2;
+
+        while (openStreams > 0) {
+            batch.add(queue.take());
+            queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+
+            for (final OutputPump.Line line : batch) {
+                if (line.isEndOfStream()) {
+                    openStreams--;
                 }
             }
 
-            final int exitCode = process.waitFor();
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Forwards a batch of lines to the logger, issuing one call per
+     * run of consecutive lines from the same stream to keep the
+     * interleaving of stdout and stderr intact.
+     */
+    private void flush(final @NotNull List<OutputPump.Line> batch) {
+        final StringBuilder run = new StringBuilder();
+        boolean runIsError = false;
+        int runLength = 0;
 
-            if (exitCode != 0) {
-                throw new GradleException(String.format("CMake returned with abnormal exit code: %d", exitCode));
+        for (final OutputPump.Line line : batch) {
+            if (line.isEndOfStream()) {
+                continue;
             }
+
+            forwardedLines++;
+            forwardedChars += line.text.length();
+
+            if (diagnostics != null) {
+                diagnostics.accept(line.text);
+            }
+
+            if (runLength > 0 && line.isError != runIsError) {
+                log(run, runIsError);
+                run.setLength(0);
+                runLength = 0;
+            }
+
+            if (runLength > 0) {
+                run.append(System.lineSeparator());
+            }
+
+            run.append(line.text);
+            runIsError = line.isError;
+            runLength++;
         }
-        catch(Throwable error) {
-            logger.error("Could not execute command: {}", error.toString());
+
+        if (runLength > 0) {
+            log(run, runIsError);
+        }
+    }
+
+    private void log(final @NotNull StringBuilder run, final boolean isError) {
+        // With a collector, errors are reported in a summary instead of burying them in the raw output
+        if (isError && diagnostics == null) {
+            logger.error(run.toString());
+        }
+        else if (logger.isInfoEnabled()) {
+            logger.info(run.toString());
         }
     }
-}
 
+    private static void rethrow(final IOException error) throws IOException {
+        if (error != null) {
+            throw error;
+        }
+    }
+}
@@ -0,0 +1,491 @@
+package io.karma.gradlecm;
+
+import groovy.json.JsonSlurper;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Thin reader for the CMake File API (see cmake-file-api(7)).
+ * The plugin registers a stateless query for the codemodel, cache
+ * and cmakeFiles objects before configuring, and CMake answers with
+ * a set of JSON files below {@code .cmake/api/v1/reply} which tell us
+ * exactly which files a configure or build step produces.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+final class CMakeFileApi {
+    static final String CLIENT_NAME = "client-gradlecm";
+    private static final String[] QUERY_KINDS = {"codemodel-v2", "cache-v2", "cmakeFiles-v1"};
+    private static final String API_PATH = ".cmake" + File.separator + "api" + File.separator + "v1";
+
+    // @formatter:off
+    private CMakeFileApi() {}
+    // @formatter:on
+
+    static @NotNull File getQueryFolder(final @NotNull File buildFolder) {
+        return new File(buildFolder, API_PATH + File.separator + "query" + File.separator + CLIENT_NAME);
+    }
+
+    static @NotNull File getReplyFolder(final @NotNull File buildFolder) {
+        return new File(buildFolder, API_PATH + File.separator + "reply");
+    }
+
+    static void writeQuery(final @NotNull File buildFolder) throws IOException {
+        final File queryFolder = getQueryFolder(buildFolder);
+
+        if (!queryFolder.isDirectory() && !queryFolder.mkdirs()) {
+            throw new IOException("Could not create File API query folder " + queryFolder);
+        }
+
+        for (final String kind : QUERY_KINDS) {
+            final File query = new File(queryFolder, kind);
+
+            if (!query.exists() && !query.createNewFile()) {
+                throw new IOException("Could not create File API query " + query);
+            }
+        }
+    }
+
+    /**
+     * Reads the most recent reply for our client from the given build folder.
+     *
+     * @return the parsed reply, or null if CMake has not answered our query yet.
+     */
+    static @Nullable Reply readReply(final @NotNull File buildFolder) {
+        final File replyFolder = getReplyFolder(buildFolder);
+        final File[] indices = replyFolder.listFiles((dir, name) -> name.startsWith("index-") && name.endsWith(".json"));
+
+        if (indices == null || indices.length == 0) {
+            return null;
+        }
+
+        // Index file names embed a timestamp, so the lexicographically last one is the newest
+        Arrays.sort(indices);
+        final File indexFile = indices[indices.length - 1];
+
+        try {
+            final Map<String, Object> index = asMap(parse(indexFile));
+            final Map<String, Object> responses = asMap(asMap(index.get("reply")).get(CLIENT_NAME));
+
+            if (responses.isEmpty()) {
+                return null;
+            }
+
+            return new Reply(buildFolder, replyFolder, index, responses);
+        }
+        catch (RuntimeException error) {
+            return null; // A half-written or foreign reply is treated like no reply at all
+        }
+    }
+
+    static @NotNull Object parse(final @NotNull File file) {
+        return new JsonSlurper().parse(file, "UTF-8");
+    }
+
+    @SuppressWarnings("unchecked")
+    static @NotNull Map<String, Object> asMap(final @Nullable Object value) {
+        return value instanceof Map ? (Map<String, Object>) value : Collections.emptyMap();
+    }
+
+    @SuppressWarnings("unchecked")
+    static @NotNull List<Object> asList(final @Nullable Object value) {
+        return value instanceof List ? (List<Object>) value : Collections.emptyList();
+    }
+
+    static @Nullable String asString(final @Nullable Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    static final class Reply {
+        private final File buildFolder;
+        private final File replyFolder;
+        private final Map<String, Object> index;
+        private final Map<String, Object> responses;
+        private final HashMap<String, Object> objects = new HashMap<>();
+
+        private Reply(final @NotNull File buildFolder, final @NotNull File replyFolder, final @NotNull Map<String, Object> index,
+                      final @NotNull Map<String, Object> responses) {
+            this.buildFolder = buildFolder;
+            this.replyFolder = replyFolder;
+            this.index = index;
+            this.responses = responses;
+        }
+
+        @NotNull File getBuildFolder() {
+            return buildFolder;
+        }
+
+        @Nullable String getGenerator() {
+            return asString(asMap(asMap(index.get("cmake")).get("generator")).get("name"));
+        }
+
+        private @NotNull Map<String, Object> getObject(final @NotNull String kind) {
+            return asMap(objects.computeIfAbsent(kind, k -> {
+                final String jsonFile = asString(asMap(responses.get(k)).get("jsonFile"));
+                return jsonFile == null ? null : readJson(jsonFile);
+            }));
+        }
+
+        private @Nullable Object readJson(final @NotNull String jsonFile) {
+            final File file = new File(replyFolder, jsonFile);
+            return file.isFile() ? parse(file) : null;
+        }
+
+        private @NotNull File resolve(final @NotNull String path) {
+            final File file = new File(path);
+            return file.isAbsolute() ? file : new File(buildFolder, path);
+        }
+
+        /**
+         * @param includeInternal whether to include INTERNAL and STATIC entries, which CMake manages on its own.
+         * @return the cache entries reported by the cache-v2 object, by name.
+         */
+        @NotNull Map<String, String> getCacheEntries(final boolean includeInternal) {
+            final TreeMap<String, String> entries = new TreeMap<>();
+
+            for (final Object entry : asList(getObject("cache-v2").get("entries"))) {
+                final Map<String, Object> map = asMap(entry);
+                final String name = asString(map.get("name"));
+                final String type = asString(map.get("type"));
+
+                if (name == null || (!includeInternal && ("INTERNAL".equals(type) || "STATIC".equals(type)))) {
+                    continue;
+                }
+
+                final String value = asString(map.get("value"));
+                entries.put(name, value == null ? "" : value);
+            }
+
+            return entries;
+        }
+
+        /**
+         * @return all cache entries with their type and help string.
+         */
+        @NotNull List<CacheEntry> getCacheEntryDetails() {
+            final ArrayList<CacheEntry> entries = new ArrayList<>();
+
+            for (final Object entry : asList(getObject("cache-v2").get("entries"))) {
+                final Map<String, Object> map = asMap(entry);
+                final String name = asString(map.get("name"));
+
+                if (name == null) {
+                    continue;
+                }
+
+                String help = "";
+
+                for (final Object property : asList(map.get("properties"))) {
+                    final Map<String, Object> propertyMap = asMap(property);
+
+                    if ("HELPSTRING".equals(asString(propertyMap.get("name")))) {
+                        final String value = asString(propertyMap.get("value"));
+                        help = value == null ? "" : value;
+                    }
+                }
+
+                final String type = asString(map.get("type"));
+                final String value = asString(map.get("value"));
+                entries.add(new CacheEntry(name, type == null ? "UNINITIALIZED" : type, value == null ? "" : value, help));
+            }
+
+            return entries;
+        }
+
+        /**
+         * @return the build system files the generator wrote while configuring.
+         */
+        @NotNull Set<File> getBuildSystemFiles() {
+            final LinkedHashSet<File> files = new LinkedHashSet<>();
+            final String generator = getGenerator();
+            final boolean isMakefiles = generator != null && generator.endsWith("Makefiles");
+
+            files.add(new File(buildFolder, "CMakeCache.txt"));
+
+            if (generator != null && generator.startsWith("Ninja")) {
+                files.add(new File(buildFolder, "build.ninja"));
+            }
+
+            for (final Object configuration : asList(getObject("codemodel-v2").get("configurations"))) {
+                for (final Object directory : asList(asMap(configuration).get("directories"))) {
+                    final String path = asString(asMap(directory).get("build"));
+
+                    if (path == null) {
+                        continue;
+                    }
+
+                    final File folder = resolve(path);
+                    files.add(new File(folder, "cmake_install.cmake"));
+
+                    if (isMakefiles) {
+                        files.add(new File(folder, "Makefile"));
+                    }
+                }
+            }
+
+            final File[] solutions = buildFolder.listFiles((dir, name) -> name.endsWith(".sln"));
+
+            if (solutions != null) {
+                files.addAll(Arrays.asList(solutions));
+            }
+
+            return files;
+        }
+
+        /**
+         * Finds the object folders ({@code CMakeFiles/<target>.dir}) of targets which were removed
+         * from the project, by comparing the folders next to every directory of the code model
+         * with the targets it defines in any configuration.
+         */
+        @NotNull List<File> getStaleObjectFolders() {
+            final HashMap<File, Set<String>> targetsByFolder = new HashMap<>();
+
+            for (final Object configuration : asList(getObject("codemodel-v2").get("configurations"))) {
+                final List<Object> targets = asList(asMap(configuration).get("targets"));
+
+                for (final Object directory : asList(asMap(configuration).get("directories"))) {
+                    final String path = asString(asMap(directory).get("build"));
+
+                    if (path == null) {
+                        continue;
+                    }
+
+                    final Set<String> names = targetsByFolder.computeIfAbsent(resolve(path), key -> new HashSet<>());
+
+                    for (final Object index : asList(asMap(directory).get("targetIndexes"))) {
+                        if (index instanceof Number && ((Number) index).intValue() < targets.size()) {
+                            names.add(asString(asMap(targets.get(((Number) index).intValue())).get("name")));
+                        }
+                    }
+                }
+            }
+
+            final ArrayList<File> stale = new ArrayList<>();
+
+            for (final Map.Entry<File, Set<String>> entry : targetsByFolder.entrySet()) {
+                final File[] folders = new File(entry.getKey(), "CMakeFiles").listFiles((dir, name) -> name.endsWith(".dir"));
+
+                if (folders == null) {
+                    continue;
+                }
+
+                for (final File folder : folders) {
+                    final String name = folder.getName();
+
+                    if (folder.isDirectory() && !entry.getValue().contains(name.substring(0, name.length() - 4))) {
+                        stale.add(folder);
+                    }
+                }
+            }
+
+            return stale;
+        }
+
+        /**
+         * @param configName the configuration to look up, or null for the first (usually only) one.
+         * @return all targets of the given configuration.
+         */
+        @NotNull List<Target> getTargets(final @Nullable String configName) {
+            final ArrayList<Target> targets = new ArrayList<>();
+            final List<Object> configurations = asList(getObject("codemodel-v2").get("configurations"));
+            Map<String, Object> selected = configurations.isEmpty() ? Collections.emptyMap() : asMap(configurations.get(0));
+
+            // Single-config generators name their only configuration after CMAKE_BUILD_TYPE,
+            // which may well be empty, so we fall back to the first one if nothing matches
+            if (configName != null) {
+                for (final Object configuration : configurations) {
+                    final Map<String, Object> map = asMap(configuration);
+
+                    if (configName.equalsIgnoreCase(asString(map.get("name")))) {
+                        selected = map;
+                        break;
+                    }
+                }
+            }
+
+            for (final Object target : asList(selected.get("targets"))) {
+                final String jsonFile = asString(asMap(target).get("jsonFile"));
+
+                if (jsonFile != null) {
+                    targets.add(new Target(this, asMap(readJson(jsonFile))));
+                }
+            }
+
+            return targets;
+        }
+
+        /**
+         * Collects the artifacts a build of the given target (or of everything, if the
+         * target is null or not a real target like "install") produces, including the
+         * artifacts of all targets it transitively depends on.
+         */
+        @NotNull Set<File> getArtifacts(final @Nullable String configName, final @Nullable String targetName) {
+            final List<Target> targets = getTargets(configName);
+            final HashMap<String, Target> byId = new HashMap<>();
+            Target root = null;
+
+            for (final Target target : targets) {
+                byId.put(target.getId(), target);
+
+                if (target.getName().equals(targetName)) {
+                    root = target;
+                }
+            }
+
+            final LinkedHashSet<File> artifacts = new LinkedHashSet<>();
+
+            if (root == null) {
+                for (final Target target : targets) {
+                    artifacts.addAll(target.getArtifacts());
+                }
+                return artifacts;
+            }
+
+            final ArrayList<Target> queue = new ArrayList<>();
+            final LinkedHashSet<String> visited = new LinkedHashSet<>();
+            queue.add(root);
+
+            while (!queue.isEmpty()) {
+                final Target target = queue.remove(queue.size() - 1);
+
+                if (!visited.add(target.getId())) {
+                    continue;
+                }
+
+                artifacts.addAll(target.getArtifacts());
+
+                for (final String dependency : target.getDependencies()) {
+                    final Target next = byId.get(dependency);
+
+                    if (next != null) {
+                        queue.add(next);
+                    }
+                }
+            }
+
+            return artifacts;
+        }
+
+        /**
+         * @return the files CMake read while configuring, as reported by the cmakeFiles object.
+         */
+        @NotNull List<Input> getInputs() {
+            final ArrayList<Input> inputs = new ArrayList<>();
+            final Map<String, Object> cmakeFiles = getObject("cmakeFiles-v1");
+            final String sourcePath = asString(asMap(cmakeFiles.get("paths")).get("source"));
+            final File sourceFolder = sourcePath == null ? buildFolder : new File(sourcePath);
+
+            for (final Object input : asList(cmakeFiles.get("inputs"))) {
+                final Map<String, Object> map = asMap(input);
+                final String path = asString(map.get("path"));
+
+                if (path == null) {
+                    continue;
+                }
+
+                // Relative paths are relative to the source tree, unless CMake generated the file
+                final File file = new File(path);
+                final boolean isGenerated = Boolean.TRUE.equals(map.get("isGenerated"));
+                final File resolved = file.isAbsolute() ? file : new File(isGenerated ? buildFolder : sourceFolder, path);
+                inputs.add(new Input(resolved, isGenerated, Boolean.TRUE.equals(map.get("isExternal")), Boolean.TRUE.equals(map.get("isCMake"))));
+            }
+
+            return inputs;
+        }
+    }
+
+    static final class Target {
+        private final Reply reply;
+        private final Map<String, Object> json;
+
+        private Target(final @NotNull Reply reply, final @NotNull Map<String, Object> json) {
+            this.reply = reply;
+            this.json = json;
+        }
+
+        @NotNull String getId() {
+            final String id = asString(json.get("id"));
+            return id == null ? getName() : id;
+        }
+
+        @NotNull String getName() {
+            final String name = asString(json.get("name"));
+            return name == null ? "" : name;
+        }
+
+        @NotNull String getType() {
+            final String type = asString(json.get("type"));
+            return type == null ? "UTILITY" : type;
+        }
+
+        @NotNull List<File> getArtifacts() {
+            final ArrayList<File> artifacts = new ArrayList<>();
+
+            for (final Object artifact : asList(json.get("artifacts"))) {
+                final String path = asString(asMap(artifact).get("path"));
+
+                if (path != null) {
+                    artifacts.add(reply.resolve(path));
+                }
+            }
+
+            return artifacts;
+        }
+
+        @NotNull List<String> getDependencies() {
+            final ArrayList<String> dependencies = new ArrayList<>();
+
+            for (final Object dependency : asList(json.get("dependencies"))) {
+                final String id = asString(asMap(dependency).get("id"));
+
+                if (id != null) {
+                    dependencies.add(id);
+                }
+            }
+
+            return dependencies;
+        }
+    }
+
+    static final class CacheEntry {
+        final String name;
+        final String type;
+        final String value;
+        final String help;
+
+        private CacheEntry(final @NotNull String name, final @NotNull String type, final @NotNull String value, final @NotNull String help) {
+            this.name = name;
+            this.type = type;
+            this.value = value;
+            this.help = help;
+        }
+    }
+
+    static final class Input {
+        final File file;
+        final boolean isGenerated; // written by CMake into the build tree, e.g. by configure_file
+        final boolean isExternal; // outside of both the source and the build tree, e.g. a toolchain file
+        final boolean isCMake; // part of the CMake installation itself
+
+        private Input(final @NotNull File file, final boolean isGenerated, final boolean isExternal, final boolean isCMake) {
+            this.file = file;
+            this.isGenerated = isGenerated;
+            this.isExternal = isExternal;
+            this.isCMake = isCMake;
+        }
+    }
+}
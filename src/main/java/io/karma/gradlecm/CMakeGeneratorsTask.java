@@ -0,0 +1,116 @@
+package io.karma.gradlecm;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleScriptException;
+import org.gradle.api.logging.LogLevel;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.TaskAction;
+import org.jetbrains.annotations.NotNull;
+
+import javax.inject.Inject;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+/**
+ * Lists the generators available on the current platform. They are taken from the
+ * cached capabilities of the CMake executable, or parsed from the output of
+ * {@code cmake --help} for CMake versions which cannot report their capabilities.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+public class CMakeGeneratorsTask extends DefaultTask {
+    private final Property<String> executable;
+    private final Property<CMakeCapabilityService> capabilityService;
+
+    public CMakeGeneratorsTask() {
+        setGroup("cmake");
+        setDescription("List available CMake generators");
+
+        final ObjectFactory factory = getObjectFactory();
+
+        // @formatter:off
+        executable        = factory.property(String.class);
+        capabilityService = factory.property(CMakeCapabilityService.class);
+        // @formatter:on
+    }
+
+    @Inject
+    protected @NotNull ObjectFactory getObjectFactory() {
+        throw new UnsupportedOperationException(); // Injected by Gradle
+    }
+
+    @Input
+    @Optional
+    public @NotNull Property<String> getExecutable() {
+        return executable;
+    }
+
+    @Internal
+    public @NotNull Property<CMakeCapabilityService> getCapabilityService() {
+        return capabilityService;
+    }
+
+    @TaskAction
+    public void performAction() {
+        final CMakeCapabilityService service = capabilityService.getOrNull();
+        final CMakeCapabilities capabilities = service == null ? null : service.get(executable.getOrElse("cmake"));
+
+        if (capabilities == null) {
+            listFromHelp();
+            return;
+        }
+
+        getLogger().log(LogLevel.QUIET, "Generators of CMake {}", capabilities.getVersion());
+
+        for (final CMakeCapabilities.Generator generator : capabilities.getGenerators()) {
+            final StringBuilder sb = new StringBuilder("  ").append(generator.name);
+
+            if (generator.platformSupport) {
+                sb.append(" [platform]");
+            }
+
+            if (generator.toolsetSupport) {
+                sb.append(" [toolset]");
+            }
+
+            getLogger().log(LogLevel.QUIET, sb.toString());
+
+            for (final String extraGenerator : generator.extraGenerators) {
+                getLogger().log(LogLevel.QUIET, "  {} - {}", extraGenerator, generator.name);
+            }
+        }
+    }
+
+    private void listFromHelp() {
+        final ProcessBuilder pb = new ProcessBuilder(executable.getOrElse("cmake"), "--help");
+
+        try {
+            final Process process = pb.start();
+
+            try (final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                boolean foundGenerators = false;
+
+                while ((line = reader.readLine()) != null) {
+                    if (line.equals("Generators")) {
+                        foundGenerators = true;
+                    }
+                    if (foundGenerators) {
+                        getLogger().log(LogLevel.QUIET, line);
+                    }
+                }
+            }
+
+            process.waitFor();
+        }
+        catch (IOException | InterruptedException e) {
+            throw new GradleScriptException("cmake --help failed.", e);
+        }
+    }
+}
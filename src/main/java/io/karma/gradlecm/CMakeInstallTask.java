@@ -0,0 +1,179 @@
+package io.karma.gradlecm;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputDirectory;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Installs a built CMake binary tree into a folder other tasks and projects consume.
+ * {@code cmake --install} runs into a staging folder inside the binary tree, where CMake
+ * itself skips every file that is up to date. The install folder is then synchronized
+ * with the staging folder, touching only the files whose content changed, so consumers
+ * of the install folder stay up to date when a build only changed a single library.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+public class CMakeInstallTask extends AbstractCMakeTask {
+    private static final String STAGING_FOLDER_NAME = "gradle-install-staging";
+
+    private final Property<String> buildConfig;
+    private final Property<String> component;
+    private final DirectoryProperty installFolder;
+
+    public CMakeInstallTask() {
+        super(); // Make sure our shared properties are initialized
+
+        final ObjectFactory factory = getObjectFactory();
+
+        setGroup("cmake");
+        setDescription("Install a built CMake build incrementally");
+
+        // @formatter:off
+        buildConfig   = factory.property(String.class);
+        component     = factory.property(String.class);
+        installFolder = factory.directoryProperty();
+        // @formatter:on
+
+        installFolder.convention(getProjectLayout().getBuildDirectory().dir("cmake-install"));
+
+        // What gets installed depends on the install rules and the built artifacts, neither of which are inputs.
+        // Running the install is cheap though, since both CMake and the synchronization skip unchanged files.
+        getOutputs().upToDateWhen(task -> false);
+    }
+
+    @Override
+    protected void copyConfiguration(final @NotNull CMakePluginExtension ext) {
+        buildConfig.set(ext.getBuildConfig());
+    }
+
+    @Override
+    protected void gatherParameters(final @NotNull ArrayList<String> params) {
+        params.add("--install");
+        params.add(".");
+        params.add("--prefix");
+        params.add(getStagingFolder().getAbsolutePath());
+
+        if (buildConfig.isPresent()) {
+            params.add("--config");
+            params.add(buildConfig.get());
+        }
+
+        if (component.isPresent()) {
+            params.add("--component");
+            params.add(component.get());
+        }
+    }
+
+    @Override
+    protected void gatherBuildParameters(final @NotNull ArrayList<String> params) {}
+
+    private @NotNull File getStagingFolder() {
+        return new File(workingFolder.getAsFile().get(), STAGING_FOLDER_NAME);
+    }
+
+    @Override
+    public void performAction() {
+        final CMakeCapabilities capabilities = getCapabilities();
+
+        if (capabilities != null && !capabilities.isAtLeast(3, 15)) {
+            throw new GradleException(String.format("Installing requires CMake 3.15 or newer, but %s is used", capabilities.getVersion()));
+        }
+
+        final File staging = getStagingFolder();
+        final File folder = installFolder.getAsFile().get();
+
+        try {
+            final int broken = InstallSync.breakLinks(staging.toPath(), folder.toPath());
+
+            if (broken > 0) {
+                getLogger().info("Unlinked {} staged files from the install folder", broken);
+            }
+        }
+        catch (IOException error) {
+            throw new GradleException(String.format("Could not prepare staging folder %s", staging), error);
+        }
+
+        super.performAction();
+
+        final InstallSync sync = new InstallSync();
+
+        try {
+            sync.sync(staging.toPath(), folder.toPath(), readManifest(staging));
+        }
+        catch (IOException error) {
+            throw new GradleException(String.format("Could not update install folder %s", folder), error);
+        }
+
+        getLogger().lifecycle("Installed into {}: {} changed ({} hard-linked), {} unchanged, {} removed", folder, sync.getChanged(), sync.getLinked(),
+            sync.getUnchanged(), sync.getRemoved());
+    }
+
+    /**
+     * CMake never removes files from an install prefix, so the staging folder may still contain files
+     * of install rules which are gone. The manifest CMake writes lists what the install actually produced.
+     *
+     * @return the installed files relative to the staging folder.
+     */
+    private @NotNull List<Path> readManifest(final @NotNull File staging) throws IOException {
+        final String name = component.isPresent() ? String.format("install_manifest_%s.txt", component.get()) : "install_manifest.txt";
+        final File manifest = new File(workingFolder.getAsFile().get(), name);
+
+        if (!manifest.isFile()) {
+            throw new IOException("CMake did not write the install manifest " + manifest);
+        }
+
+        final Path stagingPath = staging.toPath().toAbsolutePath();
+        final ArrayList<Path> files = new ArrayList<>();
+
+        for (final String line : Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8)) {
+            final Path path = Paths.get(line.trim());
+
+            // Absolute install destinations end up outside of the prefix and cannot be published
+            if (!line.trim().isEmpty() && path.startsWith(stagingPath)) {
+                files.add(stagingPath.relativize(path));
+            }
+        }
+
+        return files;
+    }
+
+    @Input
+    @Optional
+    public @NotNull Property<String> getBuildConfig() {
+        return buildConfig;
+    }
+
+    /**
+     * The install component to install, as with {@code cmake --install . --component <component>}.
+     * Everything is installed if absent.
+     */
+    @Input
+    @Optional
+    public @NotNull Property<String> getComponent() {
+        return component;
+    }
+
+    /**
+     * The folder the build is installed into. Files in it are only replaced when their content changes.
+     */
+    @OutputDirectory
+    public @NotNull DirectoryProperty getInstallFolder() {
+        return installFolder;
+    }
+}
@@ -0,0 +1,194 @@
+package io.karma.gradlecm;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Build-wide budget of compiler jobs shared by all CMake builds running
+ * at the same time, so that building several native subprojects in parallel
+ * does not oversubscribe the host by the number of subprojects.
+ * <p>
+ * By default every build leases a slice of the budget and passes it on
+ * as its {@code --parallel} level. Alternatively, the service can act as
+ * a GNU make jobserver (make 4.4+, ninja 1.13+) through a named pipe, so
+ * the build tools themselves draw from one shared token pool. Builds using
+ * any other build tool keep leasing slices.
+ * <p>
+ * Every jobserver client runs one job on its implicit slot without taking
+ * a token, so N builds running at the same time may run up to
+ * {@code maxJobs + N - 1} jobs in total.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+public abstract class CMakeJobService implements BuildService<CMakeJobService.Params>, AutoCloseable {
+    static final String NAME = "cmakeJobs";
+
+    private static final Logger LOGGER = Logging.getLogger(CMakeJobService.class);
+
+    private final int maxJobs;
+    private int availableJobs;
+    private int activeLeases;
+    private int waitingBuilds;
+    private boolean jobServerFailed;
+    private File jobServerFifo;
+    private RandomAccessFile jobServerHandle;
+
+    public CMakeJobService() {
+        maxJobs = Math.max(1, getParameters().getMaxJobs().getOrElse(Runtime.getRuntime().availableProcessors()));
+        availableJobs = maxJobs;
+    }
+
+    int getMaxJobs() {
+        return maxJobs;
+    }
+
+    /**
+     * Blocks until at least one job slot is free and leases up to the requested number of slots,
+     * but no more than a fair share of the budget: the budget divided by the number of builds
+     * holding or waiting for a lease, including this one. A lease keeps its size until it is closed,
+     * so a build which starts while the budget is taken waits for the next release.
+     */
+    synchronized @NotNull Lease acquire(final int requestedJobs) throws InterruptedException {
+        waitingBuilds++;
+
+        try {
+            while (availableJobs == 0) {
+                wait();
+            }
+        }
+        finally {
+            waitingBuilds--;
+        }
+
+        final int fairShare = Math.max(1, maxJobs / (activeLeases + waitingBuilds + 1));
+        final int jobs = Math.max(1, Math.min(Math.min(requestedJobs, fairShare), availableJobs));
+        availableJobs -= jobs;
+        activeLeases++;
+        return new Lease(jobs);
+    }
+
+    private synchronized void release(final int jobs) {
+        availableJobs += jobs;
+        activeLeases--;
+        notifyAll();
+    }
+
+    /**
+     * @return the value for {@code --jobserver-auth} in MAKEFLAGS, or null if
+     * the jobserver is disabled or could not be created on this host.
+     */
+    synchronized @Nullable String getJobServerAuth() {
+        if (!getParameters().getJobServer().getOrElse(false) || jobServerFailed) {
+            return null;
+        }
+
+        if (jobServerHandle == null) {
+            try {
+                openJobServer();
+            }
+            catch (IOException | InterruptedException error) {
+                LOGGER.warn("Could not create jobserver, falling back to job slices: {}", error.toString());
+                jobServerFailed = true;
+                closeJobServer();
+                return null;
+            }
+        }
+
+        return "fifo:" + jobServerFifo.getAbsolutePath();
+    }
+
+    private void openJobServer() throws IOException, InterruptedException {
+        if (File.separatorChar == '\\') {
+            throw new IOException("Named pipe jobservers are not supported on Windows");
+        }
+
+        final File folder = Files.createTempDirectory("gradlecm-jobserver").toFile();
+        jobServerFifo = new File(folder, "fifo");
+
+        final Process process = new ProcessBuilder("mkfifo", "-m", "600", jobServerFifo.getAbsolutePath()).redirectErrorStream(true).start();
+
+        if (process.waitFor() != 0) {
+            throw new IOException("mkfifo returned with exit code " + process.exitValue());
+        }
+
+        // Opening the pipe for reading and writing never blocks and keeps it alive
+        // for as long as the build runs. Every client owns one implicit job slot,
+        // so the pool holds one token less than the budget.
+        jobServerHandle = new RandomAccessFile(jobServerFifo, "rw");
+        final byte[] tokens = new byte[maxJobs - 1];
+        Arrays.fill(tokens, (byte) '+');
+        jobServerHandle.write(tokens);
+    }
+
+    private void closeJobServer() {
+        try {
+            if (jobServerHandle != null) {
+                jobServerHandle.close();
+            }
+        }
+        catch (IOException error) {
+            LOGGER.debug("Could not close jobserver", error);
+        }
+
+        if (jobServerFifo != null) {
+            final File folder = jobServerFifo.getParentFile();
+
+            if (!jobServerFifo.delete() || !folder.delete()) {
+                LOGGER.debug("Could not delete jobserver fifo {}", jobServerFifo);
+            }
+        }
+
+        jobServerHandle = null;
+        jobServerFifo = null;
+    }
+
+    @Override
+    public synchronized void close() {
+        closeJobServer();
+    }
+
+    public interface Params extends BuildServiceParameters {
+        /**
+         * The total number of jobs shared by all CMake builds, defaults to the number of logical host threads.
+         */
+        Property<Integer> getMaxJobs();
+
+        /**
+         * Whether to share the budget through a GNU make compatible jobserver.
+         */
+        Property<Boolean> getJobServer();
+    }
+
+    final class Lease implements AutoCloseable {
+        private final int jobs;
+        private boolean isReleased;
+
+        private Lease(final int jobs) {
+            this.jobs = jobs;
+        }
+
+        int getJobs() {
+            return jobs;
+        }
+
+        @Override
+        public void close() {
+            if (!isReleased) {
+                isReleased = true;
+                release(jobs);
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package io.karma.gradlecm;
+
+import groovy.json.JsonOutput;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Records the cost of every CMake invocation of the build: wall time, CPU time and
+ * peak resident memory of the process tree, output volume and exit code.
+ * At the end of the build the metrics are written as JSON and in the OpenMetrics
+ * text format, and every invocation is compared against a baseline file written by
+ * an earlier build, so regressions show up when they are introduced.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+public abstract class CMakeMetricsService implements BuildService<CMakeMetricsService.Params>, AutoCloseable {
+    static final String NAME = "cmakeMetrics";
+    static final String JSON_FILE_NAME = "metrics.json";
+    static final String OPEN_METRICS_FILE_NAME = "metrics.txt";
+
+    private static final Logger LOGGER = Logging.getLogger(CMakeMetricsService.class);
+    private static final long MEMORY_TOLERANCE = 64L << 20; // sampling noise of the resident memory
+
+    private final ArrayList<Execution> executions = new ArrayList<>();
+    private Map<String, Map<String, Object>> baseline;
+
+    /**
+     * Records an invocation and compares it with the baseline. Regressions are logged as warnings,
+     * unless the service is configured to fail on them.
+     *
+     * @return a description of the regressions if the invocation should fail because of them, otherwise null.
+     */
+    synchronized @Nullable String record(final @NotNull Execution execution) {
+        executions.add(execution);
+
+        final Map<String, Object> previous = getBaseline().get(execution.key);
+
+        if (previous == null || execution.exitCode != 0) {
+            return null;
+        }
+
+        final double factor = 1.0 + getParameters().getThreshold().getOrElse(20.0) / 100.0;
+        final long minDuration = getParameters().getMinDuration().getOrElse(1000L);
+        final ArrayList<String> regressions = new ArrayList<>();
+
+        compare(regressions, "wall time", execution.wallMillis, asLong(previous.get("wallMillis")), factor, minDuration, "ms");
+        compare(regressions, "CPU time", execution.cpuMillis, asLong(previous.get("cpuMillis")), factor, minDuration, "ms");
+        compare(regressions, "peak RSS", execution.peakRss >> 20, asLong(previous.get("peakRssBytes")) >> 20, factor, MEMORY_TOLERANCE >> 20, "MiB");
+
+        if (regressions.isEmpty()) {
+            return null;
+        }
+
+        final String message = String.format("%s regressed against the baseline: %s", execution.key, String.join(", ", regressions));
+
+        if (getParameters().getFailOnRegression().getOrElse(false)) {
+            return message;
+        }
+
+        LOGGER.warn(message);
+        return null;
+    }
+
+    private static void compare(final @NotNull List<String> regressions, final @NotNull String name, final long current, final long previous,
+                                final double factor, final long tolerance, final @NotNull String unit) {
+        // Values below 0 are unknown, e.g. CPU time and memory outside of Linux
+        if (current < 0 || previous < 0 || current <= previous * factor || current - previous < tolerance) {
+            return;
+        }
+
+        regressions.add(String.format("%s %d%s -> %d%s (+%.0f%%)", name, previous, unit, current, unit, previous == 0 ? 100.0 : 100.0 * (current - previous) / previous));
+    }
+
+    private @NotNull Map<String, Map<String, Object>> getBaseline() {
+        if (baseline != null) {
+            return baseline;
+        }
+
+        baseline = new HashMap<>();
+        final File file = getParameters().getBaseline().getAsFile().getOrNull();
+
+        if (file == null) {
+            return baseline;
+        }
+
+        if (!file.isFile()) {
+            LOGGER.info("CMake metrics baseline {} does not exist, nothing to compare against", file);
+            return baseline;
+        }
+
+        try {
+            for (final Object entry : CMakeFileApi.asList(CMakeFileApi.asMap(CMakeFileApi.parse(file)).get("executions"))) {
+                final Map<String, Object> map = CMakeFileApi.asMap(entry);
+                final String key = CMakeFileApi.asString(map.get("key"));
+
+                if (key != null) {
+                    baseline.put(key, map);
+                }
+            }
+        }
+        catch (RuntimeException error) {
+            LOGGER.warn("Could not read CMake metrics baseline {}: {}", file, error.toString());
+        }
+
+        return baseline;
+    }
+
+    private static long asLong(final @Nullable Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : -1;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (executions.isEmpty()) {
+            return;
+        }
+
+        final File folder = getParameters().getReportFolder().getAsFile().get();
+
+        try {
+            Files.createDirectories(folder.toPath());
+            writeJson(new File(folder, JSON_FILE_NAME));
+            writeOpenMetrics(new File(folder, OPEN_METRICS_FILE_NAME));
+            LOGGER.lifecycle("CMake metrics of {} invocations written to {}", executions.size(), folder);
+        }
+        catch (IOException error) {
+            LOGGER.warn("Could not write CMake metrics: {}", error.toString());
+        }
+    }
+
+    private void writeJson(final @NotNull File file) throws IOException {
+        final ArrayList<Object> entries = new ArrayList<>();
+
+        for (final Execution execution : executions) {
+            final LinkedHashMap<String, Object> entry = new LinkedHashMap<>();
+            entry.put("key", execution.key);
+            entry.put("wallMillis", execution.wallMillis);
+            entry.put("cpuMillis", execution.cpuMillis);
+            entry.put("peakRssBytes", execution.peakRss);
+            entry.put("outputLines", execution.outputLines);
+            entry.put("outputBytes", execution.outputBytes);
+            entry.put("exitCode", execution.exitCode);
+            entries.add(entry);
+        }
+
+        final String json = JsonOutput.prettyPrint(JsonOutput.toJson(Collections.singletonMap("executions", entries)));
+        Files.write(file.toPath(), json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeOpenMetrics(final @NotNull File file) throws IOException {
+        try (final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+            writeFamily(writer, "cmake_wall_seconds", "Wall time of the CMake invocation", e -> e.wallMillis / 1000.0);
+            writeFamily(writer, "cmake_cpu_seconds", "CPU time of the CMake process tree", e -> e.cpuMillis < 0 ? null : e.cpuMillis / 1000.0);
+            writeFamily(writer, "cmake_peak_rss_bytes", "Peak resident memory of the CMake process tree", e -> e.peakRss < 0 ? null : (double) e.peakRss);
+            writeFamily(writer, "cmake_output_lines", "Lines of output of the CMake invocation", e -> (double) e.outputLines);
+            writeFamily(writer, "cmake_output_bytes", "Bytes of output of the CMake invocation", e -> (double) e.outputBytes);
+            writeFamily(writer, "cmake_exit_code", "Exit code of the CMake invocation", e -> (double) e.exitCode);
+            writer.print("# EOF\n");
+        }
+    }
+
+    private void writeFamily(final @NotNull PrintWriter writer, final @NotNull String name, final @NotNull String help,
+                             final @NotNull Function<Execution, Double> value) {
+        writer.printf("# TYPE %s gauge\n# HELP %s %s.\n", name, name, help);
+
+        for (final Execution execution : executions) {
+            final Double sample = value.apply(execution);
+
+            if (sample != null) {
+                writer.printf("%s{key=\"%s\"} %s\n", name, execution.key.replace("\\", "\\\\").replace("\"", "\\\""), sample);
+            }
+        }
+    }
+
+    static final class Execution {
+        final String key; // the path of the task, followed by the number of the invocation within the task if it is not the first
+        final long wallMillis;
+        final long cpuMillis; // -1 if unknown
+        final long peakRss; // -1 if unknown
+        final long outputLines;
+        final long outputBytes;
+        final int exitCode;
+
+        Execution(final @NotNull String key, final long wallMillis, final long cpuMillis, final long peakRss, final long outputLines,
+                  final long outputBytes, final int exitCode) {
+            this.key = key;
+            this.wallMillis = wallMillis;
+            this.cpuMillis = cpuMillis;
+            this.peakRss = peakRss;
+            this.outputLines = outputLines;
+            this.outputBytes = outputBytes;
+            this.exitCode = exitCode;
+        }
+    }
+
+    public interface Params extends BuildServiceParameters {
+        /**
+         * The folder the metrics are written to at the end of the build.
+         */
+        DirectoryProperty getReportFolder();
+
+        /**
+         * The metrics of an earlier build to compare against, if any.
+         */
+        RegularFileProperty getBaseline();
+
+        /**
+         * The increase in percent above which a metric counts as regressed, 20 by default.
+         */
+        Property<Double> getThreshold();
+
+        /**
+         * The increase in milliseconds a duration must at least exceed to count as regressed,
+         * which keeps short invocations from flagging noise. 1000 by default.
+         */
+        Property<Long> getMinDuration();
+
+        /**
+         * Whether regressions fail the invocation instead of being logged as warnings.
+         */
+        Property<Boolean> getFailOnRegression();
+    }
+}
@@ -13,19 +13,25 @@
 
 package io.karma.gradlecm;
 
-import org.gradle.api.DefaultTask;
-import org.gradle.api.GradleException;
-import org.gradle.api.GradleScriptException;
+import org.gradle.api.NamedDomainObjectProvider;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
-import org.gradle.api.logging.LogLevel;
+import org.gradle.api.Task;
+import org.gradle.api.artifacts.DependencyScopeConfiguration;
+import org.gradle.api.artifacts.ResolvableConfiguration;
+import org.gradle.api.attributes.Usage;
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.TaskContainer;
+import org.gradle.api.tasks.TaskProvider;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * @author Marco 'freudi74' Freudenberger
@@ -33,84 +39,388 @@ import java.io.InputStreamReader;
  */
 public class CMakePlugin implements Plugin<Project> {
     private static final String TASK_GROUP = "cmake";
+    private static final String NATIVE_CONFIGURATION = "cmakeNative";
+    private static final String COMPONENT_CONFIGURATION = "cmakeComponent";
+    private static final String PREFIX_PATH_CONFIGURATION = "cmakePrefixPath";
+    private static final String TARGET_CONFIGURATION = "cmakeTarget";
+    static final String COMPONENTS_CONFIGURATION = "cmakeComponents";
+    private static final Logger LOGGER = Logging.getLogger(CMakePlugin.class);
 
     @Override
     public void apply(final @NotNull Project project) {
         final CMakePluginExtension ext = project.getExtensions().create("cmake", CMakePluginExtension.class, project);
         final TaskContainer tasks = project.getTasks();
 
-        tasks.register("cmakeConfigure", CMakeConfigureTask.class, task -> {
+        // The first project applying the plugin defines the budget for the whole build
+        final Provider<CMakeJobService> jobService = project.getGradle().getSharedServices().registerIfAbsent(CMakeJobService.NAME,
+            CMakeJobService.class, spec -> {
+                spec.getParameters().getMaxJobs().set(ext.getJobBudget());
+                spec.getParameters().getJobServer().set(ext.getJobServer());
+            });
+
+        tasks.withType(CMakeBuildTask.class).configureEach(task -> {
+            task.getJobService().set(jobService);
+            task.usesService(jobService);
+        });
+
+        tasks.withType(CMakeTestTask.class).configureEach(task -> {
+            task.getJobService().set(jobService);
+            task.usesService(jobService);
+        });
+
+        final File capabilityCache = new File(project.getGradle().getGradleUserHomeDir(),
+            "caches" + File.separator + "gradle-cmake" + File.separator + "capabilities");
+        final Provider<CMakeCapabilityService> capabilityService = project.getGradle().getSharedServices().registerIfAbsent(CMakeCapabilityService.NAME,
+            CMakeCapabilityService.class, spec -> spec.getParameters().getCacheFolder().set(capabilityCache));
+
+        final File environmentCache = new File(project.getGradle().getGradleUserHomeDir(),
+            "caches" + File.separator + "gradle-cmake" + File.separator + "environments");
+        final Provider<CMakeEnvironmentService> environmentService = project.getGradle().getSharedServices().registerIfAbsent(CMakeEnvironmentService.NAME,
+            CMakeEnvironmentService.class, spec -> spec.getParameters().getCacheFolder().set(environmentCache));
+
+        tasks.withType(AbstractCMakeTask.class).configureEach(task -> {
+            task.getCapabilityService().set(capabilityService);
+            task.usesService(capabilityService);
+            task.getEnvironmentService().set(environmentService);
+            task.usesService(environmentService);
+            task.getEnvScript().set(ext.getEnvScript());
+            task.getShellEnv().set(ext.getShellEnv());
+        });
+
+        tasks.withType(CMakeGeneratorsTask.class).configureEach(task -> {
+            task.getCapabilityService().set(capabilityService);
+            task.usesService(capabilityService);
+        });
+
+        // Like the job budget, the first project applying the plugin configures the metrics of the whole build
+        final MetricsSpec metrics = ext.getMetrics();
+        final Provider<CMakeMetricsService> metricsService = project.getGradle().getSharedServices().registerIfAbsent(CMakeMetricsService.NAME,
+            CMakeMetricsService.class, spec -> {
+                spec.getParameters().getReportFolder().set(metrics.getReportFolder());
+                spec.getParameters().getBaseline().set(metrics.getBaseline());
+                spec.getParameters().getThreshold().set(metrics.getThreshold());
+                spec.getParameters().getMinDuration().set(metrics.getMinDuration());
+                spec.getParameters().getFailOnRegression().set(metrics.getFailOnRegression());
+            });
+
+        tasks.withType(AbstractCMakeTask.class).configureEach(task -> {
+            task.getMetricsService().set(metrics.getEnabled().flatMap(enabled -> enabled ? metricsService : null));
+            task.usesService(metricsService);
+        });
+
+        final CompilerCacheSpec compilerCache = ext.getCompilerCache();
+        final Provider<String> compilerLauncher = project.provider(() -> {
+            if (!compilerCache.getEnabled().getOrElse(false)) {
+                return null;
+            }
+
+            final File launcher = CompilerCache.find(compilerCache.getLauncher().getOrNull());
+
+            if (launcher == null) {
+                LOGGER.warn("Compiler cache is enabled, but {} could not be found", compilerCache.getLauncher().getOrElse("ccache/sccache"));
+                return null;
+            }
+
+            return launcher.getAbsolutePath();
+        });
+
+        tasks.withType(AbstractCMakeTask.class).configureEach(task -> {
+            task.getCompilerLauncher().set(compilerLauncher);
+            task.getCompilerCacheFolder().set(compilerCache.getCacheFolder());
+            task.getCompilerCacheSize().set(compilerCache.getMaxSize());
+            task.getDiagnostics().set(ext.getDiagnostics());
+            task.getFailureContextLines().set(ext.getFailureContextLines());
+        });
+
+        final JobPoolSpec jobPools = ext.getJobPools();
+        final Provider<long[]> hostResources = project.provider(() -> jobPools.getEnabled().getOrElse(false)
+            ? new long[]{HostResources.getProcessors(), HostResources.getTotalMemory()} : null);
+
+        tasks.withType(CMakeConfigureTask.class).configureEach(task -> {
+            task.getCompileJobPool().set(hostResources.map(host -> JobPoolSpec.size((int) host[0], host[1], jobPools.getCompileMemory(),
+                jobPools.getMaxCompileJobs())));
+            task.getLinkJobPool().set(hostResources.map(host -> JobPoolSpec.size((int) host[0], host[1], jobPools.getLinkMemory(),
+                jobPools.getMaxLinkJobs())));
+        });
+
+        final DependencyCacheSpec dependencyCache = ext.getDependencyCache();
+
+        tasks.withType(CMakeConfigureTask.class).configureEach(task -> {
+            task.getDependencyCacheFolder().set(dependencyCache.getEnabled().flatMap(enabled -> enabled ? dependencyCache.getFolder() : null));
+            task.getDependencyCacheDisconnected().set(dependencyCache.getDisconnected());
+            task.getDependencySeeds().set(dependencyCache.getSeeds());
+        });
+
+        final ProbeCacheSpec probeCache = ext.getProbeCache();
+        tasks.withType(CMakeConfigureTask.class).configureEach(task -> task.getProbeCacheFolder().set(probeCache.getEnabled()
+            .flatMap(enabled -> enabled ? probeCache.getFolder() : null)));
+
+        tasks.withType(CMakeBuildTask.class).configureEach(task -> task.getCompilerCacheStats().set(compilerCache.getShowStats()));
+
+        final NamedDomainObjectProvider<DependencyScopeConfiguration> components = project.getConfigurations().dependencyScope(COMPONENTS_CONFIGURATION);
+        final NamedDomainObjectProvider<ResolvableConfiguration> prefixPath = project.getConfigurations().resolvable(PREFIX_PATH_CONFIGURATION, conf -> {
+            conf.extendsFrom(components.get());
+            conf.getAttributes().attribute(Usage.USAGE_ATTRIBUTE, project.getObjects().named(Usage.class, NativeAttributes.PREFIX_USAGE));
+        });
+        ext.getPrefixPath().from(prefixPath);
+
+        final TaskProvider<CMakeConfigureTask> configure = tasks.register("cmakeConfigure", CMakeConfigureTask.class, task -> configureTask(task, ext));
+        final TaskProvider<CMakeBuildTask> build = tasks.register("cmakeBuild", CMakeBuildTask.class, task -> {
+            buildTask(task, ext);
+            task.dependsOn(configure);
+        });
+        tasks.register("cmakeTest", CMakeTestTask.class, task -> {
+            testTask(task, ext);
+            task.dependsOn(build);
+        });
+
+        final TaskProvider<CMakeInstallTask> install = tasks.register("cmakeInstall", CMakeInstallTask.class, task -> {
+            installTask(task, ext);
+            task.dependsOn(build);
+        });
+        NativeAttributes.configure(project.getConfigurations().consumable(NATIVE_CONFIGURATION), project.getObjects(),
+            install.flatMap(CMakeInstallTask::getInstallFolder), ext.getBuildConfig(), ext.getOperatingSystem(), ext.getArchitecture());
+
+        final TaskProvider<Task> configureVariants = tasks.register("cmakeConfigureVariants", task -> {
             task.setGroup(TASK_GROUP);
-            task.getExecutable().set(ext.getExecutable());
-            task.getWorkingFolder().set(ext.getWorkingFolder());
-            task.getSourceFolder().set(ext.getSourceFolder());
-            task.getConfigurationTypes().set(ext.getConfigurationTypes());
-            task.getInstallPrefix().set(ext.getInstallPrefix());
-            task.getGenerator().set(ext.getGenerator());
-            task.getPlatform().set(ext.getPlatform());
-            task.getToolset().set(ext.getToolset());
-            task.getBuildSharedLibs().set(ext.getBuildSharedLibs());
-            task.getBuildStaticLibs().set(ext.getBuildStaticLibs());
-            task.getDefs().set(ext.getDefs());
-        });
-
-        tasks.register("cmakeBuild", CMakeBuildTask.class, task -> {
+            task.setDescription("Configure all CMake variants");
+        });
+
+        final TaskProvider<Task> buildVariants = tasks.register("cmakeBuildVariants", task -> {
             task.setGroup(TASK_GROUP);
-            task.getExecutable().set(ext.getExecutable());
+            task.setDescription("Build all CMake variants");
+        });
+
+        ext.getVariants().all(variant -> {
+            final String suffix = variant.getTaskSuffix();
+            final TaskProvider<CMakeInstallTask> variantInstall = registerVariant(project, ext, variant, suffix,
+                String.format("the %s variant", variant.getName()), "cmake-" + variant.getName(), "cmake-install-" + variant.getName());
+            NativeAttributes.configure(project.getConfigurations().consumable(NATIVE_CONFIGURATION + suffix), project.getObjects(),
+                variantInstall.flatMap(CMakeInstallTask::getInstallFolder), variant.getBuildConfig().orElse(ext.getBuildConfig()),
+                variant.getOperatingSystem().orElse(ext.getOperatingSystem()), variant.getArchitecture().orElse(ext.getArchitecture()));
+
+            configureVariants.configure(task -> task.dependsOn("cmakeConfigure" + suffix));
+            buildVariants.configure(task -> task.dependsOn("cmakeBuild" + suffix));
+        });
+
+        // Components are built by the project declaring them and reach other projects only through their install prefix
+        ext.getComponents().all(component -> {
+            final String folder = "cmake-components" + File.separator + component.getName();
+            final TaskProvider<CMakeInstallTask> componentInstall = registerVariant(project, ext, component, "Component" + component.getTaskSuffix(),
+                String.format("the shared %s component", component.getName()), folder, folder + "-install");
+            NativeAttributes.configureComponent(project.getConfigurations().consumable(COMPONENT_CONFIGURATION + component.getTaskSuffix()),
+                project.getObjects(), component.getName(), componentInstall.flatMap(CMakeInstallTask::getInstallFolder));
+        });
+
+        tasks.register("cmakeClean", CMakeCleanTask.class, task -> {
             task.getWorkingFolder().set(ext.getWorkingFolder());
-            task.getBuildConfig().set(ext.getBuildConfig());
-            task.getBuildTarget().set(ext.getBuildTarget());
-            task.getBuildClean().set(ext.getBuildClean());
+            // A stale clean compares against the current build graph, so it has to see the fresh configuration
+            task.mustRunAfter(task.getStale().orElse(false).map(stale -> stale ? configure : Collections.emptyList()));
         });
+        tasks.register("cmakeGenerators", CMakeGeneratorsTask.class, task -> task.getExecutable().set(ext.getExecutable()));
 
-        tasks.register("cmakeClean", DefaultTask.class, task -> {
-            task.setGroup(TASK_GROUP);
-            task.setDescription("Clean CMake configuration");
-
-            task.doFirst(t -> {
-                final File workingFolder = ext.getWorkingFolder().getAsFile().get().getAbsoluteFile();
-                if (workingFolder.exists()) {
-                    project.getLogger().info("Deleting folder " + workingFolder);
-                    if (!Utils.deleteDirectory(workingFolder)) {
-                        throw new GradleException("Could not delete working folder " + workingFolder);
-                    }
-                }
-            });
+        // The targets and the trees are only known once the build script configured the working folders
+        project.afterEvaluate(p -> {
+            tasks.withType(AbstractCMakeTask.class).configureEach(task -> useTreeLock(project, task, task.getWorkingFolder()));
+            tasks.withType(CMakeCleanTask.class).configureEach(task -> useTreeLock(project, task, task.getWorkingFolder()));
+            registerTargetTasks(project, ext, configure);
         });
+    }
 
-        tasks.register("cmakeGenerators", DefaultTask.class, task -> {
-            task.setGroup(TASK_GROUP);
-            task.setDescription("List available CMake generators");
-
-            task.doFirst(t -> {
-                // should go to clean...
-                final ProcessBuilder pb = new ProcessBuilder(ext.getExecutable().getOrElse("cmake"), "--help");
-
-                try {
-                    // start
-                    final Process process = pb.start();
-                    final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-
-                    String line;
-                    boolean foundGenerators = false;
-
-                    while ((line = reader.readLine()) != null) {
-                        if (line.equals("Generators")) {
-                            foundGenerators = true;
-                        }
-                        if (foundGenerators) {
-                            project.getLogger().log(LogLevel.QUIET, line);
-                        }
-                    }
-                    process.waitFor();
-                }
-                catch (IOException |
-                       InterruptedException e) {
-                    throw new GradleScriptException("cmake --help failed.", e);
-                }
-            });
+    /**
+     * Makes the given task hold the lock of the binary tree it works on while it runs, so tasks
+     * of the same tree never run at the same time, even when they belong to different projects.
+     */
+    private static void useTreeLock(final @NotNull Project project, final @NotNull Task task, final @NotNull DirectoryProperty workingFolder) {
+        final File folder = workingFolder.getAsFile().get();
+        task.usesService(project.getGradle().getSharedServices().registerIfAbsent(CMakeTreeLock.getName(folder), CMakeTreeLock.class,
+            spec -> spec.getMaxParallelUsages().set(1)));
+    }
+
+    /**
+     * Registers the configure, build, test and install tasks of a variant or component. Everything the variant
+     * leaves unset is taken from the main configuration, but it gets its own working and install folder.
+     */
+    private static @NotNull TaskProvider<CMakeInstallTask> registerVariant(final @NotNull Project project, final @NotNull CMakePluginExtension ext,
+                                                                         final @NotNull CMakeVariant variant, final @NotNull String suffix,
+                                                                         final @NotNull String label, final @NotNull String workingFolderName,
+                                                                         final @NotNull String installFolderName) {
+        final TaskContainer tasks = project.getTasks();
+        final CMakeComponent component = variant instanceof CMakeComponent ? (CMakeComponent) variant : null;
+        final Provider<Directory> workingFolder = variant.getWorkingFolder().orElse(project.getLayout().getBuildDirectory().dir(workingFolderName));
+
+        final TaskProvider<CMakeConfigureTask> configure = tasks.register("cmakeConfigure" + suffix, CMakeConfigureTask.class, task -> {
+            configureTask(task, ext);
+            task.setDescription(String.format("Configure %s with CMake", label));
+            task.getWorkingFolder().set(workingFolder);
+            task.getGenerator().set(variant.getGenerator().orElse(ext.getGenerator()));
+            task.getConfigurationTypes().set(variant.getConfigurationTypes().orElse(ext.getConfigurationTypes()));
+            task.getInstallPrefix().set(variant.getInstallPrefix().orElse(ext.getInstallPrefix()));
+            task.getPlatform().set(variant.getPlatform().orElse(ext.getPlatform()));
+            task.getToolset().set(variant.getToolset().orElse(ext.getToolset()));
+            task.getBuildSharedLibs().set(variant.getBuildSharedLibs().orElse(ext.getBuildSharedLibs()));
+            task.getBuildStaticLibs().set(variant.getBuildStaticLibs().orElse(ext.getBuildStaticLibs()));
+            task.getDefs().putAll(variant.getDefs());
+            task.getEnv().putAll(variant.getEnv());
+
+            if (component != null) {
+                task.getSourceFolder().set(component.getSourceFolder());
+                task.getPrefixPath().setFrom(); // The prefixes are meant for the consumers, a component never sees itself
+            }
         });
 
-        tasks.getByName("cmakeBuild").dependsOn(tasks.getByName("cmakeConfigure"));
+        final TaskProvider<CMakeBuildTask> build = tasks.register("cmakeBuild" + suffix, CMakeBuildTask.class, task -> {
+            buildTask(task, ext);
+            task.setDescription(String.format("Build %s with CMake", label));
+            task.getWorkingFolder().set(workingFolder);
+            task.getGenerator().set(variant.getGenerator().orElse(ext.getGenerator()));
+            task.getBuildConfig().set(variant.getBuildConfig().orElse(ext.getBuildConfig()));
+            task.getBuildTarget().set(variant.getBuildTarget().orElse(ext.getBuildTarget()));
+            task.getEnv().putAll(variant.getEnv());
+            task.dependsOn(configure);
+
+            if (component != null) {
+                task.getSourceFolder().set(component.getSourceFolder());
+                task.getPrefixPath().setFrom();
+                task.getInstallFolder().set((Directory) null); // Installed by its own task, which publishes the prefix
+            }
+        });
+
+        tasks.register("cmakeTest" + suffix, CMakeTestTask.class, task -> {
+            testTask(task, ext);
+            task.setDescription(String.format("Run the tests of %s with CTest", label));
+            task.getWorkingFolder().set(workingFolder);
+            task.getGenerator().set(variant.getGenerator().orElse(ext.getGenerator()));
+            task.getBuildConfig().set(variant.getBuildConfig().orElse(ext.getBuildConfig()));
+            task.getEnv().putAll(variant.getEnv());
+            task.dependsOn(build);
+
+            if (component != null) {
+                task.getSourceFolder().set(component.getSourceFolder());
+            }
+        });
+
+        return tasks.register("cmakeInstall" + suffix, CMakeInstallTask.class, task -> {
+            installTask(task, ext);
+            task.setDescription(String.format("Install %s incrementally", label));
+            task.getWorkingFolder().set(workingFolder);
+            task.getGenerator().set(variant.getGenerator().orElse(ext.getGenerator()));
+            task.getBuildConfig().set(variant.getBuildConfig().orElse(ext.getBuildConfig()));
+            task.getInstallFolder().set(project.getLayout().getBuildDirectory().dir(installFolderName));
+            task.getEnv().putAll(variant.getEnv());
+            task.dependsOn(build);
+
+            if (component != null) {
+                task.getSourceFolder().set(component.getSourceFolder());
+            }
+        });
+    }
+
+    /**
+     * Registers a build task and a consumable configuration for every target of the main binary tree,
+     * as reported by the codemodel of the last configure run, so consumers can depend on single targets.
+     * Neither exists before the first configure of a fresh checkout, so consumers have to look them up
+     * leniently, e.g. with {@code tasks.matching}, and run cmakeConfigure in an earlier build.
+     */
+    private static void registerTargetTasks(final @NotNull Project project, final @NotNull CMakePluginExtension ext,
+                                            final @NotNull TaskProvider<CMakeConfigureTask> configure) {
+        if (!ext.getTargetTasks().getOrElse(false)) {
+            return;
+        }
+
+        final TaskContainer tasks = project.getTasks();
+        final File workingFolder = ext.getWorkingFolder().getAsFile().get();
+        final List<String> targets = project.getProviders().of(CMakeTargetsSource.class, spec -> {
+            spec.getParameters().getWorkingFolder().set(ext.getWorkingFolder());
+            spec.getParameters().getBuildConfig().set(ext.getBuildConfig());
+        }).get();
+
+        if (targets.isEmpty()) {
+            LOGGER.info("{} has not been configured yet, run cmakeConfigure to get a build task per target", workingFolder);
+        }
+
+        for (final String target : targets) {
+            final String suffix = CMakeTargetsSource.toTaskSuffix(target);
+            final String name = "cmakeBuild" + suffix;
+
+            if (tasks.getNames().contains(name) || project.getConfigurations().getNames().contains(TARGET_CONFIGURATION + suffix)) {
+                LOGGER.warn("Not registering a build task for CMake target {}, the task {} or configuration {} already exists", target, name,
+                    TARGET_CONFIGURATION + suffix);
+                continue;
+            }
+
+            final TaskProvider<CMakeBuildTask> build = tasks.register(name, CMakeBuildTask.class, task -> {
+                buildTask(task, ext);
+                task.setDescription(String.format("Build the CMake target %s", target));
+                task.getBuildTarget().set(target);
+                task.getInstallFolder().set((Directory) null); // Installing covers the whole tree, not a single target
+                task.dependsOn(configure);
+            });
+            NativeAttributes.configureTarget(project.getConfigurations().consumable(TARGET_CONFIGURATION + suffix), project.getObjects(), target,
+                build, ext.getBuildConfig(), ext.getOperatingSystem(), ext.getArchitecture());
+        }
+    }
+
+    private static void configureTask(final @NotNull CMakeConfigureTask task, final @NotNull CMakePluginExtension ext) {
+        task.setGroup(TASK_GROUP);
+        task.getExecutable().set(ext.getExecutable());
+        task.getWorkingFolder().set(ext.getWorkingFolder());
+        task.getSourceFolder().set(ext.getSourceFolder());
+        task.getConfigurationTypes().set(ext.getConfigurationTypes());
+        task.getInstallPrefix().set(ext.getInstallPrefix());
+        task.getGenerator().set(ext.getGenerator());
+        task.getPlatform().set(ext.getPlatform());
+        task.getToolset().set(ext.getToolset());
+        task.getBuildSharedLibs().set(ext.getBuildSharedLibs());
+        task.getBuildStaticLibs().set(ext.getBuildStaticLibs());
+        task.getDefs().putAll(ext.getDefs());
+        task.getEnv().putAll(ext.getEnv());
+        task.getReuseConfiguration().set(ext.getReuseConfiguration());
+        task.getOutputBufferLines().set(ext.getOutputBufferLines());
+        task.getPrefixPath().from(ext.getPrefixPath());
+    }
+
+    private static void buildTask(final @NotNull CMakeBuildTask task, final @NotNull CMakePluginExtension ext) {
+        task.setGroup(TASK_GROUP);
+        task.getExecutable().set(ext.getExecutable());
+        task.getWorkingFolder().set(ext.getWorkingFolder());
+        task.getSourceFolder().set(ext.getSourceFolder());
+        task.getGenerator().set(ext.getGenerator());
+        task.getBuildConfig().set(ext.getBuildConfig());
+        task.getBuildTarget().set(ext.getBuildTarget());
+        task.getBuildClean().set(ext.getBuildClean());
+        task.getParallelJobs().set(ext.getParallelJobs());
+        task.getParallelPercent().set(ext.getParallelPercent());
+        task.getMaxLoad().set(ext.getMaxLoad());
+        task.getInstallFolder().set(ext.getBuildInstallFolder());
+        task.getTimingReport().set(ext.getBuildTimingReport());
+        task.getEnv().putAll(ext.getEnv());
+        task.getOutputBufferLines().set(ext.getOutputBufferLines());
+        task.getPrefixPath().from(ext.getPrefixPath());
+        task.getRootPath().set(task.getProject().getRootDir().getAbsolutePath());
+        task.getGradleUserHomePath().set(task.getProject().getGradle().getGradleUserHomeDir().getAbsolutePath());
+    }
+
+    private static void testTask(final @NotNull CMakeTestTask task, final @NotNull CMakePluginExtension ext) {
+        task.setGroup(TASK_GROUP);
+        task.getExecutable().set(ext.getExecutable());
+        task.getWorkingFolder().set(ext.getWorkingFolder());
+        task.getSourceFolder().set(ext.getSourceFolder());
+        task.getGenerator().set(ext.getGenerator());
+        task.getBuildConfig().set(ext.getBuildConfig());
+        task.getParallelJobs().set(ext.getParallelJobs());
+        task.getEnv().putAll(ext.getEnv());
+        task.getOutputBufferLines().set(ext.getOutputBufferLines());
+    }
+
+    private static void installTask(final @NotNull CMakeInstallTask task, final @NotNull CMakePluginExtension ext) {
+        task.setGroup(TASK_GROUP);
+        task.getExecutable().set(ext.getExecutable());
+        task.getWorkingFolder().set(ext.getWorkingFolder());
+        task.getSourceFolder().set(ext.getSourceFolder());
+        task.getGenerator().set(ext.getGenerator());
+        task.getBuildConfig().set(ext.getBuildConfig());
+        task.getEnv().putAll(ext.getEnv());
+        task.getOutputBufferLines().set(ext.getOutputBufferLines());
     }
-}
\ No newline at end of file
+}
@@ -13,14 +13,21 @@
 
 package io.karma.gradlecm;
 
+import org.gradle.api.Action;
+import org.gradle.api.NamedDomainObjectContainer;
 import org.gradle.api.Project;
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.dsl.DependencyHandler;
+import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.provider.MapProperty;
 import org.gradle.api.provider.Property;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
+import java.util.Collections;
 
 /**
  * @author Marco 'freudi74' Freudenberger
@@ -33,7 +40,11 @@ public class CMakePluginExtension {
     private final DirectoryProperty workingFolder;
     private final Property<String> generator; // for example: "Visual Studio 16 2019"
     private final MapProperty<String, String> env;
+    private final RegularFileProperty envScript;
     private final MapProperty<String, String> shellEnv;
+    private final Property<Integer> outputBufferLines;
+    private final Property<Boolean> diagnostics;
+    private final Property<Integer> failureContextLines;
 
     // parameters used by config step
     private final DirectoryProperty sourceFolder;
@@ -44,11 +55,45 @@ public class CMakePluginExtension {
     private final Property<Boolean> buildSharedLibs;
     private final Property<Boolean> buildStaticLibs;
     private final MapProperty<String, String> defs;
+    private final Property<Boolean> reuseConfiguration;
 
     // parameters used on build step
     private final Property<String> buildConfig;
     private final Property<String> buildTarget;
     private final Property<Boolean> buildClean;
+    private final Property<Integer> parallelJobs;
+    private final Property<Integer> parallelPercent;
+    private final Property<Double> maxLoad;
+    private final DirectoryProperty buildInstallFolder;
+    private final Property<Boolean> buildTimingReport;
+    private final Property<Integer> jobBudget;
+    private final Property<Boolean> jobServer;
+    private final Property<Boolean> targetTasks;
+    private final Property<String> operatingSystem;
+    private final Property<String> architecture;
+
+    // compiler launcher integration, e.g. ccache
+    private final CompilerCacheSpec compilerCache;
+
+    // memory aware Ninja job pools
+    private final JobPoolSpec jobPools;
+
+    // shared FetchContent sources
+    private final DependencyCacheSpec dependencyCache;
+
+    // compiler identification and check results of earlier configure runs
+    private final ProbeCacheSpec probeCache;
+
+    // build-wide metrics of all CMake invocations
+    private final MetricsSpec metrics;
+
+    // additional configure/build task pairs
+    private final NamedDomainObjectContainer<CMakeVariant> variants;
+
+    // CMake projects built once and shared with other projects
+    private final NamedDomainObjectContainer<CMakeComponent> components;
+    private final ConfigurableFileCollection prefixPath;
+    private final DependencyHandler dependencies;
 
 
     public CMakePluginExtension(final @NotNull Project project) {
@@ -59,7 +104,11 @@ public class CMakePluginExtension {
         workingFolder       = factory.directoryProperty();
         generator           = factory.property(String.class);
         env                 = factory.mapProperty(String.class, String.class);
+        envScript           = factory.fileProperty();
         shellEnv            = factory.mapProperty(String.class, String.class);
+        outputBufferLines   = factory.property(Integer.class);
+        diagnostics         = factory.property(Boolean.class);
+        failureContextLines = factory.property(Integer.class);
 
         sourceFolder        = factory.directoryProperty();
         configurationTypes  = factory.property(String.class);
@@ -69,15 +118,49 @@ public class CMakePluginExtension {
         buildSharedLibs     = factory.property(Boolean.class);
         buildStaticLibs     = factory.property(Boolean.class);
         defs                = factory.mapProperty(String.class, String.class);
+        reuseConfiguration  = factory.property(Boolean.class);
 
         buildConfig         = factory.property(String.class);
         buildTarget         = factory.property(String.class);
         buildClean          = factory.property(Boolean.class);
+        parallelJobs        = factory.property(Integer.class);
+        parallelPercent     = factory.property(Integer.class);
+        maxLoad             = factory.property(Double.class);
+        buildInstallFolder  = factory.directoryProperty();
+        buildTimingReport   = factory.property(Boolean.class);
+        jobBudget           = factory.property(Integer.class);
+        jobServer           = factory.property(Boolean.class);
+        targetTasks         = factory.property(Boolean.class);
+        operatingSystem     = factory.property(String.class);
+        architecture        = factory.property(String.class);
+
+        compilerCache       = new CompilerCacheSpec(factory);
+        jobPools            = new JobPoolSpec(factory);
+        dependencyCache     = new DependencyCacheSpec(factory);
+        probeCache          = new ProbeCacheSpec(factory);
+        metrics             = new MetricsSpec(factory);
+        variants            = factory.domainObjectContainer(CMakeVariant.class, name -> new CMakeVariant(name, factory));
+        components          = factory.domainObjectContainer(CMakeComponent.class, name -> new CMakeComponent(name, factory));
+        prefixPath          = factory.fileCollection();
+        dependencies        = project.getDependencies();
         // @formatter:on
 
         // default values
-        workingFolder.set(new File(project.getBuildDir(), "cmake"));
-        sourceFolder.set(new File(project.getBuildDir(), "src" + File.separator + "main" + File.separator + "cpp"));
+        workingFolder.set(project.getLayout().getBuildDirectory().dir("cmake"));
+        final File compilerCacheFolder = new File(project.getGradle().getGradleUserHomeDir(),
+            "caches" + File.separator + "gradle-cmake" + File.separator + "compiler-cache");
+        compilerCache.getCacheFolder().convention(project.getLayout().dir(project.provider(() -> compilerCacheFolder)));
+        compilerCache.getMaxSize().convention("5G");
+        jobPools.getLinkMemory().convention("4G");
+        final File dependencyCacheFolder = new File(project.getGradle().getGradleUserHomeDir(),
+            "caches" + File.separator + "gradle-cmake" + File.separator + "dependencies");
+        dependencyCache.getFolder().convention(project.getLayout().dir(project.provider(() -> dependencyCacheFolder)));
+        dependencyCache.getDisconnected().convention(true);
+        final File probeCacheFolder = new File(project.getGradle().getGradleUserHomeDir(),
+            "caches" + File.separator + "gradle-cmake" + File.separator + "probes");
+        probeCache.getFolder().convention(project.getLayout().dir(project.provider(() -> probeCacheFolder)));
+        metrics.getReportFolder().convention(project.getRootProject().getLayout().getBuildDirectory().dir("reports/cmake-metrics"));
+        sourceFolder.set(project.getLayout().getProjectDirectory().dir("src/main/cpp"));
     }
 
     public @NotNull Property<String> getExecutable() {
@@ -124,6 +207,10 @@ public class CMakePluginExtension {
         return defs;
     }
 
+    public @NotNull Property<Boolean> getReuseConfiguration() {
+        return reuseConfiguration;
+    }
+
     public @NotNull Property<String> getBuildConfig() {
         return buildConfig;
     }
@@ -136,11 +223,167 @@ public class CMakePluginExtension {
         return buildClean;
     }
 
+    public @NotNull Property<Integer> getParallelJobs() {
+        return parallelJobs;
+    }
+
+    public @NotNull Property<Integer> getParallelPercent() {
+        return parallelPercent;
+    }
+
+    public @NotNull Property<Double> getMaxLoad() {
+        return maxLoad;
+    }
+
+    public @NotNull DirectoryProperty getBuildInstallFolder() {
+        return buildInstallFolder;
+    }
+
+    public @NotNull Property<Boolean> getBuildTimingReport() {
+        return buildTimingReport;
+    }
+
+    public @NotNull Property<Integer> getJobBudget() {
+        return jobBudget;
+    }
+
+    public @NotNull Property<Boolean> getJobServer() {
+        return jobServer;
+    }
+
+    /**
+     * Whether to register a cmakeBuild&lt;Target&gt; task for every library and executable target
+     * the codemodel of the last configure run reports.
+     */
+    public @NotNull Property<Boolean> getTargetTasks() {
+        return targetTasks;
+    }
+
+    /**
+     * The operating system family the build targets, e.g. "linux", if it is not the one of the host.
+     * Published as attribute of the installed build.
+     */
+    public @NotNull Property<String> getOperatingSystem() {
+        return operatingSystem;
+    }
+
+    /**
+     * The architecture the build targets, e.g. "aarch64", if it is not the one of the host.
+     * Published as attribute of the installed build.
+     */
+    public @NotNull Property<String> getArchitecture() {
+        return architecture;
+    }
+
+    public @NotNull CompilerCacheSpec getCompilerCache() {
+        return compilerCache;
+    }
+
+    public void compilerCache(final @NotNull Action<? super CompilerCacheSpec> action) {
+        action.execute(compilerCache);
+    }
+
+    public @NotNull JobPoolSpec getJobPools() {
+        return jobPools;
+    }
+
+    public void jobPools(final @NotNull Action<? super JobPoolSpec> action) {
+        action.execute(jobPools);
+    }
+
+    public @NotNull DependencyCacheSpec getDependencyCache() {
+        return dependencyCache;
+    }
+
+    public void dependencyCache(final @NotNull Action<? super DependencyCacheSpec> action) {
+        action.execute(dependencyCache);
+    }
+
+    public @NotNull ProbeCacheSpec getProbeCache() {
+        return probeCache;
+    }
+
+    public void probeCache(final @NotNull Action<? super ProbeCacheSpec> action) {
+        action.execute(probeCache);
+    }
+
+    public @NotNull MetricsSpec getMetrics() {
+        return metrics;
+    }
+
+    public void metrics(final @NotNull Action<? super MetricsSpec> action) {
+        action.execute(metrics);
+    }
+
+    public @NotNull NamedDomainObjectContainer<CMakeVariant> getVariants() {
+        return variants;
+    }
+
+    public void variants(final @NotNull Action<? super NamedDomainObjectContainer<CMakeVariant>> action) {
+        action.execute(variants);
+    }
+
+    public @NotNull NamedDomainObjectContainer<CMakeComponent> getComponents() {
+        return components;
+    }
+
+    public void components(final @NotNull Action<? super NamedDomainObjectContainer<CMakeComponent>> action) {
+        action.execute(components);
+    }
+
+    /**
+     * Install prefixes passed to the main configuration and all variants as {@code CMAKE_PREFIX_PATH}.
+     * The components added with {@link #useComponent(String, String)} are part of it.
+     */
+    public @NotNull ConfigurableFileCollection getPrefixPath() {
+        return prefixPath;
+    }
+
+    /**
+     * Puts the install prefix of a component declared in the root project on the {@code CMAKE_PREFIX_PATH}.
+     */
+    public void useComponent(final @NotNull String name) {
+        useComponent(":", name);
+    }
+
+    /**
+     * Puts the install prefix of a component declared in the given project on the {@code CMAKE_PREFIX_PATH}.
+     * The component is built once by its project, no matter how many projects use it.
+     */
+    public void useComponent(final @NotNull String projectPath, final @NotNull String name) {
+        final ModuleDependency dependency = (ModuleDependency) dependencies.project(Collections.singletonMap("path", projectPath));
+        dependency.capabilities(capabilities -> capabilities.requireCapability(NativeAttributes.getComponentCapability(name)));
+        dependencies.add(CMakePlugin.COMPONENTS_CONFIGURATION, dependency);
+    }
+
     public @NotNull MapProperty<String, String> getEnv() {
         return env;
     }
 
+    /**
+     * A script setting up the environment of a toolchain, like the setvars.sh of Intel oneAPI.
+     * It is sourced once, and the environment it leaves behind is cached and applied to every CMake invocation.
+     */
+    public @NotNull RegularFileProperty getEnvScript() {
+        return envScript;
+    }
+
+    /**
+     * Environment variables to source the env script with.
+     */
     public @NotNull MapProperty<String, String> getShellEnv() {
         return shellEnv;
     }
+
+    public @NotNull Property<Integer> getOutputBufferLines() {
+        return outputBufferLines;
+    }
+
+    public @NotNull Property<Boolean> getDiagnostics() {
+        return diagnostics;
+    }
+
+    public @NotNull Property<Integer> getFailureContextLines() {
+        return failureContextLines;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+package io.karma.gradlecm;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.ValueSource;
+import org.gradle.api.provider.ValueSourceParameters;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Lists the buildable targets of a configured binary tree from the codemodel of its
+ * CMake File API reply. As a value source, it is evaluated again whenever Gradle checks
+ * whether a cached configuration is still valid, so targets added by a later configure
+ * invalidate the configuration cache like any other input.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+public abstract class CMakeTargetsSource implements ValueSource<List<String>, CMakeTargetsSource.Params> {
+    // Utility targets are custom commands or generator internals like ALL_BUILD and ZERO_CHECK
+    private static final HashSet<String> BUILDABLE_TYPES = new HashSet<>(Arrays.asList("EXECUTABLE", "STATIC_LIBRARY", "SHARED_LIBRARY",
+        "MODULE_LIBRARY", "OBJECT_LIBRARY"));
+
+    @Override
+    public @NotNull List<String> obtain() {
+        final File folder = getParameters().getWorkingFolder().getAsFile().get();
+        final CMakeFileApi.Reply reply = CMakeFileApi.readReply(folder);
+
+        if (reply == null) {
+            return Collections.emptyList();
+        }
+
+        final ArrayList<String> names = new ArrayList<>();
+
+        for (final CMakeFileApi.Target target : reply.getTargets(getParameters().getBuildConfig().getOrNull())) {
+            if (BUILDABLE_TYPES.contains(target.getType())) {
+                names.add(target.getName());
+            }
+        }
+
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Turns a target name like {@code foo-core_jni} into a task name suffix like {@code FooCoreJni}.
+     */
+    static @NotNull String toTaskSuffix(final @NotNull String targetName) {
+        final StringBuilder sb = new StringBuilder();
+        boolean upperNext = true;
+
+        for (final char c : targetName.toCharArray()) {
+            if (!Character.isLetterOrDigit(c)) {
+                upperNext = true;
+                continue;
+            }
+
+            sb.append(upperNext ? Character.toUpperCase(c) : c);
+            upperNext = false;
+        }
+
+        return sb.toString();
+    }
+
+    public interface Params extends ValueSourceParameters {
+        DirectoryProperty getWorkingFolder();
+
+        Property<String> getBuildConfig();
+    }
+}
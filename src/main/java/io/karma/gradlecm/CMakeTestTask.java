@@ -0,0 +1,294 @@
+package io.karma.gradlecm;
+
+import groovy.json.JsonSlurper;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.options.Option;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the tests of a built CMake binary tree with CTest, in parallel and optionally
+ * only a shard of them, so a long native test suite can be split across CI agents.
+ * The results are written as JUnit XML, which Gradle and CI servers understand.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+public class CMakeTestTask extends AbstractCMakeTask {
+    private static final String SHARD_FILE_NAME = "gradle-shard.txt";
+
+    private final Property<String> buildConfig;
+    private final Property<Integer> parallelJobs;
+    private final Property<String> shard;
+    private final RegularFileProperty costData;
+    private final RegularFileProperty junitReport;
+    private final Property<CMakeJobService> jobService;
+
+    public CMakeTestTask() {
+        super(); // Make sure our shared properties are initialized
+
+        final ObjectFactory factory = getObjectFactory();
+
+        setGroup("cmake");
+        setDescription("Run the tests of a built CMake build with CTest");
+
+        // @formatter:off
+        buildConfig  = factory.property(String.class);
+        parallelJobs = factory.property(Integer.class);
+        shard        = factory.property(String.class);
+        costData     = factory.fileProperty();
+        junitReport  = factory.fileProperty();
+        jobService   = factory.property(CMakeJobService.class);
+        // @formatter:on
+
+        costData.convention(workingFolder.file(CTestShards.COST_DATA_PATH.replace(File.separatorChar, '/')));
+        junitReport.convention(getProjectLayout().getBuildDirectory().file("test-results/" + getName() + "/ctest.xml"));
+
+        // Like the Test task, the outcome depends on more than the declared inputs
+        getOutputs().upToDateWhen(task -> false);
+    }
+
+    @Override
+    protected void copyConfiguration(final @NotNull CMakePluginExtension ext) {
+        buildConfig.set(ext.getBuildConfig());
+        parallelJobs.set(ext.getParallelJobs());
+    }
+
+    /**
+     * CTest is installed next to CMake, so it is looked up in the folder of the CMake executable first.
+     */
+    private @NotNull String getCTestExecutable() {
+        final File cmake = Utils.findExecutable(executable.getOrElse("cmake"));
+
+        if (cmake != null) {
+            final File ctest = new File(cmake.getParentFile(), cmake.getName().endsWith(".exe") ? "ctest.exe" : "ctest");
+
+            if (ctest.isFile()) {
+                return ctest.getAbsolutePath();
+            }
+        }
+
+        return "ctest";
+    }
+
+    @Override
+    protected @NotNull ArrayList<String> newCmdLine() {
+        final ArrayList<String> params = new ArrayList<>();
+        params.add(getCTestExecutable());
+        return params;
+    }
+
+    @Override
+    protected void gatherParameters(final @NotNull ArrayList<String> params) {
+        params.add("--output-on-failure");
+
+        if (buildConfig.isPresent()) {
+            params.add("-C");
+            params.add(buildConfig.get());
+        }
+
+        params.add("--parallel");
+        params.add(Integer.toString(parallelJobs.getOrElse(Runtime.getRuntime().availableProcessors())));
+
+        final CMakeCapabilities capabilities = getCapabilities();
+
+        if (capabilities == null || capabilities.isAtLeast(3, 21)) {
+            params.add("--output-junit");
+            params.add(junitReport.getAsFile().get().getAbsolutePath());
+        }
+        else {
+            getLogger().warn("JUnit reports require CMake 3.21 or newer, but {} is used", capabilities.getVersion());
+        }
+    }
+
+    @Override
+    protected void gatherBuildParameters(final @NotNull ArrayList<String> params) {}
+
+    @Override
+    protected void configureExec(final @NotNull CMakeExecAction.Params params, final @NotNull List<String> cmdLine) {
+        final int parallelIndex = cmdLine.indexOf("--parallel");
+
+        // Tests draw from the same budget as builds, which may well run at the same time
+        if (jobService.isPresent() && parallelIndex >= 0) {
+            params.getJobService().set(jobService);
+            params.getJobsArgumentIndex().set(parallelIndex + 1);
+        }
+    }
+
+    @Override
+    public void performAction() {
+        final File folder = workingFolder.getAsFile().get();
+        final ArrayList<String> cmdLine = buildCmdLine();
+
+        try {
+            Files.createDirectories(junitReport.getAsFile().get().getParentFile().toPath());
+        }
+        catch (IOException error) {
+            throw new GradleException("Could not create test results folder", error);
+        }
+
+        if (shard.isPresent()) {
+            final int[] selector = parseShard(shard.get());
+            final List<String> tests = listTests(folder);
+            final List<Integer> selected = CTestShards.select(tests, CTestShards.readCosts(costData.getAsFile().getOrNull()), selector[0] - 1, selector[1]);
+
+            if (selected.isEmpty()) {
+                getLogger().lifecycle("Shard {} contains none of the {} tests", shard.get(), tests.size());
+                return;
+            }
+
+            // Passed as a file, since the test numbers of a large suite would exceed the command line limit on Windows
+            final File shardFile = new File(folder, "Testing" + File.separator + "Temporary" + File.separator + SHARD_FILE_NAME);
+            final String numbers = selected.stream().map(Object::toString).collect(Collectors.joining(","));
+
+            try {
+                Files.createDirectories(shardFile.getParentFile().toPath());
+                // An empty range (start, end and stride of 0) followed by the individual test numbers
+                Files.write(shardFile.toPath(), ("0,0,0," + numbers).getBytes(StandardCharsets.UTF_8));
+            }
+            catch (IOException error) {
+                throw new GradleException("Could not write test shard file " + shardFile, error);
+            }
+
+            cmdLine.add("-I");
+            cmdLine.add(shardFile.getAbsolutePath());
+            getLogger().lifecycle("Running {} of {} tests in shard {}", selected.size(), tests.size(), shard.get());
+        }
+
+        exec(cmdLine);
+    }
+
+    private static int @NotNull [] parseShard(final @NotNull String value) {
+        final String[] parts = value.split("/");
+
+        try {
+            if (parts.length == 2) {
+                final int index = Integer.parseInt(parts[0].trim());
+                final int count = Integer.parseInt(parts[1].trim());
+
+                if (count > 0 && index > 0 && index <= count) {
+                    return new int[]{index, count};
+                }
+            }
+        }
+        catch (NumberFormatException ignored) {
+            // Reported below
+        }
+
+        throw new GradleException(String.format("Invalid test shard '%s', expected <index>/<count> with 1 <= index <= count", value));
+    }
+
+    /**
+     * @return the names of all tests in the order CTest numbers them.
+     */
+    private @NotNull List<String> listTests(final @NotNull File folder) {
+        final CMakeCapabilities capabilities = getCapabilities();
+
+        if (capabilities != null && !capabilities.isAtLeast(3, 14)) {
+            throw new GradleException(String.format("Sharding tests requires CMake 3.14 or newer, but %s is used", capabilities.getVersion()));
+        }
+
+        final ArrayList<String> cmdLine = newCmdLine();
+        cmdLine.add("--show-only=json-v1");
+
+        if (buildConfig.isPresent()) {
+            cmdLine.add("-C");
+            cmdLine.add(buildConfig.get());
+        }
+
+        final String output;
+
+        try {
+            output = Utils.capture(folder, getProcessEnv(), cmdLine.toArray(new String[0]));
+        }
+        catch (IOException error) {
+            throw new GradleException("Could not list the tests in " + folder, error);
+        }
+        catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while listing the tests in " + folder, error);
+        }
+
+        final int start = output.indexOf('{');
+
+        if (start < 0) {
+            throw new GradleException("CTest did not list the tests in " + folder);
+        }
+
+        final ArrayList<String> tests = new ArrayList<>();
+        final Map<String, Object> json = CMakeFileApi.asMap(new JsonSlurper().parseText(output.substring(start)));
+
+        for (final Object test : CMakeFileApi.asList(json.get("tests"))) {
+            final String name = CMakeFileApi.asString(CMakeFileApi.asMap(test).get("name"));
+            tests.add(name == null ? "" : name);
+        }
+
+        return tests;
+    }
+
+    @Input
+    @Optional
+    public @NotNull Property<String> getBuildConfig() {
+        return buildConfig;
+    }
+
+    /**
+     * The number of tests to run at the same time, the number of processors by default.
+     */
+    @Internal
+    public @NotNull Property<Integer> getParallelJobs() {
+        return parallelJobs;
+    }
+
+    /**
+     * The shard of the tests to run, as {@code <index>/<count>} with the index starting at 1, e.g. {@code 2/4}.
+     * All tests run if absent.
+     */
+    @Input
+    @Optional
+    @Option(option = "shard", description = "Only runs the given shard of the tests, e.g. 2/4.")
+    public @NotNull Property<String> getShard() {
+        return shard;
+    }
+
+    /**
+     * The timings of earlier runs the shards are balanced by, {@code Testing/Temporary/CTestCostData.txt}
+     * of the binary tree by default. Agents running different shards must use the same file, e.g. one restored
+     * from a CI cache, otherwise they may split the tests differently.
+     */
+    @Internal
+    public @NotNull RegularFileProperty getCostData() {
+        return costData;
+    }
+
+    /**
+     * The file the test results are written to in the JUnit XML format. Requires CMake 3.21 or newer.
+     */
+    @OutputFile
+    public @NotNull RegularFileProperty getJunitReport() {
+        return junitReport;
+    }
+
+    /**
+     * The build-wide job budget the tests draw their parallelism from, if any.
+     */
+    @Internal
+    public @NotNull Property<CMakeJobService> getJobService() {
+        return jobService;
+    }
+}
@@ -0,0 +1,22 @@
+package io.karma.gradlecm;
+
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+
+/**
+ * A build service without state, registered once per binary tree with a single usage,
+ * which serializes the tasks of that tree. Neither Ninja nor Make support several
+ * instances working on the same tree, so the configure, build, install, test and clean
+ * tasks of a tree must never run at the same time, while those of different trees may.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+public abstract class CMakeTreeLock implements BuildService<BuildServiceParameters.None> {
+    static @NotNull String getName(final @NotNull File workingFolder) {
+        return "cmakeTree-" + Utils.hash(workingFolder.getAbsolutePath()).substring(0, 16);
+    }
+}
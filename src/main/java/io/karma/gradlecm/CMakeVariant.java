@@ -0,0 +1,141 @@
+package io.karma.gradlecm;
+
+import org.gradle.api.Named;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A single entry of the {@code variants} container, e.g. a platform or
+ * build type. Every variant gets its own configure/build task pair with its
+ * own working folder; everything left unset is taken from the main
+ * {@code cmake} configuration, while {@code defs} and {@code env} are merged
+ * on top of it.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+public class CMakeVariant implements Named {
+    private final String name;
+    private final DirectoryProperty workingFolder;
+    private final Property<String> generator;
+    private final MapProperty<String, String> env;
+
+    private final Property<String> configurationTypes;
+    private final Property<String> installPrefix;
+    private final Property<String> platform;
+    private final Property<String> toolset;
+    private final Property<Boolean> buildSharedLibs;
+    private final Property<Boolean> buildStaticLibs;
+    private final MapProperty<String, String> defs;
+
+    private final Property<String> buildConfig;
+    private final Property<String> buildTarget;
+
+    private final Property<String> operatingSystem;
+    private final Property<String> architecture;
+
+    public CMakeVariant(final @NotNull String name, final @NotNull ObjectFactory factory) {
+        this.name = name;
+
+        // @formatter:off
+        workingFolder       = factory.directoryProperty();
+        generator           = factory.property(String.class);
+        env                 = factory.mapProperty(String.class, String.class);
+
+        configurationTypes  = factory.property(String.class);
+        installPrefix       = factory.property(String.class);
+        platform            = factory.property(String.class);
+        toolset             = factory.property(String.class);
+        buildSharedLibs     = factory.property(Boolean.class);
+        buildStaticLibs     = factory.property(Boolean.class);
+        defs                = factory.mapProperty(String.class, String.class);
+
+        buildConfig         = factory.property(String.class);
+        buildTarget         = factory.property(String.class);
+
+        operatingSystem     = factory.property(String.class);
+        architecture        = factory.property(String.class);
+        // @formatter:on
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return name;
+    }
+
+    /**
+     * Capitalized name used as suffix of the task names, e.g. cmakeBuildX64.
+     */
+    @NotNull String getTaskSuffix() {
+        return toTaskSuffix(name);
+    }
+
+    static @NotNull String toTaskSuffix(final @NotNull String name) {
+        return name.isEmpty() ? name : Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    public @NotNull DirectoryProperty getWorkingFolder() {
+        return workingFolder;
+    }
+
+    public @NotNull Property<String> getGenerator() {
+        return generator;
+    }
+
+    public @NotNull MapProperty<String, String> getEnv() {
+        return env;
+    }
+
+    public @NotNull Property<String> getConfigurationTypes() {
+        return configurationTypes;
+    }
+
+    public @NotNull Property<String> getInstallPrefix() {
+        return installPrefix;
+    }
+
+    public @NotNull Property<String> getPlatform() {
+        return platform;
+    }
+
+    public @NotNull Property<String> getToolset() {
+        return toolset;
+    }
+
+    public @NotNull Property<Boolean> getBuildSharedLibs() {
+        return buildSharedLibs;
+    }
+
+    public @NotNull Property<Boolean> getBuildStaticLibs() {
+        return buildStaticLibs;
+    }
+
+    public @NotNull MapProperty<String, String> getDefs() {
+        return defs;
+    }
+
+    public @NotNull Property<String> getBuildConfig() {
+        return buildConfig;
+    }
+
+    public @NotNull Property<String> getBuildTarget() {
+        return buildTarget;
+    }
+
+    /**
+     * The operating system family the variant is built for, e.g. "linux", if it is not the one of the host.
+     */
+    public @NotNull Property<String> getOperatingSystem() {
+        return operatingSystem;
+    }
+
+    /**
+     * The architecture the variant is built for, e.g. "aarch64", if it is not the one of the host.
+     */
+    public @NotNull Property<String> getArchitecture() {
+        return architecture;
+    }
+}
@@ -0,0 +1,132 @@
+package io.karma.gradlecm;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Splits the tests of a binary tree into shards of about equal duration. The expected
+ * duration of every test is taken from the {@code CTestCostData.txt} CTest keeps from earlier
+ * runs, tests without timings are assumed to take as long as the average test. The tests are
+ * then assigned longest first to the shard with the least total cost (LPT scheduling).
+ * The assignment only depends on the test list and the cost data, so every agent computes
+ * the same shards as long as they use the same cost file.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+final class CTestShards {
+    static final String COST_DATA_PATH = "Testing" + File.separator + "Temporary" + File.separator + "CTestCostData.txt";
+
+    // @formatter:off
+    private CTestShards() {}
+    // @formatter:on
+
+    /**
+     * Reads the average cost in seconds per test name. The file lists {@code <name> <runs> <cost>}
+     * per line, followed by a {@code ---} line and the names of the tests which failed last time.
+     */
+    static @NotNull Map<String, Double> readCosts(final @Nullable File costData) {
+        if (costData == null || !costData.isFile()) {
+            return Collections.emptyMap();
+        }
+
+        final HashMap<String, Double> costs = new HashMap<>();
+
+        try {
+            for (final String line : Files.readAllLines(costData.toPath(), StandardCharsets.UTF_8)) {
+                if (line.startsWith("---")) {
+                    break;
+                }
+
+                // Test names may contain spaces, so the numbers are taken from the end
+                final int costStart = line.lastIndexOf(' ');
+                final int runsStart = costStart <= 0 ? -1 : line.lastIndexOf(' ', costStart - 1);
+
+                if (runsStart <= 0) {
+                    continue;
+                }
+
+                try {
+                    costs.put(line.substring(0, runsStart), Double.parseDouble(line.substring(costStart + 1)));
+                }
+                catch (NumberFormatException ignored) {
+                    // Not a cost line
+                }
+            }
+        }
+        catch (IOException ignored) {
+            return Collections.emptyMap(); // Without timings, all tests count the same
+        }
+
+        return costs;
+    }
+
+    /**
+     * @param tests      the test names in the order CTest numbers them, starting at 1.
+     * @param costs      the expected duration per test name.
+     * @param shardIndex the shard to select, starting at 0.
+     * @param shardCount the number of shards.
+     * @return the numbers of the tests in the selected shard, in ascending order.
+     */
+    static @NotNull List<Integer> select(final @NotNull List<String> tests, final @NotNull Map<String, Double> costs, final int shardIndex,
+                                         final int shardCount) {
+        double knownTotal = 0.0;
+        int knownCount = 0;
+
+        for (final String test : tests) {
+            final Double cost = costs.get(test);
+
+            if (cost != null) {
+                knownTotal += cost;
+                knownCount++;
+            }
+        }
+
+        final double defaultCost = knownCount == 0 ? 1.0 : knownTotal / knownCount;
+        final ArrayList<Integer> order = new ArrayList<>();
+
+        for (int i = 0; i < tests.size(); i++) {
+            order.add(i);
+        }
+
+        // Longest first, ties broken by the test number to stay deterministic
+        order.sort((a, b) -> {
+            final int byCost = Double.compare(costs.getOrDefault(tests.get(b), defaultCost), costs.getOrDefault(tests.get(a), defaultCost));
+            return byCost != 0 ? byCost : Integer.compare(a, b);
+        });
+
+        // Shards as {total cost, index}, the one with the least cost and then the lowest index first
+        final PriorityQueue<double[]> shards = new PriorityQueue<>((a, b) -> a[0] != b[0] ? Double.compare(a[0], b[0]) : Double.compare(a[1], b[1]));
+
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new double[]{0.0, i});
+        }
+
+        final ArrayList<Integer> selected = new ArrayList<>();
+
+        for (final int test : order) {
+            final double[] shard = shards.poll();
+            shard[0] += costs.getOrDefault(tests.get(test), defaultCost);
+
+            if ((int) shard[1] == shardIndex) {
+                selected.add(test + 1);
+            }
+
+            shards.add(shard);
+        }
+
+        Collections.sort(selected);
+        return selected;
+    }
+}
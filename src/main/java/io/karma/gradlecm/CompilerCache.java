@@ -0,0 +1,155 @@
+package io.karma.gradlecm;
+
+import groovy.json.JsonSlurper;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Support for compiler launchers that cache compilation results,
+ * currently ccache and sccache.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+final class CompilerCache {
+    private static final String[] KNOWN_LAUNCHERS = {"ccache", "sccache"};
+    private static final String[] LANGUAGES = {"C", "CXX"};
+
+    // @formatter:off
+    private CompilerCache() {}
+    // @formatter:on
+
+    /**
+     * @param launcher the configured launcher, or null to look for any known launcher on the PATH.
+     * @return the launcher executable, or null if none could be found.
+     */
+    static @Nullable File find(final @Nullable String launcher) {
+        if (launcher != null && !launcher.isEmpty()) {
+            return Utils.findExecutable(launcher);
+        }
+
+        for (final String name : KNOWN_LAUNCHERS) {
+            final File file = Utils.findExecutable(name);
+
+            if (file != null) {
+                return file;
+            }
+        }
+
+        return null;
+    }
+
+    static boolean isSccache(final @NotNull String launcher) {
+        return new File(launcher).getName().startsWith("sccache");
+    }
+
+    static void gatherDefinitions(final @NotNull String launcher, final @NotNull Map<String, String> defs) {
+        for (final String language : LANGUAGES) {
+            defs.put(String.format("CMAKE_%s_COMPILER_LAUNCHER", language), launcher);
+        }
+    }
+
+    static void gatherEnv(final @NotNull String launcher, final @Nullable File cacheFolder, final @Nullable String maxSize,
+                          final @NotNull Map<String, String> env) {
+        final boolean isSccache = isSccache(launcher);
+
+        if (cacheFolder != null) {
+            env.put(isSccache ? "SCCACHE_DIR" : "CCACHE_DIR", cacheFolder.getAbsolutePath());
+        }
+
+        if (maxSize != null && !maxSize.isEmpty()) {
+            env.put(isSccache ? "SCCACHE_CACHE_SIZE" : "CCACHE_MAXSIZE", maxSize);
+        }
+    }
+
+    /**
+     * Reads the current hit and miss counters of the launcher.
+     *
+     * @return the counters, or null if they could not be read (e.g. with ccache older than 4.0).
+     */
+    static @Nullable Stats readStats(final @NotNull String launcher, final @NotNull Map<String, String> env) {
+        try {
+            if (isSccache(launcher)) {
+                return parseSccacheStats(Utils.capture(env, launcher, "--show-stats", "--stats-format=json"));
+            }
+
+            return parseCcacheStats(Utils.capture(env, launcher, "--print-stats"));
+        }
+        catch (IOException | RuntimeException error) {
+            return null;
+        }
+        catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private static @NotNull Stats parseCcacheStats(final @NotNull String output) throws IOException {
+        final LinkedHashMap<String, Long> values = new LinkedHashMap<>();
+
+        try (final BufferedReader reader = new BufferedReader(new StringReader(output))) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                final String[] parts = line.split("\t");
+
+                if (parts.length == 2) {
+                    try {
+                        values.put(parts[0], Long.parseLong(parts[1].trim()));
+                    }
+                    catch (NumberFormatException ignored) {
+                        // Not a counter
+                    }
+                }
+            }
+        }
+
+        final long hits = values.getOrDefault("direct_cache_hit", 0L) + values.getOrDefault("preprocessed_cache_hit", 0L);
+        return new Stats(hits, values.getOrDefault("cache_miss", 0L));
+    }
+
+    private static @NotNull Stats parseSccacheStats(final @NotNull String output) {
+        final Map<String, Object> stats = CMakeFileApi.asMap(CMakeFileApi.asMap(new JsonSlurper().parseText(output)).get("stats"));
+        return new Stats(sumCounts(stats.get("cache_hits")), sumCounts(stats.get("cache_misses")));
+    }
+
+    private static long sumCounts(final @Nullable Object counter) {
+        long sum = 0;
+
+        for (final Object count : CMakeFileApi.asMap(CMakeFileApi.asMap(counter).get("counts")).values()) {
+            if (count instanceof Number) {
+                sum += ((Number) count).longValue();
+            }
+        }
+
+        return sum;
+    }
+
+    static final class Stats {
+        final long hits;
+        final long misses;
+
+        Stats(final long hits, final long misses) {
+            this.hits = hits;
+            this.misses = misses;
+        }
+
+        @NotNull Stats since(final @NotNull Stats before) {
+            return new Stats(Math.max(0, hits - before.hits), Math.max(0, misses - before.misses));
+        }
+
+        @Override
+        public String toString() {
+            final long total = hits + misses;
+            final double rate = total == 0 ? 0.0 : 100.0 * hits / total;
+            return String.format("%d hits, %d misses (%.1f%% hit rate)", hits, misses, rate);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package io.karma.gradlecm;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Configuration of the {@code compilerCache} block, which wires a compiler
+ * launcher like ccache or sccache into the configure step and points its
+ * cache at a folder managed by Gradle.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+public class CompilerCacheSpec {
+    private final Property<Boolean> enabled;
+    private final Property<String> launcher; // "ccache", "sccache" or a path, detected on the PATH if absent
+    private final DirectoryProperty cacheFolder;
+    private final Property<String> maxSize; // for example "5G"
+    private final Property<Boolean> showStats;
+
+    public CompilerCacheSpec(final @NotNull ObjectFactory factory) {
+        // @formatter:off
+        enabled     = factory.property(Boolean.class);
+        launcher    = factory.property(String.class);
+        cacheFolder = factory.directoryProperty();
+        maxSize     = factory.property(String.class);
+        showStats   = factory.property(Boolean.class);
+        // @formatter:on
+    }
+
+    public @NotNull Property<Boolean> getEnabled() {
+        return enabled;
+    }
+
+    public @NotNull Property<String> getLauncher() {
+        return launcher;
+    }
+
+    public @NotNull DirectoryProperty getCacheFolder() {
+        return cacheFolder;
+    }
+
+    public @NotNull Property<String> getMaxSize() {
+        return maxSize;
+    }
+
+    public @NotNull Property<Boolean> getShowStats() {
+        return showStats;
+    }
+}
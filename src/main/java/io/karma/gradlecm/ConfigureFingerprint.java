@@ -0,0 +1,149 @@
+package io.karma.gradlecm;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Persistent fingerprint of a configure run, stored in the working folder.
+ * It allows {@link CMakeConfigureTask} to skip running CMake altogether when
+ * the command line, environment, generator and CMake installation are the same
+ * as last time and the CMakeCache.txt was not touched since.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+final class ConfigureFingerprint {
+    static final String FILE_NAME = ".gradlecm" + File.separator + "configure.properties";
+
+    private static final String KEY_FULL = "full";
+    private static final String KEY_BASE = "base";
+    private static final String KEY_CACHE = "cache";
+
+    private final String full;
+    private final String base;
+    private final String cacheHash;
+
+    private ConfigureFingerprint(final @NotNull String full, final @NotNull String base, final @Nullable String cacheHash) {
+        this.full = full;
+        this.base = base;
+        this.cacheHash = cacheHash;
+    }
+
+    /**
+     * @param cmdLine     the fully resolved configure command line.
+     * @param definitions the parts of the command line which only set cache entries from {@code defs}.
+     * @param env         the environment applied to the process.
+     * @param generator   the selected generator, if any.
+     * @param cmakeId     something identifying the CMake installation, e.g. its version.
+     */
+    static @NotNull ConfigureFingerprint compute(final @NotNull List<String> cmdLine, final @NotNull Collection<String> definitions,
+                                                 final @NotNull Map<String, String> env, final @Nullable String generator,
+                                                 final @NotNull String cmakeId) {
+        final ArrayList<String> baseCmdLine = new ArrayList<>(cmdLine);
+        baseCmdLine.removeAll(definitions);
+        final String context = String.format("%s\n%s\n%s", new TreeMap<>(env), generator, cmakeId);
+        return new ConfigureFingerprint(Utils.hash(cmdLine + "\n" + context), Utils.hash(baseCmdLine + "\n" + context), null);
+    }
+
+    static @Nullable ConfigureFingerprint load(final @NotNull File workingFolder) {
+        final File file = new File(workingFolder, FILE_NAME);
+
+        if (!file.isFile()) {
+            return null;
+        }
+
+        final Properties properties = new Properties();
+
+        try (final InputStream stream = Files.newInputStream(file.toPath())) {
+            properties.load(stream);
+        }
+        catch (IOException error) {
+            return null;
+        }
+
+        final String full = properties.getProperty(KEY_FULL);
+        final String base = properties.getProperty(KEY_BASE);
+
+        if (full == null || base == null) {
+            return null;
+        }
+
+        return new ConfigureFingerprint(full, base, properties.getProperty(KEY_CACHE));
+    }
+
+    static void delete(final @NotNull File workingFolder) {
+        final File file = new File(workingFolder, FILE_NAME);
+
+        if (file.exists() && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    static @Nullable String hashCache(final @NotNull File workingFolder) {
+        final File cacheFile = new File(workingFolder, "CMakeCache.txt");
+
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+
+        try {
+            return Utils.hash(cacheFile);
+        }
+        catch (IOException error) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores this fingerprint along with the hash of the CMakeCache.txt CMake just wrote.
+     */
+    void store(final @NotNull File workingFolder) throws IOException {
+        final File file = new File(workingFolder, FILE_NAME);
+        final File parent = file.getParentFile();
+
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+
+        final Properties properties = new Properties();
+        properties.setProperty(KEY_FULL, full);
+        properties.setProperty(KEY_BASE, base);
+
+        final String cache = hashCache(workingFolder);
+
+        if (cache != null) {
+            properties.setProperty(KEY_CACHE, cache);
+        }
+
+        try (final OutputStream stream = Files.newOutputStream(file.toPath())) {
+            properties.store(stream, "Generated by gradle-cmake, do not edit");
+        }
+    }
+
+    /**
+     * @return true if the CMakeCache.txt in the given folder is still the one this fingerprint was stored with.
+     */
+    boolean isCacheConsistent(final @NotNull File workingFolder) {
+        return cacheHash != null && cacheHash.equals(hashCache(workingFolder));
+    }
+
+    boolean matches(final @NotNull ConfigureFingerprint other) {
+        return full.equals(other.full);
+    }
+
+    boolean matchesIgnoringDefinitions(final @NotNull ConfigureFingerprint other) {
+        return base.equals(other.base);
+    }
+}
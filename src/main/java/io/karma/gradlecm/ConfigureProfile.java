@@ -0,0 +1,211 @@
+package io.karma.gradlecm;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregation of the trace CMake writes with {@code --profiling-format=google-trace}
+ * (CMake 3.18 or newer). Every traced command is accounted for in three tables:
+ * the self time per command name, the inclusive time per call with a body
+ * (functions, macros, {@code include}, {@code find_package}, ...) and the self
+ * time per file the commands were read from.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+final class ConfigureProfile {
+    private static final int MAX_CALL_LENGTH = 100;
+
+    private final HashMap<String, Row> commands = new HashMap<>();
+    private final HashMap<String, Row> calls = new HashMap<>();
+    private final HashMap<String, Row> files = new HashMap<>();
+    private long totalMicros;
+
+    // @formatter:off
+    private ConfigureProfile() {}
+    // @formatter:on
+
+    static @NotNull ConfigureProfile read(final @NotNull File trace) {
+        final ConfigureProfile profile = new ConfigureProfile();
+        final ArrayList<Event> events = new ArrayList<>();
+        final HashMap<Object, ArrayDeque<Event>> open = new HashMap<>();
+
+        // CMake writes begin/end pairs per thread; complete events are accepted as well
+        for (final Object entry : CMakeFileApi.asList(CMakeFileApi.parse(trace))) {
+            final Map<String, Object> map = CMakeFileApi.asMap(entry);
+            final String phase = CMakeFileApi.asString(map.get("ph"));
+            final long timestamp = asLong(map.get("ts"));
+            final ArrayDeque<Event> stack = open.computeIfAbsent(map.get("tid"), key -> new ArrayDeque<>());
+
+            if ("B".equals(phase)) {
+                stack.push(new Event(map, timestamp));
+            }
+            else if ("E".equals(phase) && !stack.isEmpty()) {
+                final Event event = stack.pop();
+                event.end = timestamp;
+                events.add(event);
+            }
+            else if ("X".equals(phase)) {
+                final Event event = new Event(map, timestamp);
+                event.end = timestamp + asLong(map.get("dur"));
+                events.add(event);
+            }
+        }
+
+        profile.aggregate(events);
+        return profile;
+    }
+
+    private void aggregate(final @NotNull List<Event> events) {
+        // Sorting by start and descending end puts every event right behind its parent
+        events.sort((a, b) -> a.start != b.start ? Long.compare(a.start, b.start) : Long.compare(b.end, a.end));
+        final ArrayDeque<Event> parents = new ArrayDeque<>();
+        final HashSet<String> activeCalls = new HashSet<>();
+
+        for (final Event event : events) {
+            while (!parents.isEmpty() && parents.peek().end <= event.start) {
+                final Event finished = parents.pop();
+
+                // Only the outermost call owns the entry, nested ones of the same call leave it in place
+                if (finished.isOutermostCall) {
+                    activeCalls.remove(finished.call);
+                }
+            }
+
+            final Event parent = parents.peek();
+
+            if (parent == null) {
+                totalMicros += event.getDuration();
+            }
+            else {
+                parent.childMicros += event.getDuration();
+                parent.hasChildren = true;
+            }
+
+            // Recursive calls would otherwise be counted once per nesting level
+            event.isOutermostCall = activeCalls.add(event.call);
+            parents.push(event);
+        }
+
+        for (final Event event : events) {
+            final long self = Math.max(0, event.getDuration() - event.childMicros);
+            commands.computeIfAbsent(event.name, Row::new).add(self);
+
+            if (event.file != null) {
+                files.computeIfAbsent(event.file, Row::new).add(self);
+            }
+
+            if (event.hasChildren && event.isOutermostCall) {
+                calls.computeIfAbsent(event.call, Row::new).add(event.getDuration());
+            }
+        }
+    }
+
+    private static long asLong(final @Nullable Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    long getTotalMicros() {
+        return totalMicros;
+    }
+
+    @NotNull List<Row> getCommands(final int limit) {
+        return sorted(commands, limit);
+    }
+
+    @NotNull List<Row> getCalls(final int limit) {
+        return sorted(calls, limit);
+    }
+
+    @NotNull List<Row> getFiles(final int limit) {
+        return sorted(files, limit);
+    }
+
+    private static @NotNull List<Row> sorted(final @NotNull Map<String, Row> rows, final int limit) {
+        final ArrayList<Row> sorted = new ArrayList<>(rows.values());
+        sorted.sort((a, b) -> Long.compare(b.micros, a.micros));
+        return sorted.subList(0, Math.min(limit, sorted.size()));
+    }
+
+    void writeReport(final @NotNull File file) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+
+        try (final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+            writer.printf("Total traced time: %s%n", formatMicros(totalMicros));
+            writeTable(writer, "Commands by self time", getCommands(Integer.MAX_VALUE));
+            writeTable(writer, "Functions, macros, includes and packages by inclusive time", getCalls(Integer.MAX_VALUE));
+            writeTable(writer, "Files by self time of their commands", getFiles(Integer.MAX_VALUE));
+        }
+    }
+
+    private void writeTable(final @NotNull PrintWriter writer, final @NotNull String title, final @NotNull List<Row> rows) {
+        writer.printf("%n%s:%n", title);
+
+        for (final Row row : rows) {
+            writer.printf("  %10s %5.1f%% %8d calls  %s%n", formatMicros(row.micros), getPercentage(row), row.count, row.name);
+        }
+    }
+
+    double getPercentage(final @NotNull Row row) {
+        return totalMicros == 0 ? 0.0 : 100.0 * row.micros / totalMicros;
+    }
+
+    static @NotNull String formatMicros(final long micros) {
+        return micros < 1000000 ? String.format("%.1fms", micros / 1000.0) : String.format("%.2fs", micros / 1000000.0);
+    }
+
+    static final class Row {
+        final String name;
+        long micros;
+        int count;
+
+        Row(final @NotNull String name) {
+            this.name = name;
+        }
+
+        void add(final long micros) {
+            this.micros += micros;
+            count++;
+        }
+    }
+
+    private static final class Event {
+        final String name;
+        final String call;
+        final String file;
+        final long start;
+        long end;
+        long childMicros;
+        boolean hasChildren;
+        boolean isOutermostCall;
+
+        Event(final @NotNull Map<String, Object> json, final long start) {
+            final Map<String, Object> args = CMakeFileApi.asMap(json.get("args"));
+            final String name = CMakeFileApi.asString(json.get("name"));
+            final String arguments = CMakeFileApi.asString(args.get("functionArgs"));
+            final String location = CMakeFileApi.asString(args.get("location"));
+            final String call = String.format("%s(%s)", name, arguments == null ? "" : arguments.trim());
+
+            this.name = name == null ? "<unknown>" : name;
+            this.call = call.length() > MAX_CALL_LENGTH ? call.substring(0, MAX_CALL_LENGTH - 4) + "...)" : call;
+            this.file = location == null ? null : location.replaceFirst(":\\d+$", "");
+            this.start = start;
+        }
+
+        long getDuration() {
+            return end - start;
+        }
+    }
+}
@@ -0,0 +1,440 @@
+package io.karma.gradlecm;
+
+import org.gradle.api.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed cache of FetchContent sources shared by all projects and working folders.
+ * <p>
+ * After a configure populated dependencies, their sources are stored under a key derived from the
+ * download details CMake wrote into the sub-build of each dependency (URL, hash, repository, tag, patches).
+ * An index maps the hash of the project's CMake files to the dependencies it fetched, so a later configure
+ * of the same CMake files, in any working folder or checkout, points {@code FETCHCONTENT_SOURCE_DIR_<NAME>}
+ * at the cached sources instead of downloading them again. Once CMake files change, the index no longer
+ * matches and the dependencies are fetched normally, which refreshes the cache.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+final class DependencyCache {
+    private static final String DEPS_FOLDER = "_deps";
+    private static final String SUBBUILD_SUFFIX = "-subbuild";
+    private static final String SOURCE_DIR_PREFIX = "FETCHCONTENT_SOURCE_DIR_";
+    private static final String[] DOWNLOAD_KEYWORDS = {"URL", "URL_HASH", "URL_MD5", "GIT_REPOSITORY", "GIT_TAG", "GIT_SUBMODULES", "SVN_REPOSITORY",
+        "SVN_REVISION", "HG_REPOSITORY", "HG_TAG", "DOWNLOAD_COMMAND", "PATCH_COMMAND", "UPDATE_COMMAND"};
+    private static final Pattern KEYWORD_PATTERN = Pattern.compile("[A-Z][A-Z0-9_]*");
+    private static final Pattern LIST_SEPARATOR = Pattern.compile("(?<!\\\\);");
+
+    private final File folder;
+
+    DependencyCache(final @NotNull File folder) {
+        this.folder = folder;
+    }
+
+    /**
+     * Hashes the CMake files of the source tree, which contain all dependency declarations
+     * of the project. The working folder is skipped if it lies within the source tree.
+     */
+    static @NotNull String hashDeclarations(final @NotNull File sourceFolder, final @NotNull File workingFolder) throws IOException {
+        final Path source = sourceFolder.toPath();
+        final Path working = workingFolder.toPath();
+        final List<Path> files;
+
+        try (final Stream<Path> paths = Files.walk(source)) {
+            files = paths.filter(path -> !path.startsWith(working)).filter(path -> {
+                final String name = path.getFileName().toString();
+                return name.equals("CMakeLists.txt") || name.endsWith(".cmake");
+            }).sorted().collect(Collectors.toList());
+        }
+
+        final MessageDigest digest = Utils.newDigest();
+
+        for (final Path file : files) {
+            digest.update(source.relativize(file).toString().replace(File.separatorChar, '/').getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Files.readAllBytes(file));
+            digest.update((byte) 0);
+        }
+
+        return Utils.toHex(digest.digest());
+    }
+
+    private @NotNull File getIndexFile(final @NotNull String declarations) {
+        return new File(folder, "index" + File.separator + declarations + ".properties");
+    }
+
+    private @NotNull File getSourceFolder(final @NotNull String key) {
+        return new File(folder, "sources" + File.separator + key);
+    }
+
+    /**
+     * @return the cached source folders of the dependencies the given declarations fetched before, by dependency name.
+     * Empty if the declarations are unknown or any of the sources went missing.
+     */
+    @NotNull Map<String, File> resolve(final @NotNull String declarations) {
+        final File indexFile = getIndexFile(declarations);
+
+        if (!indexFile.isFile()) {
+            return Collections.emptyMap();
+        }
+
+        final Properties index = new Properties();
+
+        try (final InputStream stream = Files.newInputStream(indexFile.toPath())) {
+            index.load(stream);
+        }
+        catch (IOException error) {
+            return Collections.emptyMap();
+        }
+
+        final TreeMap<String, File> sources = new TreeMap<>();
+
+        for (final String name : index.stringPropertyNames()) {
+            final File source = getSourceFolder(index.getProperty(name));
+
+            // A partially available cache would still need the network, so it is treated as cold
+            if (!source.isDirectory()) {
+                return Collections.emptyMap();
+            }
+
+            sources.put(name, source);
+        }
+
+        return sources;
+    }
+
+    /**
+     * Stores the sources of every dependency the last configure in the working folder populated,
+     * and records them in the index of the given declarations.
+     */
+    void record(final @NotNull String declarations, final @NotNull File workingFolder, final @NotNull Logger logger) throws IOException {
+        final File[] subbuilds = new File(workingFolder, DEPS_FOLDER).listFiles((dir, name) -> name.endsWith(SUBBUILD_SUFFIX));
+
+        if (subbuilds == null || subbuilds.length == 0) {
+            return;
+        }
+
+        final Properties index = new Properties();
+
+        for (final File subbuild : subbuilds) {
+            final String name = subbuild.getName().substring(0, subbuild.getName().length() - SUBBUILD_SUFFIX.length());
+            final File script = new File(subbuild, "CMakeLists.txt");
+            final File source = new File(subbuild.getParentFile(), name + "-src");
+
+            if (!script.isFile() || !source.isDirectory()) {
+                continue;
+            }
+
+            final String key = hashDownload(script);
+
+            // Without download details, every such dependency would end up with the same key
+            if (key == null) {
+                logger.info("Found no download details for dependency {}, not caching it", name);
+                continue;
+            }
+
+            final File target = getSourceFolder(key);
+
+            if (!target.isDirectory()) {
+                logger.info("Caching sources of dependency {} in {}", name, target);
+                store(source.toPath(), target.toPath());
+            }
+
+            index.setProperty(name, key);
+        }
+
+        if (index.isEmpty()) {
+            return;
+        }
+
+        final File indexFile = getIndexFile(declarations);
+        Files.createDirectories(indexFile.getParentFile().toPath());
+        final File tempFile = File.createTempFile(declarations, ".tmp", indexFile.getParentFile());
+
+        try (final OutputStream stream = Files.newOutputStream(tempFile.toPath())) {
+            index.store(stream, null);
+        }
+
+        Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Derives the content address of a dependency from the download and patch details in its sub-build,
+     * leaving out everything that depends on the location of the working folder.
+     *
+     * @return the key of the dependency, or null if the sub-build has no download details we understand.
+     */
+    static @Nullable String hashDownload(final @NotNull File script) throws IOException {
+        final List<String> arguments = parseArguments(new String(Files.readAllBytes(script.toPath()), StandardCharsets.UTF_8), "ExternalProject_Add");
+        final StringBuilder sb = new StringBuilder();
+        boolean isDownloadOption = false;
+        boolean hasDetails = false;
+
+        // The first argument is the name of the populate target
+        for (int i = 1; i < arguments.size(); i++) {
+            final String argument = arguments.get(i);
+
+            if (isKeyword(argument)) {
+                isDownloadOption = Arrays.asList(DOWNLOAD_KEYWORDS).contains(argument);
+
+                if (isDownloadOption) {
+                    sb.append('\n').append(argument);
+                }
+                continue;
+            }
+
+            if (isDownloadOption) {
+                sb.append('\u0000').append(argument);
+                hasDetails = true;
+            }
+        }
+
+        return hasDetails ? Utils.hash(sb.toString()) : null;
+    }
+
+    private static boolean isKeyword(final @NotNull String argument) {
+        // ExternalProject_Add options are upper case and all but a few contain an underscore
+        return KEYWORD_PATTERN.matcher(argument).matches() && (argument.indexOf('_') >= 0 || argument.equals("URL") || argument.equals("PREFIX")
+                                                                || argument.equals("DEPENDS"));
+    }
+
+    /**
+     * Splits the arguments of the first call to the given command like CMake does, including quoted
+     * and bracket arguments and lists. Depending on its version, FetchContent writes the details into the
+     * sub-build as a single {@code ;}-separated list or as one bracket argument per element.
+     */
+    static @NotNull List<String> parseArguments(final @NotNull String script, final @NotNull String command) {
+        final Matcher call = Pattern.compile("(?im)^\\s*" + Pattern.quote(command) + "\\s*\\(").matcher(script);
+        final ArrayList<String> arguments = new ArrayList<>();
+
+        if (!call.find()) {
+            return arguments;
+        }
+
+        final int length = script.length();
+        int depth = 0;
+        int i = call.end();
+
+        while (i < length) {
+            final char c = script.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                i++;
+            }
+            else if (c == '#') {
+                final int bracketEnd = findBracketEnd(script, i + 1);
+                final int lineEnd = script.indexOf('\n', i);
+                i = bracketEnd >= 0 ? bracketEnd : lineEnd < 0 ? length : lineEnd;
+            }
+            else if (c == '(') {
+                depth++;
+                i++;
+            }
+            else if (c == ')') {
+                if (depth-- == 0) {
+                    break;
+                }
+                i++;
+            }
+            else if (c == '[' && findBracketEnd(script, i) >= 0) {
+                final int level = countLevel(script, i);
+                final int end = findBracketEnd(script, i);
+                addElements(arguments, script.substring(i + level + 2, end - level - 2));
+                i = end;
+            }
+            else if (c == '"') {
+                final StringBuilder sb = new StringBuilder();
+                i++;
+
+                while (i < length && script.charAt(i) != '"') {
+                    if (script.charAt(i) == '\\' && i + 1 < length) {
+                        // An escaped semicolon must survive the list splitting below
+                        if (script.charAt(i + 1) == ';') {
+                            sb.append('\\');
+                        }
+                        i++;
+                    }
+                    sb.append(script.charAt(i++));
+                }
+
+                addElements(arguments, sb.toString());
+                i++;
+            }
+            else {
+                final int start = i;
+
+                while (i < length && !Character.isWhitespace(script.charAt(i)) && "()\"#".indexOf(script.charAt(i)) < 0) {
+                    i += script.charAt(i) == '\\' ? 2 : 1;
+                }
+
+                addElements(arguments, script.substring(start, Math.min(i, length)));
+            }
+        }
+
+        return arguments;
+    }
+
+    private static int countLevel(final @NotNull String script, final int open) {
+        int level = 0;
+
+        while (open + 1 + level < script.length() && script.charAt(open + 1 + level) == '=') {
+            level++;
+        }
+
+        return level;
+    }
+
+    /**
+     * @return the index right behind the bracket which opens at the given index, or -1 if there is no bracket there.
+     */
+    private static int findBracketEnd(final @NotNull String script, final int open) {
+        if (open >= script.length() || script.charAt(open) != '[') {
+            return -1;
+        }
+
+        final int level = countLevel(script, open);
+
+        if (open + level + 1 >= script.length() || script.charAt(open + level + 1) != '[') {
+            return -1;
+        }
+
+        final StringBuilder close = new StringBuilder("]");
+
+        for (int i = 0; i < level; i++) {
+            close.append('=');
+        }
+
+        final int end = script.indexOf(close.append(']').toString(), open + level + 2);
+        return end < 0 ? -1 : end + level + 2;
+    }
+
+    private static void addElements(final @NotNull List<String> arguments, final @NotNull String argument) {
+        // Functions receive their arguments as one list, so every argument is split at unescaped semicolons
+        for (final String element : LIST_SEPARATOR.split(argument)) {
+            if (!element.isEmpty()) {
+                arguments.add(element.replace("\\;", ";"));
+            }
+        }
+    }
+
+    /**
+     * Copies a source tree into the cache through a temporary folder, so concurrent
+     * builds never see a partially copied dependency.
+     */
+    private static void store(final @NotNull Path source, final @NotNull Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        final Path temp = Files.createTempDirectory(target.getParent(), target.getFileName().toString());
+
+        try {
+            Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attributes) throws IOException {
+                    Files.createDirectories(temp.resolve(source.relativize(dir).toString()));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) throws IOException {
+                    Files.copy(file, temp.resolve(source.relativize(file).toString()), StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+
+            Files.move(temp, target);
+        }
+        catch (IOException error) {
+            if (Files.isDirectory(target)) {
+                return; // Another build stored the same dependency in the meantime
+            }
+            throw error;
+        }
+        finally {
+            ParallelDelete.delete(Collections.singletonList(temp));
+        }
+    }
+
+    /**
+     * Extracts a seed archive (anything {@code cmake -E tar} understands) into the cache once.
+     * If the archive contains a single top-level folder, that folder is the source tree.
+     */
+    @NotNull File extractSeed(final @NotNull File archive, final @NotNull String cmake) throws IOException, InterruptedException {
+        final File target = new File(folder, "seeds" + File.separator + Utils.hash(archive));
+
+        if (!target.isDirectory()) {
+            Files.createDirectories(target.getParentFile().toPath());
+            final File temp = Files.createTempDirectory(target.getParentFile().toPath(), target.getName()).toFile();
+
+            try {
+                Utils.capture(Collections.emptyMap(), cmake, "-E", "chdir", temp.getAbsolutePath(), cmake, "-E", "tar", "xf", archive.getAbsolutePath());
+
+                if (!temp.renameTo(target) && !target.isDirectory()) {
+                    throw new IOException("Could not move extracted seed to " + target);
+                }
+            }
+            finally {
+                ParallelDelete.delete(Collections.singletonList(temp.toPath()));
+            }
+        }
+
+        final File[] children = target.listFiles();
+        return children != null && children.length == 1 && children[0].isDirectory() ? children[0] : target;
+    }
+
+    /**
+     * @return the names of the {@code FETCHCONTENT_SOURCE_DIR_<NAME>} entries among the given cache entries
+     * which point into this cache, i.e. those an earlier configure of the plugin injected.
+     */
+    @NotNull List<String> findInjectedSources(final @NotNull Map<String, String> cacheEntries) {
+        final Path cachePath = folder.getAbsoluteFile().toPath().normalize();
+        final ArrayList<String> names = new ArrayList<>();
+
+        for (final Map.Entry<String, String> entry : cacheEntries.entrySet()) {
+            if (!entry.getKey().startsWith(SOURCE_DIR_PREFIX) || entry.getValue().isEmpty()) {
+                continue;
+            }
+
+            try {
+                if (new File(entry.getValue()).getAbsoluteFile().toPath().normalize().startsWith(cachePath)) {
+                    names.add(entry.getKey());
+                }
+            }
+            catch (InvalidPathException error) {
+                // Not a path we could have written
+            }
+        }
+
+        return names;
+    }
+
+    static @NotNull String toVariableName(final @NotNull String name) {
+        return SOURCE_DIR_PREFIX + name.toUpperCase(Locale.ROOT);
+    }
+}
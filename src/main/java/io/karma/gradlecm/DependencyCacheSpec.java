@@ -0,0 +1,59 @@
+package io.karma.gradlecm;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+
+/**
+ * Configuration of the {@code dependencyCache} block, which shares the sources
+ * of FetchContent dependencies between all working folders and projects.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+public class DependencyCacheSpec {
+    private final Property<Boolean> enabled;
+    private final DirectoryProperty folder;
+    private final Property<Boolean> disconnected;
+    private final MapProperty<String, File> seeds; // dependency name -> source archive
+
+    public DependencyCacheSpec(final @NotNull ObjectFactory factory) {
+        // @formatter:off
+        enabled      = factory.property(Boolean.class);
+        folder       = factory.directoryProperty();
+        disconnected = factory.property(Boolean.class);
+        seeds        = factory.mapProperty(String.class, File.class);
+        // @formatter:on
+    }
+
+    public @NotNull Property<Boolean> getEnabled() {
+        return enabled;
+    }
+
+    public @NotNull DirectoryProperty getFolder() {
+        return folder;
+    }
+
+    /**
+     * Whether to configure with {@code FETCHCONTENT_FULLY_DISCONNECTED} once all dependencies
+     * are available from the cache, so configuring never touches the network. Enabled by default.
+     */
+    public @NotNull Property<Boolean> getDisconnected() {
+        return disconnected;
+    }
+
+    public @NotNull MapProperty<String, File> getSeeds() {
+        return seeds;
+    }
+
+    /**
+     * Provides the sources of a dependency from a local archive instead of downloading them.
+     */
+    public void seed(final @NotNull String name, final @NotNull File archive) {
+        seeds.put(name, archive);
+    }
+}
@@ -0,0 +1,313 @@
+package io.karma.gradlecm;
+
+import groovy.json.JsonOutput;
+import org.gradle.api.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Streaming consumer of the output of a CMake invocation. It extracts compiler
+ * diagnostics in the GCC/Clang ({@code file:line:col: error: message}) and MSVC
+ * ({@code file(line,col): error C1234: message}) formats, deduplicates those which
+ * are reported once per translation unit because they come from a shared header,
+ * writes the full output to a log file and keeps only the last few lines in memory
+ * as context in case the invocation fails.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+final class DiagnosticCollector implements Closeable {
+    private static final Pattern GCC_PATTERN = Pattern.compile("^(.+?):(\\d+):(?:(\\d+):)?\\s*(fatal error|error|warning):\\s*(.*?)(?:\\s+\\[(-W[^\\]]+)])?$");
+    private static final Pattern MSVC_PATTERN = Pattern.compile("^\\s*(.+?)\\((\\d+)(?:,(\\d+))?\\)\\s*:\\s*(fatal error|error|warning)\\s+([A-Z]+\\d+)\\s*:\\s*(.*)$");
+    private static final int MAX_DISTINCT = 5000;
+    private static final int MAX_LOGGED_ERRORS = 20;
+    private static final int MAX_LOGGED_FILES = 10;
+
+    private final LinkedHashMap<String, Diagnostic> diagnostics = new LinkedHashMap<>();
+    private final ArrayDeque<String> context = new ArrayDeque<>();
+    private final int maxContextLines;
+    private final File logFile;
+    private BufferedWriter logWriter;
+    private int errors;
+    private int warnings;
+    private int droppedDistinct;
+
+    /**
+     * @param logFile         the file to write the full output to, or null to not keep it.
+     * @param appendLog       whether to append to an existing log file, e.g. for the second command of a task.
+     * @param maxContextLines the number of output lines to keep for the failure context.
+     */
+    DiagnosticCollector(final @Nullable File logFile, final boolean appendLog, final int maxContextLines) throws IOException {
+        this.logFile = logFile;
+        this.maxContextLines = Math.max(0, maxContextLines);
+
+        if (logFile != null) {
+            Files.createDirectories(logFile.getParentFile().toPath());
+            logWriter = Files.newBufferedWriter(logFile.toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                appendLog ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+        }
+    }
+
+    void accept(final @NotNull String line) {
+        if (logWriter != null) {
+            try {
+                logWriter.write(line);
+                logWriter.newLine();
+            }
+            catch (IOException error) {
+                closeLog(); // The output is still forwarded to the logger, so we carry on without the file
+            }
+        }
+
+        if (maxContextLines > 0) {
+            if (context.size() == maxContextLines) {
+                context.removeFirst();
+            }
+            context.addLast(line);
+        }
+
+        parse(line);
+    }
+
+    private void parse(final @NotNull String line) {
+        // Cheap pre-check, most lines of a build are progress output
+        if (!line.contains("error") && !line.contains("warning")) {
+            return;
+        }
+
+        Matcher matcher = GCC_PATTERN.matcher(line);
+
+        if (matcher.matches()) {
+            add(matcher.group(1), matcher.group(2), matcher.group(3), matcher.group(4), matcher.group(6), matcher.group(5));
+            return;
+        }
+
+        matcher = MSVC_PATTERN.matcher(line);
+
+        if (matcher.matches()) {
+            add(matcher.group(1), matcher.group(2), matcher.group(3), matcher.group(4), matcher.group(5), matcher.group(6));
+        }
+    }
+
+    private void add(final @NotNull String file, final @NotNull String line, final @Nullable String column, final @NotNull String severity,
+                     final @Nullable String code, final @NotNull String message) {
+        final boolean isError = !severity.equals("warning");
+        final String key = String.join("\u0000", file, line, column == null ? "" : column, severity, message);
+        final Diagnostic diagnostic = diagnostics.get(key);
+
+        if (isError) {
+            errors++;
+        }
+        else {
+            warnings++;
+        }
+
+        if (diagnostic != null) {
+            diagnostic.occurrences++;
+        }
+        else if (diagnostics.size() < MAX_DISTINCT) {
+            diagnostics.put(key, new Diagnostic(file.trim(), parseNumber(line), parseNumber(column), isError, code, message));
+        }
+        else {
+            droppedDistinct++;
+        }
+    }
+
+    private static int parseNumber(final @Nullable String value) {
+        if (value == null) {
+            return 0;
+        }
+
+        try {
+            return Integer.parseInt(value);
+        }
+        catch (NumberFormatException error) {
+            return 0; // Absurdly long digit runs in arbitrary output, the location is then unknown
+        }
+    }
+
+    int getErrors() {
+        return errors;
+    }
+
+    int getWarnings() {
+        return warnings;
+    }
+
+    @NotNull List<Diagnostic> getDiagnostics() {
+        return Collections.unmodifiableList(new ArrayList<>(diagnostics.values()));
+    }
+
+    /**
+     * Logs a compact summary of the diagnostics and, if the invocation failed,
+     * the distinct errors and the last lines of output.
+     */
+    void summarize(final @NotNull Logger logger, final boolean failed) {
+        if (failed) {
+            int logged = 0;
+
+            for (final Diagnostic diagnostic : diagnostics.values()) {
+                if (diagnostic.isError && logged++ < MAX_LOGGED_ERRORS) {
+                    logger.error(diagnostic.toString());
+                }
+            }
+
+            if (!context.isEmpty()) {
+                logger.error("Last {} lines of output:{}{}", context.size(), System.lineSeparator(), String.join(System.lineSeparator(), context));
+            }
+        }
+
+        if (errors > 0 || warnings > 0) {
+            final StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%d errors, %d warnings (%d distinct)", errors, warnings, diagnostics.size() + droppedDistinct));
+
+            for (final Entry<String, int[]> entry : countByFile()) {
+                sb.append(System.lineSeparator()).append(String.format("  %5d errors %5d warnings  %s", entry.getValue()[0], entry.getValue()[1], entry.getKey()));
+            }
+
+            if (errors > 0) {
+                logger.warn(sb.toString());
+            }
+            else {
+                logger.lifecycle(sb.toString());
+            }
+        }
+
+        if (logFile != null && logWriter != null) {
+            if (failed) {
+                logger.lifecycle("Full output written to {}", logFile);
+            }
+            else {
+                logger.info("Full output written to {}", logFile);
+            }
+        }
+    }
+
+    private @NotNull List<Entry<String, int[]>> countByFile() {
+        final HashMap<String, int[]> byFile = new HashMap<>();
+
+        for (final Diagnostic diagnostic : diagnostics.values()) {
+            final int[] counts = byFile.computeIfAbsent(diagnostic.file, key -> new int[2]);
+            counts[diagnostic.isError ? 0 : 1] += diagnostic.occurrences;
+        }
+
+        final ArrayList<Entry<String, int[]>> entries = new ArrayList<>(byFile.entrySet());
+        entries.sort((a, b) -> a.getValue()[0] != b.getValue()[0] ? Integer.compare(b.getValue()[0], a.getValue()[0])
+            : Integer.compare(b.getValue()[1], a.getValue()[1]));
+        return entries.subList(0, Math.min(MAX_LOGGED_FILES, entries.size()));
+    }
+
+    /**
+     * Writes the distinct diagnostics as a SARIF 2.1.0 log, which code scanning
+     * tools and IDEs can display inline.
+     */
+    void writeSarif(final @NotNull File file) throws IOException {
+        final ArrayList<Object> results = new ArrayList<>();
+
+        for (final Diagnostic diagnostic : diagnostics.values()) {
+            final LinkedHashMap<String, Object> region = new LinkedHashMap<>();
+            region.put("startLine", diagnostic.line);
+
+            if (diagnostic.column > 0) {
+                region.put("startColumn", diagnostic.column);
+            }
+
+            final LinkedHashMap<String, Object> result = new LinkedHashMap<>();
+            result.put("ruleId", diagnostic.code == null ? (diagnostic.isError ? "error" : "warning") : diagnostic.code);
+            result.put("level", diagnostic.isError ? "error" : "warning");
+            result.put("message", Collections.singletonMap("text", diagnostic.message));
+            result.put("locations", Collections.singletonList(Collections.singletonMap("physicalLocation",
+                map("artifactLocation", Collections.singletonMap("uri", toUri(diagnostic.file)), "region", region))));
+            result.put("properties", Collections.singletonMap("occurrences", diagnostic.occurrences));
+            results.add(result);
+        }
+
+        final LinkedHashMap<String, Object> run = new LinkedHashMap<>();
+        run.put("tool", Collections.singletonMap("driver", map("name", "gradle-cmake", "informationUri", "https://github.com/karmakrafts/Gradle-CMake")));
+        run.put("results", results);
+
+        final LinkedHashMap<String, Object> sarif = new LinkedHashMap<>();
+        sarif.put("$schema", "https://json.schemastore.org/sarif-2.1.0.json");
+        sarif.put("version", "2.1.0");
+        sarif.put("runs", Collections.singletonList(run));
+
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), JsonOutput.prettyPrint(JsonOutput.toJson(sarif)).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static @NotNull Map<String, Object> map(final @NotNull String key1, final @NotNull Object value1, final @NotNull String key2,
+                                                    final @NotNull Object value2) {
+        final LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        map.put(key1, value1);
+        map.put(key2, value2);
+        return map;
+    }
+
+    private static @NotNull String toUri(final @NotNull String path) {
+        final File file = new File(path);
+        return file.isAbsolute() ? file.toURI().toString() : path.replace('\\', '/');
+    }
+
+    private void closeLog() {
+        try {
+            if (logWriter != null) {
+                logWriter.close();
+            }
+        }
+        catch (IOException ignored) {
+            // Nothing left to do about it
+        }
+
+        logWriter = null;
+    }
+
+    @Override
+    public void close() {
+        closeLog();
+    }
+
+    static final class Diagnostic {
+        final String file;
+        final int line;
+        final int column;
+        final boolean isError;
+        final String code; // e.g. C4996 or -Wunused-variable, if reported
+        final String message;
+        int occurrences = 1;
+
+        Diagnostic(final @NotNull String file, final int line, final int column, final boolean isError, final @Nullable String code,
+                   final @NotNull String message) {
+            this.file = file;
+            this.line = line;
+            this.column = column;
+            this.isError = isError;
+            this.code = code;
+            this.message = message;
+        }
+
+        @Override
+        public String toString() {
+            final String location = column > 0 ? String.format("%s:%d:%d", file, line, column) : String.format("%s:%d", file, line);
+            final String suffix = occurrences > 1 ? String.format(" (%d times)", occurrences) : "";
+            return String.format("%s: %s: %s%s", location, isError ? "error" : "warning", message, suffix);
+        }
+    }
+}
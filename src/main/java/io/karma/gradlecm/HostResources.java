@@ -0,0 +1,148 @@
+package io.karma.gradlecm;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+
+/**
+ * Detects the memory and processors available to builds on this host,
+ * honoring the limits of the cgroup (v1 or v2) the Gradle daemon runs in,
+ * which is what matters in CI containers.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+final class HostResources {
+    private static final String[] CGROUP_LIMIT_FILES = {"/sys/fs/cgroup/memory.max", "/sys/fs/cgroup/memory/memory.limit_in_bytes"};
+
+    // @formatter:off
+    private HostResources() {}
+    // @formatter:on
+
+    static int getProcessors() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @return the total memory in bytes, limited by the cgroup if there is one, or 0 if it is unknown.
+     */
+    static long getTotalMemory() {
+        long memory = readMemInfo("MemTotal:");
+
+        if (memory <= 0) {
+            memory = getPhysicalMemory();
+        }
+
+        for (final String path : CGROUP_LIMIT_FILES) {
+            final long limit = readNumber(new File(path));
+
+            // Unlimited cgroups report "max" or a value close to Long.MAX_VALUE
+            if (limit > 0 && (memory <= 0 || limit < memory)) {
+                memory = limit;
+            }
+        }
+
+        return memory;
+    }
+
+    private static long getPhysicalMemory() {
+        final OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+
+        if (bean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) bean).getTotalPhysicalMemorySize();
+        }
+
+        return 0;
+    }
+
+    private static long readMemInfo(final @NotNull String key) {
+        final File file = new File("/proc/meminfo");
+
+        if (!file.isFile()) {
+            return 0;
+        }
+
+        try {
+            for (final String line : Files.readAllLines(file.toPath(), StandardCharsets.US_ASCII)) {
+                if (line.startsWith(key)) {
+                    final String[] parts = line.substring(key.length()).trim().split("\\s+");
+                    return Long.parseLong(parts[0]) * 1024; // Always reported in kB
+                }
+            }
+        }
+        catch (IOException | RuntimeException ignored) {
+            // Not available
+        }
+
+        return 0;
+    }
+
+    private static long readNumber(final @NotNull File file) {
+        if (!file.isFile()) {
+            return 0;
+        }
+
+        try {
+            return Long.parseLong(new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII).trim());
+        }
+        catch (IOException | NumberFormatException ignored) {
+            return 0;
+        }
+    }
+
+    /**
+     * Parses a memory size like "512M", "4G" or "4GiB" into bytes.
+     *
+     * @return the size, or null if the value could not be parsed.
+     */
+    static @Nullable Long parseSize(final @Nullable String size) {
+        if (size == null || size.trim().isEmpty()) {
+            return null;
+        }
+
+        String value = size.trim().toUpperCase(Locale.ROOT);
+
+        if (value.endsWith("IB")) {
+            value = value.substring(0, value.length() - 2);
+        }
+        else if (value.endsWith("B")) {
+            value = value.substring(0, value.length() - 1);
+        }
+
+        long factor = 1;
+        final char unit = value.isEmpty() ? ' ' : value.charAt(value.length() - 1);
+
+        switch (unit) {
+            case 'K':
+                factor = 1L << 10;
+                break;
+            case 'M':
+                factor = 1L << 20;
+                break;
+            case 'G':
+                factor = 1L << 30;
+                break;
+            case 'T':
+                factor = 1L << 40;
+                break;
+        }
+
+        if (factor != 1) {
+            value = value.substring(0, value.length() - 1);
+        }
+
+        try {
+            return (long) (Double.parseDouble(value.trim()) * factor);
+        }
+        catch (NumberFormatException error) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package io.karma.gradlecm;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.stream.Stream;
+
+/**
+ * Mirrors a staging folder into an install folder, touching only the files whose content changed.
+ * Changed files are hard-linked from the staging folder where the file system allows it and copied
+ * otherwise, and always replaced atomically, so consumers never see a partially written library.
+ * CMake rewrites an outdated file in place during install, which would change the install folder
+ * through such a link, so {@link #breakLinks(Path, Path)} has to run before every install.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+final class InstallSync {
+    private static final int BUFFER_SIZE = 65536;
+
+    private int linked;
+    private int copied;
+    private int unchanged;
+    private int removed;
+    private boolean canLink = true;
+
+    /**
+     * @param staging the folder CMake installed into.
+     * @param target  the install folder to update.
+     * @param files   the installed files relative to the staging folder. Everything else
+     *                in the install folder is removed, anything else in the staging folder ignored.
+     */
+    void sync(final @NotNull Path staging, final @NotNull Path target, final @NotNull Collection<Path> files) throws IOException {
+        Files.createDirectories(target);
+        final HashSet<Path> installed = new HashSet<>();
+
+        for (final Path relative : files) {
+            final Path source = staging.resolve(relative.toString());
+            final Path destination = target.resolve(relative.toString());
+
+            if (!Files.exists(source, LinkOption.NOFOLLOW_LINKS)) {
+                continue; // Listed, but removed by a later install rule
+            }
+
+            // All parent folders are kept as well
+            for (Path parent = relative.getParent(); parent != null && installed.add(parent); parent = parent.getParent()) {
+                final Path folder = target.resolve(parent.toString());
+
+                if (Files.exists(folder, LinkOption.NOFOLLOW_LINKS) && !Files.isDirectory(folder, LinkOption.NOFOLLOW_LINKS)) {
+                    Files.delete(folder);
+                }
+            }
+
+            Files.createDirectories(destination.getParent());
+            installed.add(relative);
+
+            if (Files.isSymbolicLink(source)) {
+                syncLink(source, destination);
+            }
+            else if (Files.isDirectory(source)) {
+                if (!Files.isDirectory(destination, LinkOption.NOFOLLOW_LINKS)) {
+                    ParallelDelete.delete(Collections.singletonList(destination));
+                    Files.createDirectories(destination);
+                }
+            }
+            else {
+                syncFile(source, destination);
+            }
+        }
+
+        removeStale(target, installed);
+    }
+
+    /**
+     * Gives every staged file which is hard-linked into the install folder a content of its own,
+     * so the next install into the staging folder cannot write through to the install folder.
+     * The copies keep their timestamps, so CMake still skips those which are up to date.
+     *
+     * @return the number of links which were broken.
+     */
+    static int breakLinks(final @NotNull Path staging, final @NotNull Path target) throws IOException {
+        if (!Files.isDirectory(staging) || !Files.isDirectory(target)) {
+            return 0;
+        }
+
+        final ArrayList<Path> linked = new ArrayList<>();
+
+        try (final Stream<Path> paths = Files.walk(staging)) {
+            for (final Path source : (Iterable<Path>) paths::iterator) {
+                final Path destination = target.resolve(staging.relativize(source).toString());
+
+                if (Files.isRegularFile(source, LinkOption.NOFOLLOW_LINKS) && Files.isRegularFile(destination, LinkOption.NOFOLLOW_LINKS)
+                    && Files.isSameFile(source, destination)) {
+                    linked.add(source);
+                }
+            }
+        }
+
+        for (final Path source : linked) {
+            final Path temp = getTempPath(source);
+            Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+            Files.move(temp, source, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        return linked.size();
+    }
+
+    private void syncLink(final @NotNull Path source, final @NotNull Path destination) throws IOException {
+        final Path link = Files.readSymbolicLink(source);
+
+        if (Files.isSymbolicLink(destination) && Files.readSymbolicLink(destination).equals(link)) {
+            unchanged++;
+            return;
+        }
+
+        final Path temp = getTempPath(destination);
+        Files.createSymbolicLink(temp, link);
+        replace(temp, destination);
+        copied++;
+    }
+
+    private void syncFile(final @NotNull Path source, final @NotNull Path destination) throws IOException {
+        if (Files.isRegularFile(destination, LinkOption.NOFOLLOW_LINKS) && (Files.isSameFile(source, destination) || hasSameContent(source, destination))) {
+            unchanged++;
+            return;
+        }
+
+        final Path temp = getTempPath(destination);
+
+        if (canLink) {
+            try {
+                Files.createLink(temp, source);
+                replace(temp, destination);
+                linked++;
+                return;
+            }
+            catch (UnsupportedOperationException | IOException error) {
+                if (error instanceof FileAlreadyExistsException) {
+                    throw error;
+                }
+
+                canLink = false; // Different file systems or no hard link support, copy from now on
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        Files.copy(source, temp, StandardCopyOption.COPY_ATTRIBUTES);
+        replace(temp, destination);
+        copied++;
+    }
+
+    private static @NotNull Path getTempPath(final @NotNull Path destination) {
+        return destination.resolveSibling("." + destination.getFileName() + ".gradle-tmp");
+    }
+
+    private static void replace(final @NotNull Path temp, final @NotNull Path destination) throws IOException {
+        if (Files.isDirectory(destination, LinkOption.NOFOLLOW_LINKS)) {
+            ParallelDelete.delete(Collections.singletonList(destination));
+        }
+
+        Files.move(temp, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static boolean hasSameContent(final @NotNull Path a, final @NotNull Path b) throws IOException {
+        if (Files.size(a) != Files.size(b)) {
+            return false;
+        }
+
+        try (final InputStream streamA = Files.newInputStream(a); final InputStream streamB = Files.newInputStream(b)) {
+            final byte[] bufferA = new byte[BUFFER_SIZE];
+            final byte[] bufferB = new byte[BUFFER_SIZE];
+
+            while (true) {
+                final int readA = readFully(streamA, bufferA);
+                final int readB = readFully(streamB, bufferB);
+
+                if (readA != readB || !Arrays.equals(bufferA, bufferB)) {
+                    return false;
+                }
+
+                if (readA < BUFFER_SIZE) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    private static int readFully(final @NotNull InputStream stream, final byte @NotNull [] buffer) throws IOException {
+        int total = 0;
+
+        while (total < buffer.length) {
+            final int read = stream.read(buffer, total, buffer.length - total);
+
+            if (read < 0) {
+                break;
+            }
+
+            total += read;
+        }
+
+        // Clear the rest, so a short last block compares equal regardless of what the previous one left behind
+        Arrays.fill(buffer, total, buffer.length, (byte) 0);
+        return total;
+    }
+
+    private void removeStale(final @NotNull Path target, final @NotNull HashSet<Path> staged) throws IOException {
+        final ArrayList<Path> stale = new ArrayList<>();
+
+        try (final Stream<Path> paths = Files.walk(target)) {
+            paths.filter(path -> !path.equals(target) && !staged.contains(target.relativize(path))).forEach(stale::add);
+        }
+
+        // A stale folder is deleted as a whole, its content does not need to be listed separately
+        final ArrayList<Path> roots = new ArrayList<>();
+
+        for (final Path path : stale) {
+            if (roots.isEmpty() || !path.startsWith(roots.get(roots.size() - 1))) {
+                roots.add(path);
+            }
+        }
+
+        ParallelDelete.delete(roots);
+        removed += roots.size();
+    }
+
+    int getChanged() {
+        return linked + copied;
+    }
+
+    int getLinked() {
+        return linked;
+    }
+
+    int getUnchanged() {
+        return unchanged;
+    }
+
+    int getRemoved() {
+        return removed;
+    }
+}
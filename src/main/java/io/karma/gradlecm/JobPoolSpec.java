@@ -0,0 +1,71 @@
+package io.karma.gradlecm;
+
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Configuration of the {@code jobPools} block, which sizes Ninja job pools
+ * for compiling and linking from the memory and processors of the host, so
+ * that memory hungry links (e.g. with LTO) are throttled while compiles keep
+ * running at full width.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+public class JobPoolSpec {
+    private final Property<Boolean> enabled;
+    private final Property<String> compileMemory; // memory needed per compile job, for example "1G", unlimited if absent
+    private final Property<String> linkMemory; // memory needed per link job, for example "4G"
+    private final Property<Integer> maxCompileJobs;
+    private final Property<Integer> maxLinkJobs;
+
+    public JobPoolSpec(final @NotNull ObjectFactory factory) {
+        // @formatter:off
+        enabled        = factory.property(Boolean.class);
+        compileMemory  = factory.property(String.class);
+        linkMemory     = factory.property(String.class);
+        maxCompileJobs = factory.property(Integer.class);
+        maxLinkJobs    = factory.property(Integer.class);
+        // @formatter:on
+    }
+
+    public @NotNull Property<Boolean> getEnabled() {
+        return enabled;
+    }
+
+    public @NotNull Property<String> getCompileMemory() {
+        return compileMemory;
+    }
+
+    public @NotNull Property<String> getLinkMemory() {
+        return linkMemory;
+    }
+
+    public @NotNull Property<Integer> getMaxCompileJobs() {
+        return maxCompileJobs;
+    }
+
+    public @NotNull Property<Integer> getMaxLinkJobs() {
+        return maxLinkJobs;
+    }
+
+    /**
+     * The number of jobs which fit into the host, limited by the processors, the
+     * memory needed per job if given, and the explicit maximum if given.
+     */
+    static int size(final int processors, final long memory, final @NotNull Property<String> memoryPerJob, final @NotNull Property<Integer> maxJobs) {
+        int jobs = processors;
+        final Long perJob = HostResources.parseSize(memoryPerJob.getOrNull());
+
+        if (perJob != null && perJob > 0 && memory > 0) {
+            jobs = (int) Math.min(jobs, memory / perJob);
+        }
+
+        if (maxJobs.isPresent() && maxJobs.get() > 0) {
+            jobs = Math.min(jobs, maxJobs.get());
+        }
+
+        return Math.max(1, jobs);
+    }
+}
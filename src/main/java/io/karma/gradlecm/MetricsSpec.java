@@ -0,0 +1,59 @@
+package io.karma.gradlecm;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Configuration of the {@code metrics} block, which records the cost of every
+ * CMake invocation of the build and compares it against a baseline.
+ * The first project applying the plugin configures it for the whole build.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+public class MetricsSpec {
+    private final Property<Boolean> enabled;
+    private final DirectoryProperty reportFolder;
+    private final RegularFileProperty baseline;
+    private final Property<Double> threshold; // in percent
+    private final Property<Long> minDuration; // in milliseconds
+    private final Property<Boolean> failOnRegression;
+
+    public MetricsSpec(final @NotNull ObjectFactory factory) {
+        // @formatter:off
+        enabled          = factory.property(Boolean.class);
+        reportFolder     = factory.directoryProperty();
+        baseline         = factory.fileProperty();
+        threshold        = factory.property(Double.class);
+        minDuration      = factory.property(Long.class);
+        failOnRegression = factory.property(Boolean.class);
+        // @formatter:on
+    }
+
+    public @NotNull Property<Boolean> getEnabled() {
+        return enabled;
+    }
+
+    public @NotNull DirectoryProperty getReportFolder() {
+        return reportFolder;
+    }
+
+    public @NotNull RegularFileProperty getBaseline() {
+        return baseline;
+    }
+
+    public @NotNull Property<Double> getThreshold() {
+        return threshold;
+    }
+
+    public @NotNull Property<Long> getMinDuration() {
+        return minDuration;
+    }
+
+    public @NotNull Property<Boolean> getFailOnRegression() {
+        return failOnRegression;
+    }
+}
@@ -0,0 +1,155 @@
+package io.karma.gradlecm;
+
+import org.gradle.api.Named;
+import org.gradle.api.NamedDomainObjectProvider;
+import org.gradle.api.artifacts.ConsumableConfiguration;
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.attributes.AttributeContainer;
+import org.gradle.api.attributes.Usage;
+import org.gradle.api.file.Directory;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.nativeplatform.MachineArchitecture;
+import org.gradle.nativeplatform.OperatingSystemFamily;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+
+/**
+ * The attributes of the outgoing variants which publish an installed CMake build to other
+ * projects. Besides the usage ({@code native-runtime}), each variant carries the build type
+ * and the operating system and architecture it was built for, using the standard attributes
+ * of Gradle's native support, so consumers select the right one with regular attribute matching.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+public final class NativeAttributes {
+    /**
+     * The CMake build type (configuration) of the installed build, or {@code default} if none was set.
+     */
+    public static final Attribute<String> BUILD_TYPE_ATTRIBUTE = Attribute.of("io.karma.gradlecm.buildType", String.class);
+
+    /**
+     * The usage of an install prefix which is meant to be put on the {@code CMAKE_PREFIX_PATH} of another CMake project.
+     */
+    public static final String PREFIX_USAGE = "cmake-prefix";
+
+    static final String DEFAULT_BUILD_TYPE = "default";
+    private static final String COMPONENT_GROUP = "io.karma.gradlecm.component";
+    private static final String TARGET_GROUP = "io.karma.gradlecm.target";
+    private static final String COMPONENT_VERSION = "1.0";
+
+    // @formatter:off
+    private NativeAttributes() {}
+    // @formatter:on
+
+    /**
+     * @return the operating system family of the host, as named by {@link OperatingSystemFamily}.
+     */
+    static @NotNull String getHostOperatingSystem() {
+        final String name = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+
+        if (name.startsWith("windows")) {
+            return OperatingSystemFamily.WINDOWS;
+        }
+
+        if (name.startsWith("mac") || name.startsWith("darwin")) {
+            return OperatingSystemFamily.MACOS;
+        }
+
+        return name.contains("linux") ? OperatingSystemFamily.LINUX : name.replace(' ', '-');
+    }
+
+    /**
+     * @return the architecture of the host, as named by {@link MachineArchitecture}.
+     */
+    static @NotNull String getHostArchitecture() {
+        final String arch = System.getProperty("os.arch", "").toLowerCase(Locale.ROOT);
+
+        switch (arch) {
+            case "amd64":
+            case "x86_64":
+                return MachineArchitecture.X86_64;
+            case "x86":
+            case "i386":
+            case "i686":
+                return MachineArchitecture.X86;
+            case "aarch64":
+            case "arm64":
+                return MachineArchitecture.ARM64;
+            default:
+                return arch;
+        }
+    }
+
+    /**
+     * Attaches the attributes of an installed build to a consumable configuration and publishes the install folder as its artifact.
+     */
+    static void configure(final @NotNull NamedDomainObjectProvider<ConsumableConfiguration> configuration, final @NotNull ObjectFactory factory,
+                          final @NotNull Provider<Directory> installFolder, final @NotNull Provider<String> buildType,
+                          final @NotNull Provider<String> operatingSystem, final @NotNull Provider<String> architecture) {
+        configuration.configure(conf -> {
+            configureRuntime(conf.getAttributes(), factory, buildType, operatingSystem, architecture);
+            conf.getOutgoing().artifact(installFolder, artifact -> artifact.setType("directory"));
+        });
+    }
+
+    /**
+     * @return the capability identifying the CMake target with the given name, which consumers require to select it.
+     */
+    static @NotNull String getTargetCapability(final @NotNull String name) {
+        return TARGET_GROUP + ":" + name;
+    }
+
+    /**
+     * Publishes the artifacts of a single CMake target and the targets it links against, as built by its own build task.
+     * It carries the same attributes as the installed build, and its capability lets consumers pick it instead of the whole build.
+     */
+    static void configureTarget(final @NotNull NamedDomainObjectProvider<ConsumableConfiguration> configuration, final @NotNull ObjectFactory factory,
+                                final @NotNull String name, final @NotNull TaskProvider<CMakeBuildTask> build, final @NotNull Provider<String> buildType,
+                                final @NotNull Provider<String> operatingSystem, final @NotNull Provider<String> architecture) {
+        configuration.configure(conf -> {
+            configureRuntime(conf.getAttributes(), factory, buildType, operatingSystem, architecture);
+            conf.getOutgoing().capability(getTargetCapability(name) + ":" + COMPONENT_VERSION);
+            conf.getOutgoing().artifacts(build.map(task -> task.getArtifacts().values()), artifact -> artifact.builtBy(build));
+        });
+    }
+
+    private static void configureRuntime(final @NotNull AttributeContainer attributes, final @NotNull ObjectFactory factory,
+                                         final @NotNull Provider<String> buildType, final @NotNull Provider<String> operatingSystem,
+                                         final @NotNull Provider<String> architecture) {
+        attributes.attribute(Usage.USAGE_ATTRIBUTE, factory.named(Usage.class, Usage.NATIVE_RUNTIME));
+        attributes.attributeProvider(BUILD_TYPE_ATTRIBUTE, buildType.orElse(DEFAULT_BUILD_TYPE));
+        attributes.attributeProvider(OperatingSystemFamily.OPERATING_SYSTEM_ATTRIBUTE, named(factory, OperatingSystemFamily.class,
+            operatingSystem.orElse(getHostOperatingSystem())));
+        attributes.attributeProvider(MachineArchitecture.ARCHITECTURE_ATTRIBUTE, named(factory, MachineArchitecture.class,
+            architecture.orElse(getHostArchitecture())));
+    }
+
+    /**
+     * @return the capability identifying the component with the given name, which consumers require to select it.
+     */
+    static @NotNull String getComponentCapability(final @NotNull String name) {
+        return COMPONENT_GROUP + ":" + name;
+    }
+
+    /**
+     * Publishes the install prefix of a component. Its usage keeps it apart from the installed builds of the project,
+     * and its capability lets consumers pick one out of the components of a project.
+     */
+    static void configureComponent(final @NotNull NamedDomainObjectProvider<ConsumableConfiguration> configuration, final @NotNull ObjectFactory factory,
+                                   final @NotNull String name, final @NotNull Provider<Directory> installFolder) {
+        configuration.configure(conf -> {
+            conf.getAttributes().attribute(Usage.USAGE_ATTRIBUTE, factory.named(Usage.class, PREFIX_USAGE));
+            conf.getOutgoing().capability(getComponentCapability(name) + ":" + COMPONENT_VERSION);
+            conf.getOutgoing().artifact(installFolder, artifact -> artifact.setType("directory"));
+        });
+    }
+
+    private static <T extends Named> @NotNull Provider<T> named(final @NotNull ObjectFactory factory, final @NotNull Class<T> type,
+                                                                 final @NotNull Provider<String> name) {
+        return name.map(value -> factory.named(type, value));
+    }
+}
@@ -0,0 +1,106 @@
+package io.karma.gradlecm;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains a single output stream of a child process into a queue
+ * shared with the other stream of the same process, so both
+ * pipes are emptied at the same time and the lines keep the
+ * order in which they arrived.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+final class OutputPump implements Runnable {
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private final InputStream stream;
+    private final boolean isError;
+    private final BlockingQueue<Line> queue;
+    private volatile IOException error;
+    private volatile boolean stopped;
+
+    OutputPump(final @NotNull InputStream stream, final boolean isError, final @NotNull BlockingQueue<Line> queue) {
+        this.stream = stream;
+        this.isError = isError;
+        this.queue = queue;
+    }
+
+    @Override
+    public void run() {
+        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                if (!put(new Line(line, isError))) {
+                    return;
+                }
+            }
+        }
+        catch (IOException e) {
+            if (!stopped) {
+                error = e;
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            try {
+                put(new Line(null, isError));
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Waits for space in the queue until the pump is stopped, since a bounded
+     * queue is never emptied again once its consumer went away.
+     *
+     * @return false if the pump was stopped before the line could be queued.
+     */
+    private boolean put(final @NotNull Line line) throws InterruptedException {
+        while (!stopped) {
+            if (queue.offer(line, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Makes the pump give up on queueing, so it exits as soon as its stream is closed.
+     */
+    void stop() {
+        stopped = true;
+    }
+
+    @Nullable IOException getError() {
+        return error;
+    }
+
+    static final class Line {
+        final String text; // null marks the end of the stream
+        final boolean isError;
+
+        Line(final @Nullable String text, final boolean isError) {
+            this.text = text;
+            this.isError = isError;
+        }
+
+        boolean isEndOfStream() {
+            return text == null;
+        }
+    }
+}
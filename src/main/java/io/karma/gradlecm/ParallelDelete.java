@@ -0,0 +1,144 @@
+package io.karma.gradlecm;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Deletes file trees with a fork-join walk, one task per directory which
+ * deletes the files in it itself. This keeps many deletions in flight at once
+ * and is several times faster than a sequential walk on large binary trees,
+ * especially on SSDs and network file systems. Failures do not stop the walk; they are collected and reported
+ * together once everything else is gone.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+final class ParallelDelete {
+    private static final int MAX_REPORTED_ERRORS = 10;
+
+    // @formatter:off
+    private ParallelDelete() {}
+    // @formatter:on
+
+    /**
+     * Deletes the given files and directories including their content. Symbolic links
+     * are deleted themselves and never followed. Paths which do not exist are ignored.
+     *
+     * @throws IOException if anything could not be deleted, with the individual failures attached as suppressed exceptions.
+     */
+    static void delete(final @NotNull Collection<Path> roots) throws IOException {
+        if (roots.isEmpty()) {
+            return;
+        }
+
+        final ConcurrentLinkedQueue<IOException> errors = new ConcurrentLinkedQueue<>();
+        // Deleting is I/O bound, so more workers than cores pay off
+        final ForkJoinPool pool = new ForkJoinPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+
+        try {
+            final ArrayList<DeleteTask> tasks = new ArrayList<>();
+
+            for (final Path root : roots) {
+                tasks.add(new DeleteTask(root, errors));
+            }
+
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        }
+        finally {
+            pool.shutdown();
+        }
+
+        if (!errors.isEmpty()) {
+            final IOException error = new IOException(String.format("Could not delete %d files, e.g. %s", errors.size(), errors.peek().getMessage()));
+            errors.stream().limit(MAX_REPORTED_ERRORS).forEach(error::addSuppressed);
+            throw error;
+        }
+    }
+
+    private static void deleteFile(final @NotNull Path path) throws IOException {
+        try {
+            Files.deleteIfExists(path);
+        }
+        catch (AccessDeniedException error) {
+            // Read-only files cannot be deleted on Windows, e.g. those copied from a read-only source tree
+            final File file = path.toFile();
+
+            if (file.canWrite() || !file.setWritable(true)) {
+                throw error;
+            }
+
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private static final class DeleteTask extends RecursiveAction {
+        private final Path path;
+        private final ConcurrentLinkedQueue<IOException> errors;
+
+        DeleteTask(final @NotNull Path path, final @NotNull ConcurrentLinkedQueue<IOException> errors) {
+            this.path = path;
+            this.errors = errors;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                final BasicFileAttributes attributes;
+
+                try {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                }
+                catch (NoSuchFileException error) {
+                    return;
+                }
+
+                if (attributes.isDirectory()) {
+                    final ArrayList<DeleteTask> children = new ArrayList<>();
+
+                    // Files are deleted right here, only subdirectories get a task of their own
+                    try (final DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+                        for (final Path child : stream) {
+                            if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                                children.add(new DeleteTask(child, errors));
+                                continue;
+                            }
+
+                            try {
+                                deleteFile(child);
+                            }
+                            catch (IOException error) {
+                                errors.add(error);
+                            }
+                        }
+                    }
+
+                    invokeAll(children);
+                }
+
+                deleteFile(path);
+            }
+            catch (IOException error) {
+                errors.add(error);
+            }
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package io.karma.gradlecm;
+
+import org.gradle.api.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Cache of the toolchain probes of a configure run, shared by all working folders of a machine.
+ * <p>
+ * A fresh binary tree identifies every enabled language, detects its ABI and runs the {@code check_*}
+ * probes of the project, which give the same answers as long as the toolchain stays the same.
+ * After a configure, the files CMake keeps in {@code CMakeFiles/<version>} (the {@code CMake<LANG>Compiler.cmake}
+ * and {@code CMakeSystem.cmake} files and the ABI binaries) and the cached check results are stored under a key
+ * derived from everything that selects the toolchain: the CMake executable, generator, platform and toolset,
+ * the compiler and flag related definitions and environment variables, and the source folder.
+ * A fresh tree with the same key gets the platform files copied in, which makes CMake skip the identification,
+ * and the compilers and check results passed through an initial cache script ({@code -C}). The compilers an entry
+ * was recorded with are compared by size and modification time first, so an updated compiler is probed again.
+ * <p>
+ * The check results are additionally keyed by the hash of the project's CMake files, since an edited check
+ * would otherwise keep the cached result of its old version. Like in an incremental configure, they are reused
+ * even if other definitions changed.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+final class ProbeCache {
+    private static final String CMAKE_FILES_FOLDER = "CMakeFiles";
+    private static final String SEED_FILE = "seed.properties";
+    private static final String TOOLCHAIN_FILE = "toolchain.cmake";
+    private static final String CHECKS_FILE_FORMAT = "checks-%s.cmake";
+    private static final String SEEDED_CACHE_FILE = "gradle-initial-cache.cmake";
+    private static final String VERSION_KEY = "version";
+    private static final String CHECKS_PREFIX = "checks.";
+    private static final String COMPILER_PREFIX = "compiler.";
+    private static final Pattern TOOLCHAIN_DEFINITION = Pattern.compile(
+        "CMAKE_(TOOLCHAIN_FILE|SYSROOT|SYSTEM_\\w+|OSX_\\w+|\\w*COMPILER\\w*|\\w*FLAGS\\w*|BUILD_TYPE|MSVC_RUNTIME_LIBRARY|GENERATOR_\\w+)");
+    private static final Pattern COMPILER_ENTRY = Pattern.compile("CMAKE_\\w+_COMPILER");
+    private static final String[] TOOLCHAIN_ENV = {"CC", "CXX", "FC", "CUDACXX", "CUDAHOSTCXX", "HIPCXX", "ASM", "RC", "CFLAGS", "CXXFLAGS", "CPPFLAGS",
+        "FFLAGS", "CUDAFLAGS", "LDFLAGS", "SDKROOT", "MACOSX_DEPLOYMENT_TARGET", "INCLUDE", "LIB", "PATH"};
+    private static final String[] CHECK_HELP_PREFIXES = {"Have ", "Test ", "Result of TRY_COMPILE", "Result of try_compile", "Result of TRY_RUN",
+        "Result of try_run", "CHECK_TYPE_SIZE:"};
+
+    private final File folder;
+
+    ProbeCache(final @NotNull File folder) {
+        this.folder = folder;
+    }
+
+    /**
+     * Derives the key of a binary tree from everything that selects its toolchain, before CMake runs.
+     */
+    static @NotNull String computeKey(final @NotNull String cmake, final @Nullable String generator, final @Nullable String platform,
+                                      final @Nullable String toolset, final @NotNull File sourceFolder, final @NotNull Map<String, String> defs,
+                                      final @NotNull Map<String, String> env) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(cmake).append('\n');
+        sb.append(generator).append('\n').append(platform).append('\n').append(toolset).append('\n');
+        sb.append(sourceFolder.getAbsolutePath()).append('\n');
+
+        for (final Entry<String, String> entry : new TreeMap<>(defs).entrySet()) {
+            if (!TOOLCHAIN_DEFINITION.matcher(entry.getKey()).matches()) {
+                continue;
+            }
+
+            sb.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+            final File file = new File(entry.getValue());
+
+            // A toolchain file may change the compilers without changing its path
+            if (entry.getKey().equals("CMAKE_TOOLCHAIN_FILE") && file.isFile()) {
+                sb.append(file.length()).append(':').append(file.lastModified()).append('\n');
+            }
+        }
+
+        for (final String name : TOOLCHAIN_ENV) {
+            final String value = env.containsKey(name) ? env.get(name) : System.getenv(name);
+            sb.append(name).append('=').append(value).append('\n');
+        }
+
+        return Utils.hash(sb.toString());
+    }
+
+    private @NotNull File getEntryFolder(final @NotNull String key) {
+        return new File(folder, key);
+    }
+
+    private static @Nullable Properties loadSeed(final @NotNull File entryFolder) {
+        final File seedFile = new File(entryFolder, SEED_FILE);
+
+        if (!seedFile.isFile()) {
+            return null;
+        }
+
+        final Properties seed = new Properties();
+
+        try (final InputStream stream = Files.newInputStream(seedFile.toPath())) {
+            seed.load(stream);
+        }
+        catch (IOException error) {
+            return null;
+        }
+
+        return seed;
+    }
+
+    /**
+     * @return whether every compiler the seed was recorded with is still the same file.
+     */
+    private static boolean hasSameCompilers(final @NotNull Properties seed) {
+        for (final String name : seed.stringPropertyNames()) {
+            if (!name.startsWith(COMPILER_PREFIX)) {
+                continue;
+            }
+
+            final File compiler = new File(name.substring(COMPILER_PREFIX.length()));
+
+            if (!compiler.isFile() || !identify(compiler).equals(seed.getProperty(name))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static @NotNull String identify(final @NotNull File file) {
+        return String.format("%d:%d", file.length(), file.lastModified());
+    }
+
+    /**
+     * Copies the platform files of the given key into a fresh binary tree.
+     *
+     * @param declarations the hash of the project's CMake files, which selects the check results.
+     * @return the initial cache script with the compilers and, if recorded for these CMake files, the check results
+     * to pass with {@code -C}, or null if nothing was seeded.
+     */
+    @Nullable File seed(final @NotNull String key, final @NotNull String declarations, final @NotNull File workingFolder,
+                        final @NotNull Logger logger) throws IOException {
+        if (new File(workingFolder, "CMakeCache.txt").exists()) {
+            return null; // Only fresh trees are seeded, an existing one has its own results
+        }
+
+        final File entryFolder = getEntryFolder(key);
+        final Properties seed = loadSeed(entryFolder);
+
+        if (seed == null || !new File(entryFolder, TOOLCHAIN_FILE).isFile()) {
+            return null;
+        }
+
+        if (!hasSameCompilers(seed)) {
+            logger.info("The compilers changed since the toolchain probes were cached, probing again");
+            return null;
+        }
+
+        final File[] files = new File(entryFolder, CMAKE_FILES_FOLDER).listFiles(File::isFile);
+        final Path target = new File(workingFolder, CMAKE_FILES_FOLDER + File.separator + seed.getProperty(VERSION_KEY)).toPath();
+        Files.createDirectories(target);
+
+        if (files != null) {
+            for (final File file : files) {
+                final Path targetFile = target.resolve(file.getName());
+
+                if (!Files.exists(targetFile)) {
+                    Files.copy(file.toPath(), targetFile, StandardCopyOption.COPY_ATTRIBUTES);
+                }
+            }
+        }
+
+        // The compilers hold for any CMake files, the check results only for the ones they were recorded with
+        final Path initialCache = target.resolveSibling(SEEDED_CACHE_FILE);
+        final File checksFile = getChecksFile(entryFolder, declarations);
+        Files.copy(new File(entryFolder, TOOLCHAIN_FILE).toPath(), initialCache, StandardCopyOption.REPLACE_EXISTING);
+
+        if (checksFile.isFile()) {
+            Files.write(initialCache, Files.readAllBytes(checksFile.toPath()), StandardOpenOption.APPEND);
+            logger.info("Seeded {} with cached toolchain probes and {} check results", workingFolder, seed.getProperty(CHECKS_PREFIX + declarations));
+        }
+        else {
+            logger.info("Seeded {} with cached toolchain probes, the CMake files have no cached check results yet", workingFolder);
+        }
+
+        return initialCache.toFile();
+    }
+
+    private static @NotNull File getChecksFile(final @NotNull File entryFolder, final @NotNull String declarations) {
+        return new File(entryFolder, String.format(CHECKS_FILE_FORMAT, declarations));
+    }
+
+    /**
+     * Stores the platform files and check results of the binary tree CMake just configured,
+     * unless the entry of the key already has all of them.
+     *
+     * @param declarations the hash of the project's CMake files, which selects the check results.
+     */
+    void record(final @NotNull String key, final @NotNull String declarations, final @NotNull File workingFolder, final @NotNull Logger logger)
+        throws IOException {
+        final CMakeFileApi.Reply reply = CMakeFileApi.readReply(workingFolder);
+        final File platformFolder = findPlatformFolder(workingFolder);
+
+        if (reply == null || platformFolder == null) {
+            return;
+        }
+
+        final String workingPath = workingFolder.getAbsolutePath();
+        final TreeMap<String, String> compilers = new TreeMap<>();
+        final ArrayList<CMakeFileApi.CacheEntry> compilerEntries = new ArrayList<>();
+        final ArrayList<CMakeFileApi.CacheEntry> checkEntries = new ArrayList<>();
+
+        for (final CMakeFileApi.CacheEntry entry : reply.getCacheEntryDetails()) {
+            // Anything pointing into the binary tree would be wrong for another one
+            if (entry.value.contains(workingPath)) {
+                continue;
+            }
+
+            if (COMPILER_ENTRY.matcher(entry.name).matches() && new File(entry.value).isFile()) {
+                compilers.put(COMPILER_PREFIX + entry.value, identify(new File(entry.value)));
+                compilerEntries.add(entry);
+            }
+            else if (entry.type.equals("INTERNAL") && isCheckResult(entry)) {
+                checkEntries.add(entry);
+            }
+        }
+
+        if (compilers.isEmpty()) {
+            return; // Without a compiler there is nothing to validate an entry against
+        }
+
+        final File entryFolder = getEntryFolder(key);
+        final Properties previous = loadSeed(entryFolder);
+        final String checksName = CHECKS_PREFIX + declarations;
+        final int checks = checkEntries.size();
+
+        if (previous != null && hasSameCompilers(previous) && new File(entryFolder, TOOLCHAIN_FILE).isFile()) {
+            if (Integer.parseInt(previous.getProperty(checksName, "-1")) >= checks) {
+                return;
+            }
+
+            // Same toolchain, only the check results of these CMake files are new
+            final Path temp = Files.createTempFile(entryFolder.toPath(), declarations, ".tmp");
+            writeInitialCache(temp, checkEntries);
+            Files.move(temp, getChecksFile(entryFolder, declarations).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            previous.setProperty(checksName, Integer.toString(checks));
+            final Path tempSeed = Files.createTempFile(entryFolder.toPath(), SEED_FILE, ".tmp");
+
+            try (final OutputStream stream = Files.newOutputStream(tempSeed)) {
+                previous.store(stream, null);
+            }
+
+            Files.move(tempSeed, entryFolder.toPath().resolve(SEED_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Cached {} check results of {}", checks, workingFolder);
+            return;
+        }
+
+        Files.createDirectories(folder.toPath());
+        final Path temp = Files.createTempDirectory(folder.toPath(), key);
+
+        try {
+            final Path cmakeFiles = Files.createDirectories(temp.resolve(CMAKE_FILES_FOLDER));
+            final File[] files = platformFolder.listFiles(File::isFile);
+
+            if (files != null) {
+                for (final File file : files) {
+                    if (!new String(Files.readAllBytes(file.toPath()), StandardCharsets.ISO_8859_1).contains(workingPath)) {
+                        Files.copy(file.toPath(), cmakeFiles.resolve(file.getName()), StandardCopyOption.COPY_ATTRIBUTES);
+                    }
+                }
+            }
+
+            writeInitialCache(temp.resolve(TOOLCHAIN_FILE), compilerEntries);
+            writeInitialCache(getChecksFile(temp.toFile(), declarations).toPath(), checkEntries);
+
+            final Properties seed = new Properties();
+            seed.putAll(compilers);
+            seed.setProperty(VERSION_KEY, platformFolder.getName());
+            seed.setProperty(checksName, Integer.toString(checks));
+
+            try (final OutputStream stream = Files.newOutputStream(temp.resolve(SEED_FILE))) {
+                seed.store(stream, null);
+            }
+
+            replace(temp, entryFolder.toPath());
+            logger.info("Cached toolchain probes and {} check results of {}", checks, workingFolder);
+        }
+        finally {
+            ParallelDelete.delete(Collections.singletonList(temp));
+        }
+    }
+
+    private static boolean isCheckResult(final @NotNull CMakeFileApi.CacheEntry entry) {
+        for (final String prefix : CHECK_HELP_PREFIXES) {
+            if (entry.help.startsWith(prefix)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the {@code CMakeFiles/<version>} folder holding the platform files, the most recent one if CMake was updated.
+     */
+    private static @Nullable File findPlatformFolder(final @NotNull File workingFolder) {
+        final File[] folders = new File(workingFolder, CMAKE_FILES_FOLDER).listFiles(file -> new File(file, "CMakeSystem.cmake").isFile());
+
+        if (folders == null || folders.length == 0) {
+            return null;
+        }
+
+        File latest = folders[0];
+
+        for (final File folder : folders) {
+            if (folder.lastModified() > latest.lastModified()) {
+                latest = folder;
+            }
+        }
+
+        return latest;
+    }
+
+    private static void writeInitialCache(final @NotNull Path file, final @NotNull List<CMakeFileApi.CacheEntry> entries) throws IOException {
+        try (final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            writer.println("# Toolchain probe results seeded by gradle-cmake");
+
+            for (final CMakeFileApi.CacheEntry entry : entries) {
+                writer.printf("set(%s \"%s\" CACHE %s \"%s\")%n", entry.name, escape(entry.value), entry.type, escape(entry.help));
+            }
+        }
+    }
+
+    private static @NotNull String escape(final @NotNull String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("$", "\\$").replace("\n", "\\n");
+    }
+
+    /**
+     * Moves a complete entry into place. A concurrent build replacing the same entry wins, since both recorded the same toolchain.
+     */
+    private static void replace(final @NotNull Path source, final @NotNull Path target) throws IOException {
+        final Path old = target.resolveSibling(target.getFileName() + ".old");
+
+        if (Files.isDirectory(target)) {
+            ParallelDelete.delete(Collections.singletonList(old));
+            Files.move(target, old);
+        }
+
+        try {
+            Files.move(source, target);
+        }
+        catch (IOException error) {
+            if (!Files.isDirectory(target)) {
+                throw error;
+            }
+        }
+        finally {
+            ParallelDelete.delete(Collections.singletonList(old));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package io.karma.gradlecm;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Configuration of the {@code probeCache} block, which seeds fresh binary trees
+ * with the compiler identification and check results of earlier configure runs.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+public class ProbeCacheSpec {
+    private final Property<Boolean> enabled;
+    private final DirectoryProperty folder;
+
+    public ProbeCacheSpec(final @NotNull ObjectFactory factory) {
+        // @formatter:off
+        enabled = factory.property(Boolean.class);
+        folder  = factory.directoryProperty();
+        // @formatter:on
+    }
+
+    public @NotNull Property<Boolean> getEnabled() {
+        return enabled;
+    }
+
+    public @NotNull DirectoryProperty getFolder() {
+        return folder;
+    }
+}
@@ -0,0 +1,197 @@
+package io.karma.gradlecm;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Periodically samples the CPU time and resident memory of a child process and
+ * all of its descendants (the compilers and linkers a build spawns) from {@code /proc}.
+ * The CPU time of descendants which already exited is included through the
+ * {@code cutime}/{@code cstime} counters of their parents. Only available on Linux.
+ *
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+final class ProcessTreeSampler implements Runnable {
+    private static final long INTERVAL_MILLIS = 500;
+    private static final long MILLIS_PER_TICK = 10; // USER_HZ is 100 on all common Linux platforms
+    private static final File PROC_FOLDER = new File("/proc");
+
+    private final long rootPid;
+    private final Thread thread;
+    private volatile boolean stopped;
+    private volatile long cpuTicks;
+    private volatile long peakRss;
+
+    private ProcessTreeSampler(final long rootPid, final @NotNull String name) {
+        this.rootPid = rootPid;
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+    }
+
+    /**
+     * @return a running sampler for the given process, or null if the process tree cannot be sampled on this host.
+     */
+    static @Nullable ProcessTreeSampler start(final @NotNull Process process, final @NotNull String name) {
+        final long pid = getPid(process);
+
+        if (pid <= 0 || !new File(PROC_FOLDER, "self/stat").isFile()) {
+            return null;
+        }
+
+        final ProcessTreeSampler sampler = new ProcessTreeSampler(pid, name);
+        sampler.sample(); // Short-lived processes would otherwise never be sampled
+        sampler.thread.start();
+        return sampler;
+    }
+
+    private static long getPid(final @NotNull Process process) {
+        try {
+            // Process.pid() exists since Java 9
+            final Method method = Process.class.getMethod("pid");
+            return (Long) method.invoke(process);
+        }
+        catch (ReflectiveOperationException | RuntimeException error) {
+            return -1;
+        }
+    }
+
+    @Override
+    public void run() {
+        while (!stopped) {
+            try {
+                Thread.sleep(INTERVAL_MILLIS);
+            }
+            catch (InterruptedException error) {
+                return;
+            }
+
+            sample();
+        }
+    }
+
+    void stop() {
+        stopped = true;
+        thread.interrupt();
+
+        try {
+            thread.join();
+        }
+        catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the CPU time of the process tree in milliseconds, as of the last sample.
+     */
+    long getCpuMillis() {
+        return cpuTicks * MILLIS_PER_TICK;
+    }
+
+    /**
+     * @return the highest sampled sum of the resident memory of the process tree in bytes.
+     */
+    long getPeakRss() {
+        return peakRss;
+    }
+
+    private void sample() {
+        final String[] entries = PROC_FOLDER.list();
+
+        if (entries == null) {
+            return;
+        }
+
+        final HashMap<Long, List<Stat>> children = new HashMap<>();
+        Stat root = null;
+
+        for (final String entry : entries) {
+            if (entry.isEmpty() || !Character.isDigit(entry.charAt(0))) {
+                continue;
+            }
+
+            final Stat stat = Stat.read(Long.parseLong(entry));
+
+            if (stat == null) {
+                continue;
+            }
+
+            if (stat.pid == rootPid) {
+                root = stat;
+            }
+            else {
+                children.computeIfAbsent(stat.ppid, key -> new ArrayList<>()).add(stat);
+            }
+        }
+
+        if (root == null) {
+            return; // Exited in the meantime, the previous sample stands
+        }
+
+        long ticks = 0;
+        long rss = 0;
+        final ArrayDeque<Stat> queue = new ArrayDeque<>();
+        queue.add(root);
+
+        while (!queue.isEmpty()) {
+            final Stat stat = queue.poll();
+            ticks += stat.ticks;
+            rss += readRss(stat.pid);
+            queue.addAll(children.getOrDefault(stat.pid, new ArrayList<>()));
+        }
+
+        cpuTicks = Math.max(cpuTicks, ticks);
+        peakRss = Math.max(peakRss, rss);
+    }
+
+    private static long readRss(final long pid) {
+        try {
+            for (final String line : Files.readAllLines(new File(PROC_FOLDER, pid + "/status").toPath(), StandardCharsets.US_ASCII)) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.substring(6).trim().split("\\s+")[0]) * 1024; // Always reported in kB
+                }
+            }
+        }
+        catch (IOException | RuntimeException ignored) {
+            // The process exited in the meantime
+        }
+
+        return 0;
+    }
+
+    private static final class Stat {
+        final long pid;
+        final long ppid;
+        final long ticks; // utime + stime + cutime + cstime
+
+        Stat(final long pid, final long ppid, final long ticks) {
+            this.pid = pid;
+            this.ppid = ppid;
+            this.ticks = ticks;
+        }
+
+        static @Nullable Stat read(final long pid) {
+            try {
+                final String line = new String(Files.readAllBytes(new File(PROC_FOLDER, pid + "/stat").toPath()), StandardCharsets.US_ASCII);
+                // The command name may contain spaces and parentheses, the fields start after the last one
+                final String[] fields = line.substring(line.lastIndexOf(')') + 2).trim().split(" ");
+                final long ticks = Long.parseLong(fields[11]) + Long.parseLong(fields[12]) + Long.parseLong(fields[13]) + Long.parseLong(fields[14]);
+                return new Stat(pid, Long.parseLong(fields[1]), ticks);
+            }
+            catch (IOException | RuntimeException error) {
+                return null;
+            }
+        }
+    }
+}
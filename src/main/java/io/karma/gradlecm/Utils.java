@@ -1,8 +1,20 @@
 package io.karma.gradlecm;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Common utility functions shared accross the plugin.
@@ -15,14 +27,151 @@ final class Utils {
     private Utils() {}
     // @formatter:on
 
-    // TODO: move into Kommons
-    static boolean deleteDirectory(final @NotNull File directoryToBeDeleted) {
-        final File[] allContents = directoryToBeDeleted.listFiles();
-        if (allContents != null) {
-            for (final File file : allContents) {
-                deleteDirectory(file);
+    /**
+     * Deletes a directory including its content in parallel.
+     *
+     * @throws IOException if anything could not be deleted, with the individual failures attached as suppressed exceptions.
+     */
+    static void deleteDirectory(final @NotNull File directoryToBeDeleted) throws IOException {
+        ParallelDelete.delete(Collections.singletonList(directoryToBeDeleted.toPath()));
+    }
+
+    /**
+     * Turns a set of files into a map keyed by their path relative to the given root,
+     * which is what Gradle expects from an {@code @OutputFiles} property with stable names.
+     */
+    static @NotNull Map<String, File> toRelativeFileMap(final @NotNull File root, final @NotNull Collection<File> files) {
+        final TreeMap<String, File> map = new TreeMap<>();
+        final String rootPath = root.getAbsolutePath() + File.separator;
+
+        for (final File file : files) {
+            final String path = file.getAbsolutePath();
+            final String key = path.startsWith(rootPath) ? path.substring(rootPath.length()) : path;
+            map.put(key.replace(File.separatorChar, '/'), file);
+        }
+
+        return map;
+    }
+
+    static @NotNull MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException error) {
+            throw new IllegalStateException("SHA-256 is not available", error);
+        }
+    }
+
+    static @NotNull String toHex(final byte @NotNull [] bytes) {
+        final StringBuilder sb = new StringBuilder(bytes.length << 1);
+
+        for (final byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return sb.toString();
+    }
+
+    static @NotNull String hash(final @NotNull String value) {
+        return toHex(newDigest().digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    static @NotNull String hash(final @NotNull File file) throws IOException {
+        final MessageDigest digest = newDigest();
+        final byte[] buffer = new byte[65536];
+
+        try (final InputStream stream = Files.newInputStream(file.toPath())) {
+            int read;
+
+            while ((read = stream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Resolves an executable the same way a shell would, by looking it up on the PATH
+     * unless it already is a path.
+     *
+     * @return the executable file, or null if it could not be found.
+     */
+    static @Nullable File findExecutable(final @NotNull String name) {
+        final File file = new File(name);
+
+        if (file.isAbsolute() || name.indexOf('/') != -1 || name.indexOf(File.separatorChar) != -1) {
+            return file.isFile() ? file : null;
+        }
+
+        final String path = System.getenv("PATH");
+
+        if (path == null) {
+            return null;
+        }
+
+        final boolean isWindows = File.separatorChar == '\\';
+
+        for (final String folder : path.split(File.pathSeparator)) {
+            if (folder.isEmpty()) {
+                continue;
+            }
+
+            final File candidate = new File(folder, name);
+
+            if (candidate.isFile() && candidate.canExecute()) {
+                return candidate;
+            }
+
+            if (isWindows) {
+                final File exe = new File(folder, name + ".exe");
+
+                if (exe.isFile()) {
+                    return exe;
+                }
             }
         }
-        return directoryToBeDeleted.delete();
+
+        return null;
+    }
+
+    /**
+     * Runs a command to completion and returns what it wrote to stdout and stderr.
+     *
+     * @param env environment variables to set on top of the inherited ones.
+     * @throws IOException if the command could not be started or returned with a non-zero exit code.
+     */
+    static @NotNull String capture(final @NotNull Map<String, String> env, final @NotNull String... cmdLine) throws IOException, InterruptedException {
+        return capture(null, env, cmdLine);
+    }
+
+    /**
+     * Runs a command to completion in the given folder and returns what it wrote to stdout and stderr.
+     *
+     * @param folder the working folder of the command, or null for the working folder of the daemon.
+     * @param env    environment variables to set on top of the inherited ones.
+     * @throws IOException if the command could not be started or returned with a non-zero exit code.
+     */
+    static @NotNull String capture(final @Nullable File folder, final @NotNull Map<String, String> env, final @NotNull String... cmdLine)
+        throws IOException, InterruptedException {
+        final ProcessBuilder builder = new ProcessBuilder(cmdLine).redirectErrorStream(true).directory(folder);
+        builder.environment().putAll(env);
+        final Process process = builder.start();
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        try (final InputStream stream = process.getInputStream()) {
+            final byte[] buffer = new byte[4096];
+            int read;
+
+            while ((read = stream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+        }
+
+        if (process.waitFor() != 0) {
+            throw new IOException(String.format("%s returned with exit code %d", cmdLine[0], process.exitValue()));
+        }
+
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
     }
 }
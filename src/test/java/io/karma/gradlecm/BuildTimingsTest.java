@@ -0,0 +1,85 @@
+package io.karma.gradlecm;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+class BuildTimingsTest {
+    private static final String HEADER = "# ninja log v5\n";
+
+    @TempDir
+    File buildFolder;
+
+    private static @NotNull String edge(final int start, final int end, final @NotNull String output) {
+        return String.format("%d\t%d\t0\t%s\t%08x\n", start, end, output, output.hashCode());
+    }
+
+    private void write(final @NotNull String content, final boolean append) throws IOException {
+        Files.write(new File(buildFolder, BuildTimings.NINJA_LOG).toPath(), content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    @Test
+    void readsOnlyTheEdgesAppendedSinceThePosition() throws IOException {
+        write(HEADER + edge(0, 100, "a.o") + edge(0, 200, "b.o"), false);
+        final BuildTimings.LogPosition position = BuildTimings.LogPosition.of(buildFolder);
+        write(edge(0, 50, "c.o"), true);
+
+        final BuildTimings timings = BuildTimings.read(buildFolder, position);
+        assertNotNull(timings);
+        assertFalse(timings.isWholeLog());
+        assertEquals(1, timings.getSlowestEdges(10).size());
+        assertEquals("c.o", timings.getSlowestEdges(10).get(0).output);
+    }
+
+    @Test
+    void readsTheWholeLogAfterRecompaction() throws IOException {
+        write(HEADER + edge(0, 100, "a.o") + edge(0, 200, "b.o"), false);
+        final BuildTimings.LogPosition position = BuildTimings.LogPosition.of(buildFolder);
+
+        // A recompacted log which is longer than the old offset, so the offset would land mid-line
+        write(HEADER + edge(0, 150, "b.o") + edge(0, 120, "a.o") + edge(0, 30, "long/path/to/an/object/file.o") + edge(0, 50, "c.o"), false);
+
+        final BuildTimings timings = BuildTimings.read(buildFolder, position);
+        assertNotNull(timings);
+        assertTrue(timings.isWholeLog());
+        assertEquals(4, timings.getSlowestEdges(10).size());
+    }
+
+    @Test
+    void measuresWallTimeUntilTheLastEdgeFinished() throws IOException {
+        final BuildTimings.LogPosition position = BuildTimings.LogPosition.of(buildFolder);
+        // The edge starting first runs longest, the one starting last finishes early
+        write(HEADER + edge(10, 900, "a.o") + edge(20, 300, "b.o") + edge(400, 500, "c.o"), false);
+
+        final BuildTimings timings = BuildTimings.read(buildFolder, position);
+        assertNotNull(timings);
+        assertEquals(890, timings.getWallMillis());
+    }
+
+    @Test
+    void readsAFreshLogFromTheStart() throws IOException {
+        final BuildTimings.LogPosition position = BuildTimings.LogPosition.of(buildFolder);
+        write(HEADER + edge(0, 100, "a.o"), false);
+
+        final BuildTimings timings = BuildTimings.read(buildFolder, position);
+        assertNotNull(timings);
+        assertFalse(timings.isWholeLog());
+        assertEquals(1, timings.getSlowestEdges(10).size());
+    }
+}
@@ -0,0 +1,123 @@
+package io.karma.gradlecm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+class CTestShardsTest {
+    @TempDir
+    File tempFolder;
+
+    private static List<String> tests(final int count) {
+        final ArrayList<String> tests = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            tests.add("test_" + i);
+        }
+
+        return tests;
+    }
+
+    private static Map<String, Double> costs(final List<String> tests) {
+        final HashMap<String, Double> costs = new HashMap<>();
+
+        // Every third test has no timings yet
+        for (int i = 0; i < tests.size(); i++) {
+            if (i % 3 != 0) {
+                costs.put(tests.get(i), 0.1 + (i * 7 % 13));
+            }
+        }
+
+        return costs;
+    }
+
+    @Test
+    void shardsAreDisjointAndCoverAllTests() {
+        final List<String> tests = tests(101);
+        final Map<String, Double> costs = costs(tests);
+
+        for (final int shardCount : new int[]{1, 2, 3, 7, 101, 150}) {
+            final TreeSet<Integer> seen = new TreeSet<>();
+            int total = 0;
+
+            for (int shard = 0; shard < shardCount; shard++) {
+                final List<Integer> selected = CTestShards.select(tests, costs, shard, shardCount);
+                total += selected.size();
+                seen.addAll(selected);
+
+                final ArrayList<Integer> sorted = new ArrayList<>(selected);
+                Collections.sort(sorted);
+                assertEquals(sorted, selected);
+            }
+
+            assertEquals(tests.size(), total, "Tests were assigned to more than one of " + shardCount + " shards");
+            assertEquals(tests.size(), seen.size());
+            assertEquals(1, (int) seen.first());
+            assertEquals(tests.size(), (int) seen.last());
+        }
+    }
+
+    @Test
+    void shardsAreDeterministic() {
+        final List<String> tests = tests(50);
+        final Map<String, Double> costs = costs(tests);
+
+        for (int shard = 0; shard < 4; shard++) {
+            // A differently ordered map of the same costs, like another agent would read it
+            final Map<String, Double> copy = new HashMap<>(costs);
+            assertEquals(CTestShards.select(tests, costs, shard, 4), CTestShards.select(tests, copy, shard, 4));
+        }
+    }
+
+    @Test
+    void balancesLongestFirst() {
+        final List<String> tests = Arrays.asList("a", "b", "c", "d", "e");
+        final HashMap<String, Double> costs = new HashMap<>();
+        costs.put("a", 10.0);
+        costs.put("b", 6.0);
+        costs.put("c", 5.0);
+        costs.put("d", 4.0);
+        costs.put("e", 1.0);
+
+        // a goes to shard 0, b to 1, c to 1 (6 < 10), d to 0 (10 < 11), e to 1 (11 < 14)
+        assertEquals(Arrays.asList(1, 4), CTestShards.select(tests, costs, 0, 2));
+        assertEquals(Arrays.asList(2, 3, 5), CTestShards.select(tests, costs, 1, 2));
+    }
+
+    @Test
+    void readsCostLinesWithSpacesInNames() throws IOException {
+        final File costData = new File(tempFolder, "CTestCostData.txt");
+        Files.write(costData.toPath(), String.join("\n",
+            "unit_tests 12 0.52",
+            "integration test with spaces 3 14.25",
+            "broken line",
+            "no_cost 4 abc",
+            "---",
+            "integration test with spaces",
+            "").getBytes(StandardCharsets.UTF_8));
+
+        final Map<String, Double> costs = CTestShards.readCosts(costData);
+        assertEquals(2, costs.size());
+        assertEquals(0.52, costs.get("unit_tests"), 1e-9);
+        assertEquals(14.25, costs.get("integration test with spaces"), 1e-9);
+        assertTrue(CTestShards.readCosts(new File(tempFolder, "missing.txt")).isEmpty());
+    }
+}
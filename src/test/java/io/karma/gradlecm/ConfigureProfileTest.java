@@ -0,0 +1,68 @@
+package io.karma.gradlecm;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+class ConfigureProfileTest {
+    @TempDir
+    File tempFolder;
+
+    private static @NotNull String event(final @NotNull String name, final @NotNull String args, final long start, final long duration) {
+        return String.format("{\"name\":\"%s\",\"ph\":\"X\",\"ts\":%d,\"dur\":%d,\"pid\":1,\"tid\":1,"
+                             + "\"args\":{\"functionArgs\":\"%s\",\"location\":\"/src/CMakeLists.txt:1\"}}", name, start, duration, args);
+    }
+
+    private @NotNull ConfigureProfile read(final @NotNull String... events) throws IOException {
+        final File trace = new File(tempFolder, "trace.json");
+        Files.write(trace.toPath(), ("[" + String.join(",", events) + "]").getBytes(StandardCharsets.UTF_8));
+        return ConfigureProfile.read(trace);
+    }
+
+    @Test
+    void countsRecursiveCallsOnceAtTheOutermostLevel() throws IOException {
+        // A -> A -> A, followed by another A which is still nested inside the outermost one
+        final ConfigureProfile profile = read(event("recurse", "x", 0, 100),
+            event("recurse", "x", 10, 40),
+            event("recurse", "x", 20, 20),
+            event("message", "inner", 25, 5),
+            event("recurse", "x", 60, 30),
+            event("message", "sibling", 70, 10));
+
+        final List<ConfigureProfile.Row> calls = profile.getCalls(Integer.MAX_VALUE);
+        assertEquals(1, calls.size());
+        assertEquals("recurse(x)", calls.get(0).name);
+        assertEquals(1, calls.get(0).count);
+        assertEquals(100, calls.get(0).micros);
+        assertEquals(100, profile.getTotalMicros());
+    }
+
+    @Test
+    void countsSequentialCallsSeparately() throws IOException {
+        final ConfigureProfile profile = read(event("include", "a.cmake", 0, 50),
+            event("message", "a", 10, 10),
+            event("include", "a.cmake", 50, 30),
+            event("message", "a", 60, 10));
+
+        final List<ConfigureProfile.Row> calls = profile.getCalls(Integer.MAX_VALUE);
+        assertEquals(1, calls.size());
+        assertEquals(2, calls.get(0).count);
+        assertEquals(80, calls.get(0).micros);
+
+        final List<ConfigureProfile.Row> commands = profile.getCommands(Integer.MAX_VALUE);
+        assertEquals("include", commands.get(0).name);
+        assertEquals(60, commands.get(0).micros);
+    }
+}
@@ -0,0 +1,168 @@
+package io.karma.gradlecm;
+
+import org.gradle.api.logging.Logging;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+class DependencyCacheTest {
+    @TempDir
+    File tempFolder;
+
+    /**
+     * A sub-build as FetchContent of CMake 3.24 and newer writes it, every detail is its own bracket argument.
+     */
+    private static @NotNull String bracketSubbuild(final @NotNull String buildFolder, final @NotNull String tag) {
+        return String.join("\n",
+            "# Distributed under the OSI-approved BSD 3-Clause License.  See accompanying",
+            "# file Copyright.txt or https://cmake.org/licensing for details.",
+            "",
+            "cmake_minimum_required(VERSION 3.28.3)",
+            "",
+            "# We name the project and the target for the ExternalProject_Add() call",
+            "# to something that will highlight to the user what we are working on if",
+            "# something goes wrong and an error message is produced.",
+            "",
+            "project(fmt-populate NONE)",
+            "",
+            "# Pass through things we've already detected in the main project to avoid",
+            "# paying the cost of redetecting them again in ExternalProject_Add()",
+            "set(GIT_EXECUTABLE [==[/usr/bin/git]==])",
+            "set(GIT_VERSION_STRING [==[2.43.0]==])",
+            "set_property(GLOBAL PROPERTY _CMAKE_FindGit_GIT_EXECUTABLE_VERSION",
+            "  [==[/usr/bin/git;2.43.0]==]",
+            ")",
+            "",
+            "include(ExternalProject)",
+            "ExternalProject_Add(fmt-populate",
+            "                     [==[GIT_REPOSITORY]==] [==[https://github.com/fmtlib/fmt.git]==] [==[GIT_TAG]==] [==[" + tag + "]==] "
+            + "[==[PATCH_COMMAND]==] [==[git]==] [==[apply]==] [==[fix;me.patch]==]",
+            "                    SOURCE_DIR          \"" + buildFolder + "/_deps/fmt-src\"",
+            "                    BINARY_DIR          \"" + buildFolder + "/_deps/fmt-build\"",
+            "                    CONFIGURE_COMMAND   \"\"",
+            "                    BUILD_COMMAND       \"\"",
+            "                    INSTALL_COMMAND     \"\"",
+            "                    TEST_COMMAND        \"\"",
+            "                    USES_TERMINAL_DOWNLOAD  YES",
+            "                    USES_TERMINAL_UPDATE    YES",
+            "                    USES_TERMINAL_PATCH     YES",
+            ")",
+            "");
+    }
+
+    /**
+     * A sub-build as older versions of FetchContent write it, all details are one list on a single line.
+     */
+    private static @NotNull String listSubbuild(final @NotNull String buildFolder, final @NotNull String tag) {
+        return String.join("\n",
+            "cmake_minimum_required(VERSION 3.16.3)",
+            "",
+            "project(fmt-populate NONE)",
+            "",
+            "include(ExternalProject)",
+            "ExternalProject_Add(fmt-populate",
+            "                     \"UPDATE_DISCONNECTED\" \"False\" "
+            + "GIT_REPOSITORY;https://github.com/fmtlib/fmt.git;GIT_TAG;" + tag + ";PATCH_COMMAND;git;apply;fix\\;me.patch",
+            "                    SOURCE_DIR          \"" + buildFolder + "/_deps/fmt-src\"",
+            "                    BINARY_DIR          \"" + buildFolder + "/_deps/fmt-build\"",
+            "                    CONFIGURE_COMMAND   \"\"",
+            "                    BUILD_COMMAND       \"\"",
+            "                    INSTALL_COMMAND     \"\"",
+            "                    TEST_COMMAND        \"\"",
+            "                    USES_TERMINAL_DOWNLOAD  YES",
+            "                    USES_TERMINAL_UPDATE    YES",
+            "                    USES_TERMINAL_PATCH     YES",
+            ")",
+            "");
+    }
+
+    private @NotNull File write(final @NotNull String path, final @NotNull String content) throws IOException {
+        final File file = new File(tempFolder, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    void parsesBracketAndListArguments() {
+        final List<String> expected = Arrays.asList("fmt-populate", "GIT_REPOSITORY", "https://github.com/fmtlib/fmt.git", "GIT_TAG", "10.1.1",
+            "PATCH_COMMAND", "git", "apply", "fix", "me.patch", "SOURCE_DIR", "/a/_deps/fmt-src", "BINARY_DIR", "/a/_deps/fmt-build",
+            "CONFIGURE_COMMAND", "BUILD_COMMAND", "INSTALL_COMMAND", "TEST_COMMAND", "USES_TERMINAL_DOWNLOAD", "YES", "USES_TERMINAL_UPDATE", "YES",
+            "USES_TERMINAL_PATCH", "YES");
+        assertEquals(expected, DependencyCache.parseArguments(bracketSubbuild("/a", "10.1.1"), "ExternalProject_Add"));
+
+        final List<String> list = DependencyCache.parseArguments(listSubbuild("/a", "10.1.1"), "ExternalProject_Add");
+        assertEquals(Arrays.asList("fmt-populate", "UPDATE_DISCONNECTED", "False", "GIT_REPOSITORY", "https://github.com/fmtlib/fmt.git", "GIT_TAG",
+            "10.1.1", "PATCH_COMMAND", "git", "apply", "fix;me.patch", "SOURCE_DIR"), list.subList(0, 12));
+    }
+
+    @Test
+    void hashesOnlyTheDownloadDetails() throws IOException {
+        final String first = DependencyCache.hashDownload(write("a/CMakeLists.txt", bracketSubbuild("/home/a/build", "10.1.1")));
+        final String moved = DependencyCache.hashDownload(write("b/CMakeLists.txt", bracketSubbuild("/home/b/other-build", "10.1.1")));
+        final String otherTag = DependencyCache.hashDownload(write("c/CMakeLists.txt", bracketSubbuild("/home/a/build", "11.0.0")));
+        final String oldFormat = DependencyCache.hashDownload(write("d/CMakeLists.txt", listSubbuild("/home/a/build", "10.1.1")));
+        final String oldFormatOtherTag = DependencyCache.hashDownload(write("e/CMakeLists.txt", listSubbuild("/home/a/build", "11.0.0")));
+
+        assertNotNull(first);
+        assertEquals(first, moved);
+        assertNotEquals(first, otherTag);
+        assertNotNull(oldFormat);
+        assertNotEquals(oldFormat, oldFormatOtherTag);
+    }
+
+    @Test
+    void refusesToCacheWithoutDownloadDetails() throws IOException {
+        final File working = new File(tempFolder, "build");
+        final String script = String.join("\n", "include(ExternalProject)", "ExternalProject_Add(local-populate", "    SOURCE_DIR \"/src/local\"",
+            "    CONFIGURE_COMMAND \"\"", ")", "");
+        assertNull(DependencyCache.hashDownload(write("build/_deps/local-subbuild/CMakeLists.txt", script)));
+        write("build/_deps/local-src/CMakeLists.txt", "project(local)\n");
+
+        final DependencyCache cache = new DependencyCache(new File(tempFolder, "cache"));
+        cache.record("declarations", working, Logging.getLogger(DependencyCacheTest.class));
+        assertTrue(cache.resolve("declarations").isEmpty());
+        assertFalse(new File(tempFolder, "cache").exists());
+    }
+
+    @Test
+    void recordsAndResolvesDependencies() throws IOException {
+        final File working = new File(tempFolder, "build");
+        write("build/_deps/fmt-subbuild/CMakeLists.txt", bracketSubbuild(working.getAbsolutePath(), "10.1.1"));
+        write("build/_deps/fmt-src/include/fmt/core.h", "#pragma once\n");
+
+        final DependencyCache cache = new DependencyCache(new File(tempFolder, "cache"));
+        cache.record("declarations", working, Logging.getLogger(DependencyCacheTest.class));
+
+        final Map<String, File> sources = cache.resolve("declarations");
+        assertEquals(Collections.singleton("fmt"), sources.keySet());
+        assertTrue(new File(sources.get("fmt"), "include/fmt/core.h").isFile());
+
+        final TreeMap<String, String> entries = new TreeMap<>();
+        entries.put(DependencyCache.toVariableName("fmt"), sources.get("fmt").getAbsolutePath());
+        entries.put(DependencyCache.toVariableName("zlib"), "/opt/zlib");
+        entries.put("CMAKE_BUILD_TYPE", "Release");
+        assertEquals(Collections.singletonList("FETCHCONTENT_SOURCE_DIR_FMT"), cache.findInjectedSources(entries));
+    }
+}
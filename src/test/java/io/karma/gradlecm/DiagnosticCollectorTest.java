@@ -0,0 +1,103 @@
+package io.karma.gradlecm;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+class DiagnosticCollectorTest {
+    @Test
+    void parsesGccAndClangDiagnostics() throws IOException {
+        try (final DiagnosticCollector collector = new DiagnosticCollector(null, false, 0)) {
+            collector.accept("[1/3] Building CXX object CMakeFiles/app.dir/main.cpp.o");
+            collector.accept("/src/main.cpp:12:5: warning: unused variable 'x' [-Wunused-variable]");
+            collector.accept("/src/util.cpp:7: error: expected ';' before '}' token");
+            collector.accept("C:/src/win.cpp:3:1: fatal error: missing.h: No such file or directory");
+
+            final List<DiagnosticCollector.Diagnostic> diagnostics = collector.getDiagnostics();
+            assertEquals(3, diagnostics.size());
+            assertEquals(2, collector.getErrors());
+            assertEquals(1, collector.getWarnings());
+
+            final DiagnosticCollector.Diagnostic warning = diagnostics.get(0);
+            assertEquals("/src/main.cpp", warning.file);
+            assertEquals(12, warning.line);
+            assertEquals(5, warning.column);
+            assertFalse(warning.isError);
+            assertEquals("-Wunused-variable", warning.code);
+            assertEquals("unused variable 'x'", warning.message);
+
+            final DiagnosticCollector.Diagnostic error = diagnostics.get(1);
+            assertEquals(7, error.line);
+            assertEquals(0, error.column);
+            assertTrue(error.isError);
+            assertNull(error.code);
+
+            assertEquals("C:/src/win.cpp", diagnostics.get(2).file);
+            assertTrue(diagnostics.get(2).isError);
+        }
+    }
+
+    @Test
+    void parsesMsvcDiagnostics() throws IOException {
+        try (final DiagnosticCollector collector = new DiagnosticCollector(null, false, 0)) {
+            collector.accept("  C:\\src\\main.cpp(42,10): warning C4996: 'strcpy': This function or variable may be unsafe.");
+            collector.accept("C:\\src\\main.cpp(50): error C2065: 'y': undeclared identifier");
+
+            final List<DiagnosticCollector.Diagnostic> diagnostics = collector.getDiagnostics();
+            assertEquals(2, diagnostics.size());
+
+            final DiagnosticCollector.Diagnostic warning = diagnostics.get(0);
+            assertEquals("C:\\src\\main.cpp", warning.file);
+            assertEquals(42, warning.line);
+            assertEquals(10, warning.column);
+            assertEquals("C4996", warning.code);
+            assertFalse(warning.isError);
+
+            final DiagnosticCollector.Diagnostic error = diagnostics.get(1);
+            assertEquals(50, error.line);
+            assertEquals(0, error.column);
+            assertEquals("C2065", error.code);
+            assertEquals("'y': undeclared identifier", error.message);
+        }
+    }
+
+    @Test
+    void deduplicatesDiagnosticsFromSharedHeaders() throws IOException {
+        try (final DiagnosticCollector collector = new DiagnosticCollector(null, false, 0)) {
+            for (int i = 0; i < 3; i++) {
+                collector.accept("/src/shared.h:4:9: warning: 'old' is deprecated [-Wdeprecated-declarations]");
+            }
+            collector.accept("/src/shared.h:5:9: warning: 'old' is deprecated [-Wdeprecated-declarations]");
+
+            final List<DiagnosticCollector.Diagnostic> diagnostics = collector.getDiagnostics();
+            assertEquals(2, diagnostics.size());
+            assertEquals(3, diagnostics.get(0).occurrences);
+            assertEquals(1, diagnostics.get(1).occurrences);
+            assertEquals(4, collector.getWarnings());
+            assertTrue(diagnostics.get(0).toString().endsWith("(3 times)"));
+        }
+    }
+
+    @Test
+    void toleratesOverlongLineNumbers() throws IOException {
+        try (final DiagnosticCollector collector = new DiagnosticCollector(null, false, 0)) {
+            collector.accept("/src/gen.cpp:99999999999999999999:1: error: generated code is broken");
+
+            final List<DiagnosticCollector.Diagnostic> diagnostics = collector.getDiagnostics();
+            assertEquals(1, diagnostics.size());
+            assertEquals(0, diagnostics.get(0).line);
+            assertEquals(1, diagnostics.get(0).column);
+            assertEquals(1, collector.getErrors());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package io.karma.gradlecm;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+class InstallSyncTest {
+    @TempDir
+    Path tempFolder;
+
+    private static void write(final @NotNull Path file, final @NotNull String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        // Rewrites an existing file in place, like CMake does during install
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private static @NotNull String read(final @NotNull Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void installingAgainNeverWritesThroughToTheInstallFolder() throws IOException {
+        final Path staging = tempFolder.resolve("staging");
+        final Path target = tempFolder.resolve("install");
+        final Path library = Paths.get("lib", "libfoo.so");
+        write(staging.resolve(library.toString()), "version 1");
+        Files.setLastModifiedTime(staging.resolve(library.toString()), FileTime.fromMillis(1000000000000L));
+
+        final InstallSync first = new InstallSync();
+        first.sync(staging, target, Collections.singletonList(library));
+        assertEquals(1, first.getChanged());
+        assertEquals("version 1", read(target.resolve(library.toString())));
+
+        // The temporary folder is a single file system, so the file has to be linked
+        assertEquals(1, first.getLinked());
+        assertTrue(Files.isSameFile(staging.resolve(library.toString()), target.resolve(library.toString())));
+
+        assertEquals(1, InstallSync.breakLinks(staging, target));
+        assertFalse(Files.isSameFile(staging.resolve(library.toString()), target.resolve(library.toString())));
+        assertEquals("version 1", read(staging.resolve(library.toString())));
+        assertEquals(FileTime.fromMillis(1000000000000L), Files.getLastModifiedTime(staging.resolve(library.toString())));
+        assertEquals(0, InstallSync.breakLinks(staging, target));
+
+        write(staging.resolve(library.toString()), "version 2");
+        assertEquals("version 1", read(target.resolve(library.toString())));
+
+        final InstallSync second = new InstallSync();
+        second.sync(staging, target, Collections.singletonList(library));
+        assertEquals(1, second.getChanged());
+        assertEquals("version 2", read(target.resolve(library.toString())));
+    }
+
+    @Test
+    void keepsUnchangedFilesAndRemovesStaleOnes() throws IOException {
+        final Path staging = tempFolder.resolve("staging");
+        final Path target = tempFolder.resolve("install");
+        write(staging.resolve("include/foo.h"), "header");
+        write(staging.resolve("lib/libfoo.a"), "archive");
+        write(target.resolve("include/foo.h"), "header");
+        write(target.resolve("include/old/bar.h"), "stale");
+        write(target.resolve("share/stale.txt"), "stale");
+
+        final InstallSync sync = new InstallSync();
+        sync.sync(staging, target, Arrays.asList(Paths.get("include", "foo.h"), Paths.get("lib", "libfoo.a")));
+        assertEquals(1, sync.getUnchanged());
+        assertEquals(1, sync.getChanged());
+        assertEquals(2, sync.getRemoved());
+        assertFalse(Files.exists(target.resolve("include/old")));
+        assertFalse(Files.exists(target.resolve("share")));
+        assertEquals("archive", read(target.resolve("lib/libfoo.a")));
+    }
+}
@@ -0,0 +1,72 @@
+package io.karma.gradlecm;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Alexander 'KitsuneAlex' Hinze
+ * @since 17/10/2026
+ */
+class ParallelDeleteTest {
+    @TempDir
+    Path tempFolder;
+
+    @Test
+    void deletesNestedTrees() throws IOException {
+        final Path root = tempFolder.resolve("build");
+
+        for (int i = 0; i < 5; i++) {
+            Path folder = root.resolve("dir" + i);
+
+            for (int depth = 0; depth < 4; depth++) {
+                Files.createDirectories(folder);
+
+                for (int j = 0; j < 3; j++) {
+                    Files.write(folder.resolve("file" + j + ".o"), "object".getBytes(StandardCharsets.UTF_8));
+                }
+
+                folder = folder.resolve("nested" + depth);
+            }
+        }
+
+        Files.createDirectories(root.resolve("empty/also-empty"));
+        Files.write(root.resolve("CMakeCache.txt"), "cache".getBytes(StandardCharsets.UTF_8));
+        root.resolve("dir0/file0.o").toFile().setWritable(false);
+
+        final Path other = tempFolder.resolve("other.txt");
+        Files.write(other, "other".getBytes(StandardCharsets.UTF_8));
+
+        ParallelDelete.delete(Arrays.asList(root, other, tempFolder.resolve("missing")));
+        assertFalse(Files.exists(root));
+        assertFalse(Files.exists(other));
+        assertTrue(Files.exists(tempFolder));
+    }
+
+    @Test
+    void deletesLinksWithoutFollowingThem() throws IOException {
+        final Path target = Files.createDirectories(tempFolder.resolve("target"));
+        final Path file = Files.write(target.resolve("keep.txt"), "keep".getBytes(StandardCharsets.UTF_8));
+        final Path root = Files.createDirectories(tempFolder.resolve("build"));
+
+        try {
+            Files.createSymbolicLink(root.resolve("link"), target);
+        }
+        catch (UnsupportedOperationException | IOException error) {
+            return; // Symbolic links need extra privileges on Windows
+        }
+
+        ParallelDelete.delete(Collections.singletonList(root));
+        assertFalse(Files.exists(root));
+        assertTrue(Files.exists(file));
+    }
+}